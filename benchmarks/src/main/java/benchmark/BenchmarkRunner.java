@@ -0,0 +1,51 @@
+package benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.net.URISyntaxException;
+import java.security.CodeSource;
+
+/**
+ * Runs benchmarks and writes JSON results to 'jmh-result.json' next to the benchmarks jar,
+ * i.e. 'benchmarks/target/jmh-result.json' whatever the working directory is
+ * Accepts regular JMH command line options, '-rf' and '-rff' override result format and file
+ */
+public class BenchmarkRunner {
+
+    public static final String RESULT_FILE_NAME = "jmh-result.json";
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+        if (!commandLine.getResultFormat().hasValue()) {
+            options.resultFormat(ResultFormatType.JSON);
+        }
+        if (!commandLine.getResult().hasValue()) {
+            options.result(getDefaultResultFile());
+        }
+        new Runner(options.build()).run();
+    }
+
+    /**
+     * Returns result file in the directory holding benchmarks jar, or classes directory when run from IDE
+     *
+     * @return String -> path of the result file, file name only if location of the jar is unknown
+     */
+    static String getDefaultResultFile(){
+        try {
+            CodeSource source = BenchmarkRunner.class.getProtectionDomain().getCodeSource();
+            if (source == null || source.getLocation() == null) return RESULT_FILE_NAME;
+            File location = new File(source.getLocation().toURI());
+            return new File(location.getParentFile(), RESULT_FILE_NAME).getPath();
+        } catch (URISyntaxException | IllegalArgumentException | SecurityException e){
+            return RESULT_FILE_NAME;
+        }
+    }
+}
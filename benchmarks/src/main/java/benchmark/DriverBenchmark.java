@@ -0,0 +1,52 @@
+package benchmark;
+
+import org.openqa.selenium.WebDriver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import provider.Driver;
+import provider.ParameterReader;
+import provider.SessionRegistry;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures driver session startup and shutdown through 'Driver' with 'htmlunit' profile
+ * Sessions are quit through 'SessionRegistry', the same way tests release them
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DriverBenchmark {
+
+    private ParameterReader mReader;
+
+    @Setup
+    public void setup(){
+        Fixtures.useParameters();
+        mReader = new ParameterReader();
+    }
+
+    @Benchmark
+    public void startAndQuit(){
+        WebDriver driver = new Driver(mReader).getDriver();
+        SessionRegistry.quit(driver);
+    }
+
+    @Benchmark
+    public void startOpenAndQuit(){
+        WebDriver driver = new Driver(mReader).getDriver();
+        driver.get(Fixtures.url("table.html"));
+        SessionRegistry.quit(driver);
+    }
+}
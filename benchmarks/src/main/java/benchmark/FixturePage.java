@@ -0,0 +1,52 @@
+package benchmark;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import page.BaseWebPage;
+import page.Locator;
+
+import java.util.List;
+
+/**
+ * Exposes protected 'BaseWebPage' operations to the benchmarks
+ */
+public class FixturePage extends BaseWebPage {
+
+    static final Locator TITLE = Locator.id("title");
+    static final Locator APPLY = Locator.id("apply");
+    static final Locator PRICES = Locator.className("price");
+    static final Locator ITEMS = Locator.id("items");
+
+    public FixturePage(WebDriver driver){
+        super(driver);
+    }
+
+    public WebElement find(Locator locator){
+        return getElement(locator);
+    }
+
+    public WebElement findUncached(Locator locator){
+        clearElementCache();
+        return getElement(locator);
+    }
+
+    public void clickElement(Locator locator){
+        click(locator);
+    }
+
+    public String text(Locator locator){
+        return getElementText(locator);
+    }
+
+    public List<WebElement> elements(Locator locator){
+        return getElements(locator);
+    }
+
+    public List<String> texts(Locator locator){
+        return getElementsText(locator);
+    }
+
+    public List<List<String>> table(Locator locator){
+        return getTableCells(locator);
+    }
+}
@@ -0,0 +1,100 @@
+package benchmark;
+
+import com.sun.net.httpserver.HttpServer;
+import provider.Parameters;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Local fixtures of the benchmarks
+ * HTML pages are served from classpath by in-process HTTP server, so benchmarks run offline
+ */
+final class Fixtures {
+
+    private static HttpServer sServer;
+    private static String sBaseUrl;
+
+    private Fixtures(){
+    }
+
+    /**
+     * Points 'Parameters' to bundled 'parameters.xml'
+     * Must be called before first use of 'Parameters' in the JVM
+     */
+    static synchronized void useParameters(){
+        if (System.getProperty(Parameters.FILE_PROPERTY) != null) return;
+        try (InputStream stream = Fixtures.class.getResourceAsStream("/fixtures/parameters.xml")) {
+            File file = File.createTempFile("parameters", ".xml");
+            file.deleteOnExit();
+            Files.copy(stream, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            System.setProperty(Parameters.FILE_PROPERTY, file.getAbsolutePath());
+        } catch (IOException e){
+            throw new IllegalStateException("Can't extract parameters fixture", e);
+        }
+    }
+
+    /**
+     * Returns URL of the fixture page, starts fixture server on first call
+     *
+     * @param name String -> fixture file name, e.g. 'table.html'
+     * @return String -> page URL
+     */
+    static synchronized String url(String name){
+        if (sServer == null) {
+            start();
+        }
+        return sBaseUrl + name;
+    }
+
+    /**
+     * Starts HTTP server on free loopback port
+     */
+    private static void start(){
+        try {
+            sServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+            sServer.createContext("/fixtures/", exchange -> {
+                byte[] body = read(exchange.getRequestURI().getPath());
+                exchange.getResponseHeaders().set("Content-Type", "text/html; charset=UTF-8");
+                exchange.sendResponseHeaders(body != null ? 200 : 404, body != null ? body.length : -1);
+                if (body != null) {
+                    try (OutputStream output = exchange.getResponseBody()) {
+                        output.write(body);
+                    }
+                }
+                exchange.close();
+            });
+            sServer.start();
+            sBaseUrl = "http://" + sServer.getAddress().getHostString() + ":" + sServer.getAddress().getPort() + "/fixtures/";
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> sServer.stop(0)));
+        } catch (IOException e){
+            throw new IllegalStateException("Can't start fixture server", e);
+        }
+    }
+
+    /**
+     * Reads classpath resource
+     *
+     * @param path String -> resource path
+     * @return byte[] -> resource content or null if missing
+     */
+    private static byte[] read(String path) throws IOException {
+        try (InputStream stream = Fixtures.class.getResourceAsStream(path)) {
+            if (stream == null) return null;
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+            return output.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package benchmark;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import provider.Driver;
+import provider.ParameterReader;
+import provider.SessionRegistry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures 'BaseWebPage' operations against table fixture with 200 rows
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PageBenchmark {
+
+    private WebDriver mDriver;
+    private FixturePage mPage;
+
+    @Setup(Level.Trial)
+    public void setup(){
+        Fixtures.useParameters();
+        mDriver = new Driver(new ParameterReader()).getDriver();
+        mDriver.get(Fixtures.url("table.html"));
+        mPage = new FixturePage(mDriver);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown(){
+        SessionRegistry.quit(mDriver);
+    }
+
+    @Benchmark
+    public WebElement findCached(){
+        return mPage.find(FixturePage.TITLE);
+    }
+
+    @Benchmark
+    public WebElement findUncached(){
+        return mPage.findUncached(FixturePage.TITLE);
+    }
+
+    @Benchmark
+    public void click(){
+        mPage.clickElement(FixturePage.APPLY);
+    }
+
+    @Benchmark
+    public String getText(){
+        return mPage.text(FixturePage.TITLE);
+    }
+
+    @Benchmark
+    public List<WebElement> getElements(){
+        return mPage.elements(FixturePage.PRICES);
+    }
+
+    @Benchmark
+    public List<String> getElementsTextPerElement(){
+        List<String> texts = new ArrayList<>();
+        for (WebElement element : mPage.elements(FixturePage.PRICES)) {
+            texts.add(element.getText());
+        }
+        return texts;
+    }
+
+    @Benchmark
+    public List<String> getElementsTextBulk(){
+        return mPage.texts(FixturePage.PRICES);
+    }
+
+    @Benchmark
+    public List<List<String>> getTableCells(){
+        return mPage.table(FixturePage.ITEMS);
+    }
+}
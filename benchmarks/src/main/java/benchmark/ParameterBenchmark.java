@@ -0,0 +1,57 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import provider.ParameterReader;
+import provider.Parameters;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures reading of 'parameters.xml'
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParameterBenchmark {
+
+    private ParameterReader mReader;
+
+    @Setup
+    public void setup(){
+        Fixtures.useParameters();
+        mReader = new ParameterReader();
+    }
+
+    @Benchmark
+    public ParameterReader newParameterReader(){
+        return new ParameterReader();
+    }
+
+    @Benchmark
+    public String customString(){
+        return mReader.getCustomString("user_name");
+    }
+
+    @Benchmark
+    public int customInt(){
+        return mReader.getCustomInt("retries");
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Parameters reload(){
+        return Parameters.reload();
+    }
+}
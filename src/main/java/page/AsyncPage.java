@@ -0,0 +1,376 @@
+package page;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import provider.ActionLog;
+import provider.CommandMetrics;
+import provider.Parameters;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Non-blocking view of a page object for tests driving several browser sessions at once, e.g. chat between two users
+ * Every operation returns CompletableFuture and runs on shared executor, operations of pages sharing
+ * one browser session run one after another in submission order, as WebDriver session is not thread safe,
+ * operations of different sessions run at the same time
+ * Executor uses virtual threads on Java 21+, otherwise pool of 'execution/async_threads' threads, 16 by default
+ * Actions and command metrics of the operations are attributed to the test method which submitted them
+ * NOTE: page and other page objects of its session must not be used directly while it has pending operations
+ *
+ * @param <P> page object type
+ */
+public class AsyncPage<P extends BaseWebPage> {
+
+    private static final Logger logger = Logger.getLogger(AsyncPage.class.getName());
+    private static final ExecutorService EXECUTOR = createExecutor();
+    private static final Map<WebDriver, SessionQueue> QUEUES = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final P mPage;
+    private final SessionQueue mQueue;
+
+    public AsyncPage(P page){
+        mPage = page;
+        mQueue = getQueue(page.mDriver);
+    }
+
+    /**
+     * Returns async view of the page
+     *
+     * @param page BaseWebPage -> page object
+     * @param <P> page object type
+     * @return AsyncPage
+     */
+    public static <P extends BaseWebPage> AsyncPage<P> of(P page){
+        return new AsyncPage<>(page);
+    }
+
+    /**
+     * Runs page operation returning value, e.g. 'async.call(page -> page.getMessages())'
+     *
+     * @param action Function -> operation on the page
+     * @param <T> result type
+     * @return CompletableFuture -> result of the operation
+     */
+    public <T> CompletableFuture<T> call(Function<? super P, T> action){
+        CompletableFuture<T> future = new CompletableFuture<>();
+        String test = ActionLog.getTest();
+        mQueue.schedule(() -> {
+            if (future.isDone()) return;
+            ActionLog.setTest(test);
+            CommandMetrics.setTest(test);
+            try {
+                future.complete(action.apply(mPage));
+            } catch (Throwable e){
+                future.completeExceptionally(e);
+            } finally {
+                ActionLog.setTest(null);
+                CommandMetrics.setTest(null);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Runs page operation, e.g. 'async.run(page -> page.sendMessage("hi"))'
+     *
+     * @param action Consumer -> operation on the page
+     * @return CompletableFuture -> completes when operation is done
+     */
+    public CompletableFuture<Void> run(Consumer<? super P> action){
+        return call(page -> {
+            action.accept(page);
+            return null;
+        });
+    }
+
+    /**
+     * Clicks element, see 'BaseWebPage.click'
+     *
+     * @param locator Locator -> Element locator
+     * @return CompletableFuture
+     */
+    public CompletableFuture<Void> click(Locator locator){
+        return run(page -> page.click(locator));
+    }
+
+    /**
+     * Sets text into text field, see 'BaseWebPage.enterText'
+     *
+     * @param locator Locator -> Element locator
+     * @param text String -> desired string
+     * @return CompletableFuture
+     */
+    public CompletableFuture<Void> enterText(Locator locator, String text){
+        return run(page -> page.enterText(locator, text));
+    }
+
+    /**
+     * Clears text field, see 'BaseWebPage.clearTextField'
+     *
+     * @param locator Locator -> Element locator
+     * @return CompletableFuture
+     */
+    public CompletableFuture<Void> clearTextField(Locator locator){
+        return run(page -> page.clearTextField(locator));
+    }
+
+    /**
+     * Selects option by visible text, see 'BaseWebPage.selectByText'
+     *
+     * @param locator Locator -> Element locator
+     * @param text String -> option text
+     * @return CompletableFuture
+     */
+    public CompletableFuture<Void> selectByText(Locator locator, String text){
+        return run(page -> page.selectByText(locator, text));
+    }
+
+    /**
+     * Fills form fields, see 'BaseWebPage.fill'
+     *
+     * @param form FormFill -> fields to fill
+     * @return CompletableFuture -> result of every field
+     */
+    public CompletableFuture<List<FormFill.Result>> fill(FormFill form){
+        return call(page -> page.fill(form));
+    }
+
+    /**
+     * Returns text of element, see 'BaseWebPage.getElementText'
+     *
+     * @param locator Locator -> Element locator
+     * @return CompletableFuture -> element text
+     */
+    public CompletableFuture<String> getElementText(Locator locator){
+        return call(page -> page.getElementText(locator));
+    }
+
+    /**
+     * Returns text of every element, see 'BaseWebPage.getElementsText'
+     *
+     * @param locator Locator -> Element locator
+     * @return CompletableFuture -> texts of matching elements
+     */
+    public CompletableFuture<List<String>> getElementsText(Locator locator){
+        return call(page -> page.getElementsText(locator));
+    }
+
+    /**
+     * Returns attribute of element, see 'BaseWebPage.getElementsAttribute'
+     *
+     * @param locator Locator -> Element locator
+     * @param attribute String -> attribute name
+     * @return CompletableFuture -> attribute value
+     */
+    public CompletableFuture<String> getElementsAttribute(Locator locator, String attribute){
+        return call(page -> page.getElementsAttribute(locator, attribute));
+    }
+
+    /**
+     * Checks presence of element, see 'BaseWebPage.isElementPresent'
+     *
+     * @param locator Locator -> Element locator
+     * @return CompletableFuture -> 'true' in case if element is present
+     */
+    public CompletableFuture<Boolean> isElementPresent(Locator locator){
+        return call(page -> page.isElementPresent(locator));
+    }
+
+    /**
+     * Checks presence of every element in one browser round trip, see 'BaseWebPage.arePresent'
+     *
+     * @param locators Locator -> Element locators
+     * @return CompletableFuture -> 'true' for every present element, in order of locators
+     */
+    public CompletableFuture<Map<Locator, Boolean>> arePresent(Locator... locators){
+        return call(page -> page.arePresent(locators));
+    }
+
+    /**
+     * Waits for element to become visible, see 'BaseWebPage.waitForVisibilityOfElement'
+     *
+     * @param locator Locator -> Element locator
+     * @param timeout Duration -> max time to wait
+     * @return CompletableFuture
+     */
+    public CompletableFuture<Void> waitForVisibilityOfElement(Locator locator, Duration timeout){
+        return run(page -> page.waitForVisibilityOfElement(locator, timeout));
+    }
+
+    /**
+     * Waits for element to become invisible, see 'BaseWebPage.waitForInvisibilityOfElement'
+     *
+     * @param locator Locator -> Element locator
+     * @param timeout Duration -> max time to wait
+     * @return CompletableFuture
+     */
+    public CompletableFuture<Void> waitForInvisibilityOfElement(Locator locator, Duration timeout){
+        return run(page -> page.waitForInvisibilityOfElement(locator, timeout));
+    }
+
+    /**
+     * Waits for element to be present, see 'BaseWebPage.waitForPresenceOfElement'
+     *
+     * @param locator Locator -> Element locator
+     * @param timeout Duration -> max time to wait
+     * @return CompletableFuture -> found element
+     */
+    public CompletableFuture<WebElement> waitForPresenceOfElement(Locator locator, Duration timeout){
+        return call(page -> page.waitForPresenceOfElement(locator, timeout));
+    }
+
+    /**
+     * Getter for wrapped page object
+     *
+     * @return P
+     */
+    public P getPage(){
+        return mPage;
+    }
+
+    /**
+     * Waits for the operation and returns its result
+     * Failure of the operation is rethrown as is, so assertion errors look the same as in blocking code
+     *
+     * @param future CompletableFuture -> operation
+     * @param <T> result type
+     * @return T -> result of the operation
+     */
+    public static <T> T await(CompletableFuture<T> future){
+        try {
+            return future.join();
+        } catch (CompletionException e){
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw e;
+        }
+    }
+
+    /**
+     * Waits for every operation, rethrows failure of the first failed one in argument order
+     *
+     * @param futures CompletableFuture[] -> operations, e.g. of different pages
+     */
+    public static void awaitAll(CompletableFuture<?>... futures){
+        try {
+            CompletableFuture.allOf(futures).join();
+        } catch (CompletionException e){
+            for (CompletableFuture<?> future : futures) {
+                await(future);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Returns task queue of the browser session, shared by every async page of the session
+     *
+     * @param driver WebDriver -> session of the page, null gives queue of its own
+     * @return SessionQueue
+     */
+    private static SessionQueue getQueue(WebDriver driver){
+        if (driver == null) return new SessionQueue();
+        return QUEUES.computeIfAbsent(driver, key -> new SessionQueue());
+    }
+
+    /**
+     * Creates virtual thread per task executor on Java 21+, fixed pool of daemon threads otherwise
+     * Virtual threads are looked up reflectively, so the framework still builds and runs on Java 8
+     *
+     * @return ExecutorService
+     */
+    private static ExecutorService createExecutor(){
+        if (getJavaVersion() >= 21) {
+            try {
+                Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                return (ExecutorService) factory.invoke(null);
+            } catch (ReflectiveOperationException | RuntimeException e){
+                logger.log(Level.WARNING, "There was an issue creating virtual thread executor. "
+                        + "Please refer to the following error: " + e);
+            }
+        }
+        int threads = Math.max(1, Parameters.current().getInt("execution.async_threads", 16));
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "page-async-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Returns feature version of running Java, e.g. 8 or 21
+     *
+     * @return int
+     */
+    private static int getJavaVersion(){
+        String version = System.getProperty("java.specification.version", "1.8");
+        if (version.startsWith("1.")) version = version.substring(2);
+        try {
+            return Integer.parseInt(version);
+        } catch (NumberFormatException e){
+            return 8;
+        }
+    }
+
+    /**
+     * Tasks of one browser session, at most one of them runs at a time
+     * Holds no reference to the session, so session is collected once it is quit and its tasks are done
+     */
+    private static final class SessionQueue {
+        private final Queue<Runnable> mTasks = new ArrayDeque<>();
+        private boolean mRunning;
+
+        /**
+         * Queues task, starts it in case if no other task of the session is running
+         *
+         * @param task Runnable
+         */
+        void schedule(Runnable task){
+            synchronized (mTasks) {
+                mTasks.add(task);
+                if (mRunning) return;
+                mRunning = true;
+            }
+            EXECUTOR.execute(this::runNext);
+        }
+
+        /**
+         * Runs next task of the session and hands the executor thread over to other sessions before the following one
+         */
+        private void runNext(){
+            Runnable task;
+            synchronized (mTasks) {
+                task = mTasks.poll();
+            }
+            try {
+                if (task != null) task.run();
+            } finally {
+                synchronized (mTasks) {
+                    if (mTasks.isEmpty()) {
+                        mRunning = false;
+                    } else {
+                        EXECUTOR.execute(this::runNext);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -1,29 +1,60 @@
 package page;
 
 import org.openqa.selenium.By;
+import org.openqa.selenium.HasCapabilities;
+import org.openqa.selenium.JavascriptExecutor;
 import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.TakesScreenshot;
 import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
 import org.openqa.selenium.WebElement;
-import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.openqa.selenium.support.ui.Select;
-import org.openqa.selenium.support.ui.WebDriverWait;
+import provider.ActionLog;
+import provider.CommandMetrics;
+import provider.Parameters;
+import provider.PerformanceBudget;
+import provider.SessionRegistry;
+import provider.VisualDiff;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public class BaseWebPage {
 
-    private final WebDriverWait mWait;
+    private final WaitEngine mWait;
     protected WebDriver mDriver;
-    private final Logger logger = Logger.getLogger(BaseWebPage.class.getName());
+    private final Map<Locator, WebElement> mElements = new ConcurrentHashMap<>();
+    private volatile DomSnapshot mSnapshot;
+    private static final Logger logger = Logger.getLogger(BaseWebPage.class.getName());
 
     public static final int XPATH = 1;
     public static final int ID = 2;
     public static final int CLASS_NAME = 3;
+    public static final int CSS = 4;
+    public static final int NAME = 5;
+    public static final int TAG_NAME = 6;
+    public static final int LINK_TEXT = 7;
+    public static final int PARTIAL_LINK_TEXT = 8;
 
+    /**
+     * Default wait timeout is taken from 'execution/wait_timeout' of 'parameters.xml', 30 seconds if not set
+     *
+     * @param driver WebDriver -> driver of the page
+     */
     public BaseWebPage(WebDriver driver){
-        mWait = new WebDriverWait(driver, 30);
+        mWait = new WaitEngine(driver, Duration.ofSeconds(Parameters.current().getInt("execution.wait_timeout", 30)));
         mDriver = driver;
     }
 
@@ -33,14 +64,30 @@ public class BaseWebPage {
      * @param by int -> identifier:
      *           1 - xPath,
      *           2 - Id,
-     *           3 - Class name
+     *           3 - Class name,
+     *           4 - CSS selector,
+     *           5 - Name,
+     *           6 - Tag name,
+     *           7 - Link text,
+     *           8 - Partial link text
      * @param identifier String -> Element unique identifier
      */
     protected void clearTextField(int by, String identifier){
-        WebElement element = findElement(by, identifier);
-        if (element != null) {
+        clearTextField(Locator.of(by, identifier));
+    }
+
+    /**
+     * Clears text field
+     *
+     * @param locator Locator -> Element locator
+     */
+    protected void clearTextField(Locator locator){
+        withElement(locator, element -> {
             element.clear();
-        }
+            return null;
+        });
+        invalidateSnapshot();
+        ActionLog.log(Level.INFO, "clear", getClass(), locator);
     }
 
     /**
@@ -49,12 +96,7 @@ public class BaseWebPage {
      * @param xPath String -> Element xPath
      */
     protected void clickByXPath(String xPath){
-        try {
-            mWait.until(ExpectedConditions.elementToBeClickable(By.xpath(xPath))).click();
-            logger.log(Level.INFO, "Clicked element with xPath: " + xPath);
-        } catch (NoSuchElementException e){
-            logger.log(Level.WARNING, "Element not found by xPath: " + xPath);
-        }
+        click(Locator.xpath(xPath));
     }
 
     /**
@@ -63,12 +105,7 @@ public class BaseWebPage {
      * @param id String -> Element id attribute
      */
     protected void clickById(String id){
-        try {
-            mWait.until(ExpectedConditions.elementToBeClickable(By.id(id))).click();
-            logger.log(Level.INFO, "Clicked element with id: " + id);
-        } catch (NoSuchElementException e){
-            logger.log(Level.WARNING, "Element not found by id: " + id);
-        }
+        click(Locator.id(id));
     }
 
     /**
@@ -77,11 +114,25 @@ public class BaseWebPage {
      * @param className String -> Element class attribute
      */
     protected void clickByClassName(String className){
+        click(Locator.className(className));
+    }
+
+    /**
+     * Clicks element
+     *
+     * @param locator Locator -> Element locator
+     */
+    protected void click(Locator locator){
         try {
-            mWait.until(ExpectedConditions.elementToBeClickable(By.className(className))).click();
-            logger.log(Level.INFO, "Clicked element with class name: " + className);
+            withElement(locator, element -> {
+                element.click();
+                return null;
+            });
+            invalidateSnapshot();
+            ActionLog.log(Level.INFO, "click", getClass(), locator);
         } catch (NoSuchElementException e){
-            logger.log(Level.WARNING, "Element not found by class name: " + className);
+            ActionLog.log(Level.WARNING, "not found", getClass(), locator);
+            logger.log(Level.WARNING, "Element not found by {0}", locator);
         }
     }
 
@@ -91,15 +142,32 @@ public class BaseWebPage {
      * @param by int -> identifier:
      *           1 - xPath,
      *           2 - Id,
-     *           3 - Class name
+     *           3 - Class name,
+     *           4 - CSS selector,
+     *           5 - Name,
+     *           6 - Tag name,
+     *           7 - Link text,
+     *           8 - Partial link text
      * @param identifier String -> Element unique identifier
      * @param text String -> desired string
      */
     protected void enterText(int by, String identifier, String text){
-        WebElement element = findElement(by, identifier);
-        if (element != null) {
+        enterText(Locator.of(by, identifier), text);
+    }
+
+    /**
+     * Sets text into text field
+     *
+     * @param locator Locator -> Element locator
+     * @param text String -> desired string
+     */
+    protected void enterText(Locator locator, String text){
+        withElement(locator, element -> {
             element.sendKeys(text);
-        }
+            return null;
+        });
+        invalidateSnapshot();
+        ActionLog.log(Level.INFO, "enter text", getClass(), locator);
     }
 
     /**
@@ -108,33 +176,119 @@ public class BaseWebPage {
      * @param by int -> identifier:
      *           1 - xPath,
      *           2 - Id,
-     *           3 - Class name
+     *           3 - Class name,
+     *           4 - CSS selector,
+     *           5 - Name,
+     *           6 - Tag name,
+     *           7 - Link text,
+     *           8 - Partial link text
      * @param identifier String -> Element unique identifier
      * @return List -> list of web elements
      */
     protected List<WebElement> getElements(int by, String identifier){
-        switch (by){
-            case XPATH:
-                try {
-                    return mDriver.findElements(By.xpath(identifier));
-                } catch (NoSuchElementException e){
-                    logger.log(Level.WARNING, "Elements not found by xPath: " + identifier);
-                }
-            case ID:
-                try {
-                    return mDriver.findElements(By.id(identifier));
-                } catch (NoSuchElementException e){
-                    logger.log(Level.WARNING, "Elements not found by id: " + identifier);
-                }
-            case CLASS_NAME:
-                try {
-                    return mDriver.findElements(By.className(identifier));
-                } catch (NoSuchElementException e){
-                    logger.log(Level.WARNING, "Elements not found by class name: " + identifier);
+        return getElements(Locator.of(by, identifier));
+    }
+
+    /**
+     * Finds and returns list of web elements
+     *
+     * @param locator Locator -> Element locator
+     * @return List -> list of web elements
+     */
+    protected List<WebElement> getElements(Locator locator){
+        if (locator == null) return null;
+        CommandMetrics.setTarget(getClass(), locator);
+        try {
+            return mDriver.findElements(locator.toBy());
+        } catch (NoSuchElementException e){
+            logger.log(Level.WARNING, "Elements not found by " + locator);
+            return null;
+        }
+    }
+
+    /**
+     * Retrieves and returns text of every element matching locator in one browser round trip
+     * Text is read from 'innerText', so it may differ from 'WebElement.getText()' in whitespace
+     *
+     * @param locator Locator -> Elements locator
+     * @return List -> text of every element in document order
+     */
+    protected List<String> getElementsText(Locator locator){
+        if (!supportsScripts()) {
+            List<String> texts = new ArrayList<>();
+            for (WebElement element : getElements(locator)) {
+                texts.add(element.getText());
+            }
+            return texts;
+        }
+        List<String> texts = new ArrayList<>();
+        for (Object text : (List<?>) executeScript(Scripts.TEXTS, locator)) {
+            texts.add(String.valueOf(text));
+        }
+        return texts;
+    }
+
+    /**
+     * Retrieves and returns attributes of every element matching locator in one browser round trip
+     *
+     * @param locator Locator -> Elements locator
+     * @param attributes String -> attribute names
+     * @return List -> map of attribute name to value for every element in document order
+     */
+    protected List<Map<String, String>> getElementsAttributes(Locator locator, String... attributes){
+        List<Map<String, String>> result = new ArrayList<>();
+        if (!supportsScripts()) {
+            for (WebElement element : getElements(locator)) {
+                Map<String, String> values = new LinkedHashMap<>();
+                for (String attribute : attributes) {
+                    values.put(attribute, element.getAttribute(attribute));
                 }
-            default:
-                return null;
+                result.add(values);
+            }
+            return result;
+        }
+        List<?> elements = (List<?>) executeScript(Scripts.ATTRIBUTES, locator, Arrays.asList(attributes));
+        for (Object element : elements) {
+            Map<?, ?> raw = (Map<?, ?>) element;
+            Map<String, String> values = new LinkedHashMap<>();
+            for (String attribute : attributes) {
+                Object value = raw.get(attribute);
+                values.put(attribute, value != null ? value.toString() : null);
+            }
+            result.add(values);
+        }
+        return result;
+    }
+
+    /**
+     * Retrieves and returns text of every cell of the table in one browser round trip
+     *
+     * @param locator Locator -> Table locator, first match is used
+     * @return List -> rows of cell texts
+     */
+    protected List<List<String>> getTableCells(Locator locator){
+        return readTableRows(locator, 0, -1);
+    }
+
+    /**
+     * Streams text of table cells in chunks, one browser round trip per chunk
+     * Suits large tables which should not be transferred at once
+     *
+     * @param locator Locator -> Table locator, first match is used
+     * @param chunkSize int -> max number of rows per chunk
+     * @param consumer Consumer -> receives every chunk in table order
+     */
+    protected void readTableCells(Locator locator, int chunkSize, Consumer<List<List<String>>> consumer){
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
         }
+        int offset = 0;
+        List<List<String>> chunk;
+        do {
+            chunk = readTableRows(locator, offset, chunkSize);
+            if (!chunk.isEmpty()) consumer.accept(chunk);
+            offset += chunk.size();
+        } while (chunk.size() == chunkSize);
     }
 
     /**
@@ -143,13 +297,29 @@ public class BaseWebPage {
      * @param by int -> identifier:
      *           1 - xPath,
      *           2 - Id,
-     *           3 - Class name
+     *           3 - Class name,
+     *           4 - CSS selector,
+     *           5 - Name,
+     *           6 - Tag name,
+     *           7 - Link text,
+     *           8 - Partial link text
      * @param identifier String -> Element unique identifier
      * @return String -> attribute
      */
     protected String getElementsAttribute (int by, String identifier, String attribute){
-        WebElement element = findElement(by, identifier);
-        return (element != null) ? element.getAttribute(attribute) : "";
+        return getElementsAttribute(Locator.of(by, identifier), attribute);
+    }
+
+    /**
+     * Retrieves and returns elements attribute
+     *
+     * @param locator Locator -> Element locator
+     * @param attribute String -> attribute name
+     * @return String -> attribute
+     */
+    protected String getElementsAttribute(Locator locator, String attribute){
+        String value = withElement(locator, element -> element.getAttribute(attribute));
+        return (value != null) ? value : "";
     }
 
     /**
@@ -158,14 +328,27 @@ public class BaseWebPage {
      * @param by int -> identifier:
      *           1 - xPath,
      *           2 - Id,
-     *           3 - Class name
+     *           3 - Class name,
+     *           4 - CSS selector,
+     *           5 - Name,
+     *           6 - Tag name,
+     *           7 - Link text,
+     *           8 - Partial link text
      * @param identifier String -> Element unique identifier
      * @return String -> text
      */
     protected String getElementText(int by, String identifier){
-        WebElement element = findElement(by, identifier);
-        if (element != null) return element.getText();
-        return null;
+        return getElementText(Locator.of(by, identifier));
+    }
+
+    /**
+     * Retrieves and returns text of web element
+     *
+     * @param locator Locator -> Element locator
+     * @return String -> text
+     */
+    protected String getElementText(Locator locator){
+        return withElement(locator, WebElement::getText);
     }
 
     /**
@@ -174,36 +357,76 @@ public class BaseWebPage {
      * @param by int -> identifier:
      *           1 - xPath,
      *           2 - Id,
-     *           3 - Class name
+     *           3 - Class name,
+     *           4 - CSS selector,
+     *           5 - Name,
+     *           6 - Tag name,
+     *           7 - Link text,
+     *           8 - Partial link text
      * @param identifier String -> Element unique identifier
      * @return boolean
      */
     protected boolean isElementPresent(int by, String identifier){
-        switch (by){
-            case XPATH:
-                try {
-                    mDriver.findElement(By.xpath(identifier));
-                    return true;
-                } catch (NoSuchElementException e){
-                    return false;
-                }
-            case ID:
-                try {
-                    mDriver.findElement(By.id(identifier));
-                    return true;
-                } catch (NoSuchElementException e){
-                    return false;
+        return isElementPresent(Locator.of(by, identifier));
+    }
+
+    /**
+     * Returns 'true' in case if element can be located
+     * Never waits and never throws, see 'arePresent()'
+     *
+     * @param locator Locator -> Element locator
+     * @return boolean
+     */
+    protected boolean isElementPresent(Locator locator){
+        if (locator == null) return false;
+        return arePresent(locator).get(locator);
+    }
+
+    /**
+     * Checks presence of every element in one browser round trip, suits pages with many optional elements
+     * Never waits and never throws: absent element is reported at once regardless of implicit wait
+     * Without JavaScript every locator is checked with 'findElements()', implicit wait is turned off meanwhile
+     *
+     * @param locators Locator -> Element locators
+     * @return Map -> 'true' for every present element, in order of locators
+     */
+    protected Map<Locator, Boolean> arePresent(Locator... locators){
+        Map<Locator, Boolean> presence = new LinkedHashMap<>();
+        if (locators.length == 0) return presence;
+        if (supportsScripts()) {
+            List<Map<String, String>> arguments = new ArrayList<>(locators.length);
+            for (Locator locator : locators) {
+                Map<String, String> argument = new LinkedHashMap<>();
+                argument.put("strategy", locator.getStrategy().name());
+                argument.put("value", locator.getValue());
+                arguments.add(argument);
+            }
+            CommandMetrics.setTarget(getClass(), locators.length == 1 ? locators[0] : null);
+            try {
+                List<?> flags = (List<?>) ((JavascriptExecutor) mDriver).executeScript(Scripts.PRESENCE, arguments);
+                for (int i = 0; i < locators.length; i++) {
+                    presence.put(locators[i], Boolean.TRUE.equals(flags.get(i)));
                 }
-            case CLASS_NAME:
+                return presence;
+            } catch (WebDriverException | ClassCastException | IndexOutOfBoundsException e){
+                logger.log(Level.FINE, "Presence script failed, checking elements one by one: " + e);
+                presence.clear();
+            }
+        }
+        Duration implicitWait = disableImplicitWait();
+        try {
+            for (Locator locator : locators) {
+                CommandMetrics.setTarget(getClass(), locator);
                 try {
-                    mDriver.findElement(By.className(identifier));
-                    return true;
-                } catch (NoSuchElementException e){
-                    return false;
+                    presence.put(locator, !mDriver.findElements(locator.toBy()).isEmpty());
+                } catch (WebDriverException e){
+                    presence.put(locator, false);
                 }
-            default:
-                return false;
+            }
+        } finally {
+            restoreImplicitWait(implicitWait);
         }
+        return presence;
     }
 
     /**
@@ -212,16 +435,79 @@ public class BaseWebPage {
      * @param by int -> identifier:
      *           1 - xPath,
      *           2 - Id,
-     *           3 - Class name
+     *           3 - Class name,
+     *           4 - CSS selector,
+     *           5 - Name,
+     *           6 - Tag name,
+     *           7 - Link text,
+     *           8 - Partial link text
      * @param identifier String -> Element unique identifier
      * @param text String -> desired option
      */
     protected void selectByText(int by, String identifier, String text){
-        WebElement element = findElement(by, identifier);
-        if (element != null) {
+        selectByText(Locator.of(by, identifier), text);
+    }
+
+    /**
+     * Selects from drop-down by visible text
+     *
+     * @param locator Locator -> Element locator
+     * @param text String -> desired option
+     */
+    protected void selectByText(Locator locator, String text){
+        withElement(locator, element -> {
             Select select = new Select(element);
-            select.selectByValue(text);
+            select.selectByVisibleText(text);
+            return null;
+        });
+        invalidateSnapshot();
+        ActionLog.log(Level.INFO, "select", getClass(), locator, text);
+    }
+
+    /**
+     * Fills form fields with one script execution instead of separate WebDriver calls for every field
+     * Fields added with 'typeKeys' are typed natively in their place of the batch,
+     * fields the script could not find or fill are retried natively in case if form is built 'withNativeFallback()'
+     * Every field is filled natively in case if driver can't execute JavaScript
+     *
+     * @param form FormFill -> field operations
+     * @return List -> result of every field in order of the form
+     */
+    protected List<FormFill.Result> fill(FormFill form){
+        List<FormFill.Field> fields = form.getFields();
+        List<FormFill.Result> results = new ArrayList<>(fields.size());
+        boolean scripts = supportsScripts();
+        int start = 0;
+        while (start < fields.size()) {
+            if (!scripts || fields.get(start).getAction() == FormFill.Action.KEYS) {
+                results.add(fillNatively(fields.get(start)));
+                start++;
+                continue;
+            }
+            int end = start;
+            while (end < fields.size() && fields.get(end).getAction() != FormFill.Action.KEYS) {
+                end++;
+            }
+            for (FormFill.Result result : fillWithScript(fields.subList(start, end))) {
+                if (form.isNativeFallback() && (result.getStatus() == FormFill.Status.NOT_FOUND
+                        || result.getStatus() == FormFill.Status.FAILED)) {
+                    result = fillNatively(result.getField());
+                }
+                results.add(result);
+            }
+            start = end;
         }
+        invalidateSnapshot();
+        for (FormFill.Result result : results) {
+            FormFill.Field field = result.getField();
+            String detail = field.getAction() == FormFill.Action.SELECT ? field.getText() : null;
+            if (!result.isDone()) {
+                detail = (detail != null ? detail + " " : "") + result.getStatus();
+            }
+            ActionLog.log(result.isDone() ? Level.INFO : Level.WARNING, getActionName(field.getAction()),
+                    getClass(), field.getLocator(), detail);
+        }
+        return results;
     }
 
     /**
@@ -230,7 +516,26 @@ public class BaseWebPage {
      * @param identifier String -> element xPath
      */
     protected void waitForVisibilityOfElementByXpath(String identifier){
-        mWait.until(ExpectedConditions.visibilityOfElementLocated(By.xpath(identifier)));
+        waitForVisibilityOfElement(Locator.xpath(identifier));
+    }
+
+    /**
+     * Waits until element be visible
+     *
+     * @param locator Locator -> Element locator
+     */
+    protected void waitForVisibilityOfElement(Locator locator){
+        mWait.until(locator, WaitEngine.Condition.VISIBLE);
+    }
+
+    /**
+     * Waits until element be visible
+     *
+     * @param locator Locator -> Element locator
+     * @param timeout Duration -> max time to wait
+     */
+    protected void waitForVisibilityOfElement(Locator locator, Duration timeout){
+        mWait.until(locator, WaitEngine.Condition.VISIBLE, timeout);
     }
 
     /**
@@ -239,7 +544,48 @@ public class BaseWebPage {
      * @param identifier String -> element xPath
      */
     protected void waitForInvisibilityOfElementByXpath(String identifier){
-        mWait.until(ExpectedConditions.invisibilityOfElementLocated(By.xpath(identifier)));
+        waitForInvisibilityOfElement(Locator.xpath(identifier));
+    }
+
+    /**
+     * Waits until element be invisible
+     *
+     * @param locator Locator -> Element locator
+     */
+    protected void waitForInvisibilityOfElement(Locator locator){
+        mWait.until(locator, WaitEngine.Condition.INVISIBLE);
+    }
+
+    /**
+     * Waits until element be invisible
+     *
+     * @param locator Locator -> Element locator
+     * @param timeout Duration -> max time to wait
+     */
+    protected void waitForInvisibilityOfElement(Locator locator, Duration timeout){
+        mWait.until(locator, WaitEngine.Condition.INVISIBLE, timeout);
+    }
+
+    /**
+     * Waits until element be present in DOM
+     *
+     * @param locator Locator -> Element locator
+     * @param timeout Duration -> max time to wait
+     * @return WebElement
+     */
+    protected WebElement waitForPresenceOfElement(Locator locator, Duration timeout){
+        return mWait.until(locator, WaitEngine.Condition.PRESENT, timeout);
+    }
+
+    /**
+     * Waits until element be visible and enabled
+     *
+     * @param locator Locator -> Element locator
+     * @param timeout Duration -> max time to wait
+     * @return WebElement
+     */
+    protected WebElement waitForClickabilityOfElement(Locator locator, Duration timeout){
+        return mWait.until(locator, WaitEngine.Condition.CLICKABLE, timeout);
     }
 
     /**
@@ -249,46 +595,421 @@ public class BaseWebPage {
      * @param by int -> identifier:
      *           1 - xPath,
      *           2 - Id,
-     *           3 - Class name
+     *           3 - Class name,
+     *           4 - CSS selector,
+     *           5 - Name,
+     *           6 - Tag name,
+     *           7 - Link text,
+     *           8 - Partial link text
      * @param identifier String -> Element unique identifier
      * @return WebElement
      */
     protected WebElement getElement(int by, String identifier){
-        return findElement(by, identifier);
+        return findElement(Locator.of(by, identifier));
     }
 
     /**
      * Finds and returns web element on the page
+     * Can be used from child classes
      *
-     * @param by int -> identifier:
-     *           1 - xPath,
-     *           2 - Id,
-     *           3 - Class name
-     * @param identifier String -> Element unique identifier
+     * @param locator Locator -> Element locator
      * @return WebElement
      */
-    private WebElement findElement(int by, String identifier){
-        switch (by){
-            case XPATH:
-                try {
-                    return mWait.until(ExpectedConditions.elementToBeClickable(By.xpath(identifier))).findElement(By.xpath(identifier));
-                } catch (NoSuchElementException e){
-                    logger.log(Level.WARNING, "Element not found by xPath: " + identifier);
-                }
-            case ID:
-                try {
-                    return mWait.until(ExpectedConditions.elementToBeClickable(By.xpath(identifier))).findElement(By.xpath(identifier));
-                } catch (NoSuchElementException e){
-                    logger.log(Level.WARNING, "Element not found by id: " + identifier);
+    protected WebElement getElement(Locator locator){
+        return findElement(locator);
+    }
+
+    /**
+     * Drops every cached element of the page
+     * Should be called after navigation when cached elements are known to be gone
+     */
+    protected void clearElementCache(){
+        mElements.clear();
+        invalidateSnapshot();
+    }
+
+    /**
+     * Returns snapshot of the page DOM for read-only assertions
+     * DOM is fetched with one call on first use, then texts, attributes and presence are answered locally
+     * Snapshot is reused until 'invalidateSnapshot()', 'clearElementCache()' or any page action
+     * (click, clear, enter text, select) is called
+     *
+     * @return DomSnapshot
+     */
+    protected DomSnapshot snapshot(){
+        DomSnapshot snapshot = mSnapshot;
+        if (snapshot == null) {
+            CommandMetrics.setTarget(getClass(), null);
+            snapshot = DomSnapshot.capture(mDriver, supportsScripts());
+            mSnapshot = snapshot;
+        }
+        return snapshot;
+    }
+
+    /**
+     * Collects Navigation, Paint and Resource Timing of the current document and checks it against
+     * budgets of the page object, see 'PerformanceBudget'
+     * Samples are kept per matrix cell or browser profile, so browsers are never compared with each other
+     * Should be called once the page finished loading, e.g. after waiting for its main element
+     * Violations are logged, with 'budget/mode' set to 'fail' they fail the test
+     *
+     * @return PageTiming -> timings of the document
+     */
+    protected PageTiming measureTiming(){
+        CommandMetrics.setTarget(getClass(), null);
+        PageTiming timing = PageTiming.capture(mDriver, supportsScripts());
+        ActionLog.log(Level.FINE, "timing", getClass(), timing.getUrl(), timing.getMetrics());
+        PerformanceBudget budget = PerformanceBudget.current();
+        List<String> violations = budget.check(getClass().getSimpleName(), getVariant(), timing.getMetrics());
+        if (violations.isEmpty()) return timing;
+        ActionLog.log(Level.WARNING, "over budget", getClass(), timing.getUrl(), violations);
+        logger.log(Level.WARNING, "Page is over performance budget: {0}", violations);
+        if (budget.isFailing()) {
+            throw new AssertionError("Page is over performance budget: " + String.join("; ", violations));
+        }
+        return timing;
+    }
+
+    /**
+     * Compares screenshot of the viewport with baseline, see 'VisualDiff'
+     * Baseline is kept per browser and page object as '<browser>/<Page>.<name>',
+     * under 'MatrixRunner' per cell as '<browser>/<cell>/<Page>.<name>', as cells differ in window size
+     * Missing baseline fails the test like a mismatch, record baselines with 'visual/update', see 'VisualDiff'
+     * Mismatch is logged, unless 'visual/mode' is 'warn' it fails the test
+     *
+     * @param name String -> name of the screen state, e.g. 'empty-form'
+     * @return VisualDiff.Result -> result of comparison, 'SKIPPED' if driver can't take screenshots
+     */
+    protected VisualDiff.Result compareScreenshot(String name){
+        if (!(mDriver instanceof TakesScreenshot)) return skipScreenshot(name);
+        CommandMetrics.setTarget(getClass(), null);
+        return compareScreenshot(name, null, ((TakesScreenshot) mDriver).getScreenshotAs(OutputType.BYTES));
+    }
+
+    /**
+     * Compares screenshot of the element with baseline, see 'VisualDiff'
+     *
+     * @param name String -> name of the element state, e.g. 'header'
+     * @param locator Locator -> Element locator
+     * @return VisualDiff.Result -> result of comparison, 'SKIPPED' if element can't be captured
+     * @throws NoSuchElementException in case if element is not found
+     */
+    protected VisualDiff.Result compareScreenshot(String name, Locator locator){
+        byte[] png;
+        try {
+            png = withElement(locator, element -> element.getScreenshotAs(OutputType.BYTES));
+        } catch (UnsupportedOperationException e){
+            return skipScreenshot(name);
+        }
+        if (png == null) throw new NoSuchElementException("Element not found by " + locator);
+        return compareScreenshot(name, locator, png);
+    }
+
+    /**
+     * Compares decoded screenshot and reports mismatch
+     *
+     * @param name String -> name of the state
+     * @param locator Locator -> captured element, null for viewport
+     * @param png byte[] -> screenshot
+     * @return VisualDiff.Result
+     */
+    private VisualDiff.Result compareScreenshot(String name, Locator locator, byte[] png){
+        VisualDiff diff = VisualDiff.current();
+        String cell = SessionRegistry.getCell(mDriver);
+        String baseline = getBrowserName() + "/" + (cell.isEmpty() ? "" : cell + "/") + getClass().getSimpleName() + "." + name;
+        VisualDiff.Result result = diff.compare(baseline, png);
+        ActionLog.log(Level.INFO, "visual " + result.getStatus().name().toLowerCase(), getClass(), locator, name);
+        if (result.getStatus() == VisualDiff.Status.MISSING) {
+            logger.log(Level.WARNING, "Screenshot has no baseline, run with 'visual/update' to record it: {0}", result);
+            if (diff.isFailing()) {
+                throw new AssertionError("Screenshot has no baseline " + result.getBaseline().getPath()
+                        + ", run with 'visual/update' to record it");
+            }
+            return result;
+        }
+        if (result.getStatus() != VisualDiff.Status.DIFFERENT) return result;
+        logger.log(Level.WARNING, "Screenshot differs from baseline: {0}", result);
+        if (diff.isFailing()) {
+            throw new AssertionError("Screenshot differs from baseline: " + result);
+        }
+        return result;
+    }
+
+    /**
+     * Returns skipped result of the screenshot driver can't take
+     *
+     * @param name String -> name of the state
+     * @return VisualDiff.Result
+     */
+    private VisualDiff.Result skipScreenshot(String name){
+        logger.log(Level.WARNING, "Screenshot {0} is skipped, driver can't take screenshots", name);
+        return VisualDiff.Result.skipped(name);
+    }
+
+    /**
+     * Returns matrix cell of the session, its profile outside matrix or browser name if driver was not started by 'Driver'
+     * Used to keep timings of different browsers apart
+     *
+     * @return String
+     */
+    private String getVariant(){
+        String cell = SessionRegistry.getCell(mDriver);
+        if (!cell.isEmpty()) return cell;
+        String profile = SessionRegistry.getProfile(mDriver);
+        return profile.isEmpty() ? getBrowserName() : profile;
+    }
+
+    /**
+     * Returns browser name of the driver, used to keep visual baselines apart
+     *
+     * @return String
+     */
+    private String getBrowserName(){
+        if (!(mDriver instanceof HasCapabilities)) return "default";
+        String browser = ((HasCapabilities) mDriver).getCapabilities().getBrowserName();
+        return browser == null || browser.isEmpty() ? "default" : browser;
+    }
+
+    /**
+     * Drops DOM snapshot of the page, next 'snapshot()' call fetches DOM again
+     * Should be called after navigation or page mutation caused outside of the page object
+     */
+    protected void invalidateSnapshot(){
+        mSnapshot = null;
+    }
+
+    /**
+     * Reads rows of the table starting from provided index
+     *
+     * @param locator Locator -> Table locator
+     * @param offset int -> index of the first row
+     * @param limit int -> max number of rows, -1 for all
+     * @return List -> rows of cell texts
+     */
+    private List<List<String>> readTableRows(Locator locator, int offset, int limit){
+        List<List<String>> rows = new ArrayList<>();
+        if (!supportsScripts()) {
+            WebElement table = findElement(locator);
+            if (table == null) return rows;
+            List<WebElement> tableRows = table.findElements(By.xpath(".//tr"));
+            int end = limit < 0 ? tableRows.size() : Math.min(tableRows.size(), offset + limit);
+            for (int i = offset; i < end; i++) {
+                List<String> cells = new ArrayList<>();
+                for (WebElement cell : tableRows.get(i).findElements(By.xpath("./th|./td"))) {
+                    cells.add(cell.getText());
                 }
-            case CLASS_NAME:
-                try {
-                    return mWait.until(ExpectedConditions.elementToBeClickable(By.xpath(identifier))).findElement(By.xpath(identifier));
-                } catch (NoSuchElementException e){
-                    logger.log(Level.WARNING, "Element not found by class name: " + identifier);
+                rows.add(cells);
+            }
+            return rows;
+        }
+        for (Object row : (List<?>) executeScript(Scripts.TABLE_CELLS, locator, offset, limit)) {
+            List<String> cells = new ArrayList<>();
+            for (Object cell : (List<?>) row) {
+                cells.add(String.valueOf(cell));
+            }
+            rows.add(cells);
+        }
+        return rows;
+    }
+
+    /**
+     * Returns 'true' in case if driver can execute JavaScript
+     * Drivers reporting 'javascriptEnabled: false' capability (e.g. HtmlUnit with JavaScript off) can't
+     *
+     * @return boolean
+     */
+    private boolean supportsScripts(){
+        return supportsScripts(mDriver);
+    }
+
+    /**
+     * Returns 'true' in case if driver can execute JavaScript
+     *
+     * @param driver WebDriver
+     * @return boolean
+     */
+    static boolean supportsScripts(WebDriver driver){
+        if (!(driver instanceof JavascriptExecutor)) return false;
+        if (!(driver instanceof HasCapabilities)) return true;
+        return !Boolean.FALSE.equals(((HasCapabilities) driver).getCapabilities().getCapability("javascriptEnabled"));
+    }
+
+    /**
+     * Executes locator based script
+     *
+     * @param script String -> one of 'Scripts' snippets
+     * @param locator Locator -> passed as 'arguments[0]' and 'arguments[1]'
+     * @param arguments Object -> passed as 'arguments[2]' and further
+     * @return Object -> script result, empty list if script returned nothing
+     */
+    private Object executeScript(String script, Locator locator, Object... arguments){
+        CommandMetrics.setTarget(getClass(), locator);
+        Object[] all = new Object[arguments.length + 2];
+        all[0] = locator.getStrategy().name();
+        all[1] = locator.getValue();
+        System.arraycopy(arguments, 0, all, 2, arguments.length);
+        Object result = ((JavascriptExecutor) mDriver).executeScript(script, all);
+        return (result != null) ? result : Collections.emptyList();
+    }
+
+    /**
+     * Turns implicit wait of the driver off
+     *
+     * @return Duration -> previous implicit wait, null if it was already off or can't be read
+     */
+    private Duration disableImplicitWait(){
+        try {
+            Duration implicitWait = mDriver.manage().timeouts().getImplicitWaitTimeout();
+            if (implicitWait == null || implicitWait.isZero()) return null;
+            mDriver.manage().timeouts().implicitlyWait(Duration.ZERO);
+            return implicitWait;
+        } catch (UnsupportedOperationException | WebDriverException e){
+            return null;
+        }
+    }
+
+    /**
+     * Restores implicit wait turned off with 'disableImplicitWait()'
+     *
+     * @param implicitWait Duration -> previous implicit wait, nothing is done if null
+     */
+    private void restoreImplicitWait(Duration implicitWait){
+        if (implicitWait == null) return;
+        try {
+            mDriver.manage().timeouts().implicitlyWait(implicitWait);
+        } catch (WebDriverException e){
+            logger.log(Level.WARNING, "There was an issue restoring implicit wait. Please refer to the following error: " + e);
+        }
+    }
+
+    /**
+     * Runs field operations with 'Scripts.FILL'
+     *
+     * @param fields List -> scripted field operations
+     * @return List -> result of every field
+     */
+    private List<FormFill.Result> fillWithScript(List<FormFill.Field> fields){
+        List<Map<String, Object>> arguments = new ArrayList<>(fields.size());
+        for (FormFill.Field field : fields) {
+            Map<String, Object> argument = new LinkedHashMap<>();
+            argument.put("strategy", field.getLocator().getStrategy().name());
+            argument.put("value", field.getLocator().getValue());
+            argument.put("action", field.getAction().name());
+            if (field.getText() != null) argument.put("text", field.getText());
+            argument.put("checked", field.isChecked());
+            arguments.add(argument);
+        }
+        List<FormFill.Result> results = new ArrayList<>(fields.size());
+        CommandMetrics.setTarget(getClass(), null);
+        try {
+            List<?> outcomes = (List<?>) ((JavascriptExecutor) mDriver).executeScript(Scripts.FILL, arguments);
+            for (int i = 0; i < fields.size(); i++) {
+                List<?> outcome = (List<?>) outcomes.get(i);
+                results.add(new FormFill.Result(fields.get(i), FormFill.Status.valueOf(String.valueOf(outcome.get(0))),
+                        false, outcome.get(1) != null ? String.valueOf(outcome.get(1)) : null));
+            }
+        } catch (WebDriverException e){
+            for (FormFill.Field field : fields) {
+                results.add(new FormFill.Result(field, FormFill.Status.FAILED, false, e.getMessage()));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Runs field operation with native WebDriver calls
+     *
+     * @param field FormFill.Field -> field operation
+     * @return FormFill.Result
+     */
+    private FormFill.Result fillNatively(FormFill.Field field){
+        try {
+            Boolean done = withElement(field.getLocator(), element -> {
+                switch (field.getAction()) {
+                    case CLEAR:
+                        element.clear();
+                        break;
+                    case TYPE:
+                    case KEYS:
+                        element.sendKeys(field.getText());
+                        break;
+                    case SELECT:
+                        new Select(element).selectByVisibleText(field.getText());
+                        break;
+                    case CHECK:
+                        if (element.isSelected() != field.isChecked()) element.click();
+                        break;
                 }
+                return Boolean.TRUE;
+            });
+            return new FormFill.Result(field, done != null ? FormFill.Status.DONE : FormFill.Status.NOT_FOUND, true, null);
+        } catch (NoSuchElementException e){
+            return new FormFill.Result(field, field.getAction() == FormFill.Action.SELECT
+                    ? FormFill.Status.NO_OPTION : FormFill.Status.NOT_FOUND, true, e.getMessage());
+        } catch (WebDriverException e){
+            return new FormFill.Result(field, FormFill.Status.FAILED, true, e.getMessage());
+        }
+    }
+
+    /**
+     * Returns action log name of field operation
+     *
+     * @param action FormFill.Action
+     * @return String
+     */
+    private static String getActionName(FormFill.Action action){
+        switch (action) {
+            case CLEAR:
+                return "clear";
+            case SELECT:
+                return "select";
+            case CHECK:
+                return "check";
             default:
-                return null;
+                return "enter text";
+        }
+    }
+
+    /**
+     * Runs action against cached element
+     * In case if cached element went stale it is located again and action is retried once
+     *
+     * @param locator Locator -> Element locator
+     * @param action Function -> action to run against the element
+     * @return T -> action result or null if element can't be located
+     */
+    private <T> T withElement(Locator locator, Function<WebElement, T> action){
+        CommandMetrics.setTarget(getClass(), locator);
+        WebElement element = findElement(locator);
+        if (element == null) return null;
+        try {
+            return action.apply(element);
+        } catch (StaleElementReferenceException e){
+            mElements.remove(locator, element);
+            element = findElement(locator);
+            return (element != null) ? action.apply(element) : null;
+        }
+    }
+
+    /**
+     * Finds and returns web element on the page
+     * Element is cached per page, so repeated interactions skip DOM lookup
+     *
+     * @param locator Locator -> Element locator
+     * @return WebElement
+     */
+    private WebElement findElement(Locator locator){
+        if (locator == null) return null;
+        CommandMetrics.setTarget(getClass(), locator);
+        WebElement element = mElements.get(locator);
+        if (element != null) return element;
+        try {
+            element = mWait.until(locator, WaitEngine.Condition.CLICKABLE);
+            mElements.put(locator, element);
+            return element;
+        } catch (NoSuchElementException e){
+            logger.log(Level.WARNING, "Element not found by " + locator);
+            return null;
         }
     }
 }
@@ -0,0 +1,270 @@
+package page;
+
+/**
+ * Translates CSS selectors into XPath for 'DomSnapshot'
+ * Supports type, universal, id, class and attribute selectors (=, ~=, |=, ^=, $=, *=),
+ * descendant, child and sibling combinators, selector groups and
+ * ':first-child', ':last-child' and ':nth-child(n)' pseudo-classes
+ */
+final class CssXPath {
+
+    private final String mCss;
+    private int mPosition;
+
+    private CssXPath(String css){
+        mCss = css;
+    }
+
+    /**
+     * Translates CSS selector into XPath expression evaluated against document
+     *
+     * @param css String -> CSS selector
+     * @return String -> XPath expression
+     * @throws IllegalArgumentException in case if selector is not supported
+     */
+    static String translate(String css){
+        return new CssXPath(css.trim()).group();
+    }
+
+    /**
+     * Translates comma separated selectors into XPath union
+     *
+     * @return String
+     */
+    private String group(){
+        StringBuilder xpath = new StringBuilder(complex());
+        while (peek() == ',') {
+            mPosition++;
+            skipSpaces();
+            xpath.append(" | ").append(complex());
+        }
+        if (mPosition < mCss.length()) throw unsupported();
+        return xpath.toString();
+    }
+
+    /**
+     * Translates compound selectors joined with combinators
+     *
+     * @return String
+     */
+    private String complex(){
+        StringBuilder xpath = new StringBuilder("//").append(compound());
+        while (true) {
+            boolean spaced = skipSpaces();
+            if (mPosition >= mCss.length() || peek() == ',') break;
+            char combinator = peek();
+            if (combinator == '>' || combinator == '+' || combinator == '~') {
+                mPosition++;
+                skipSpaces();
+            } else if (spaced) {
+                combinator = ' ';
+            } else {
+                throw unsupported();
+            }
+            switch (combinator) {
+                case '>':
+                    xpath.append('/');
+                    break;
+                case '+':
+                    xpath.append("/following-sibling::*[1]/self::");
+                    break;
+                case '~':
+                    xpath.append("/following-sibling::");
+                    break;
+                default:
+                    xpath.append("//");
+            }
+            xpath.append(compound());
+        }
+        return xpath.toString();
+    }
+
+    /**
+     * Translates element name followed by id, class, attribute and pseudo-class selectors
+     *
+     * @return String
+     */
+    private String compound(){
+        StringBuilder xpath = new StringBuilder();
+        int start = mPosition;
+        if (peek() == '*') {
+            mPosition++;
+            xpath.append('*');
+        } else if (isNameChar(peek())) {
+            xpath.append(name().toLowerCase());
+        } else {
+            xpath.append('*');
+        }
+        while (mPosition < mCss.length()) {
+            char c = peek();
+            if (c == '#') {
+                mPosition++;
+                xpath.append("[@id=").append(literal(name())).append(']');
+            } else if (c == '.') {
+                mPosition++;
+                xpath.append("[contains(concat(' ', normalize-space(@class), ' '), ")
+                        .append(literal(" " + name() + " ")).append(")]");
+            } else if (c == '[') {
+                mPosition++;
+                xpath.append(attribute());
+            } else if (c == ':') {
+                mPosition++;
+                xpath.append(pseudoClass());
+            } else {
+                break;
+            }
+        }
+        if (start == mPosition) throw unsupported();
+        return xpath.toString();
+    }
+
+    /**
+     * Translates '[attr]' and '[attr op value]' selector, opening bracket is already consumed
+     *
+     * @return String
+     */
+    private String attribute(){
+        skipSpaces();
+        String attribute = "@" + name();
+        skipSpaces();
+        if (peek() == ']') {
+            mPosition++;
+            return "[" + attribute + "]";
+        }
+        String operator = peek() == '=' ? "=" : mCss.substring(mPosition, Math.min(mPosition + 2, mCss.length()));
+        mPosition += operator.length();
+        skipSpaces();
+        String value = literal(value());
+        skipSpaces();
+        if (peek() != ']') throw unsupported();
+        mPosition++;
+        switch (operator) {
+            case "=":
+                return "[" + attribute + "=" + value + "]";
+            case "~=":
+                return "[contains(concat(' ', normalize-space(" + attribute + "), ' '), concat(' ', " + value + ", ' '))]";
+            case "|=":
+                return "[" + attribute + "=" + value + " or starts-with(" + attribute + ", concat(" + value + ", '-'))]";
+            case "^=":
+                return "[starts-with(" + attribute + ", " + value + ")]";
+            case "$=":
+                return "[substring(" + attribute + ", string-length(" + attribute + ") - string-length(" + value
+                        + ") + 1) = " + value + "]";
+            case "*=":
+                return "[contains(" + attribute + ", " + value + ")]";
+            default:
+                throw unsupported();
+        }
+    }
+
+    /**
+     * Translates pseudo-class, colon is already consumed
+     *
+     * @return String
+     */
+    private String pseudoClass(){
+        String name = name();
+        switch (name) {
+            case "first-child":
+                return "[not(preceding-sibling::*)]";
+            case "last-child":
+                return "[not(following-sibling::*)]";
+            case "nth-child":
+                if (peek() != '(') throw unsupported();
+                int end = mCss.indexOf(')', mPosition);
+                if (end < 0) throw unsupported();
+                String index = mCss.substring(mPosition + 1, end).trim();
+                mPosition = end + 1;
+                try {
+                    return "[count(preceding-sibling::*) = " + (Integer.parseInt(index) - 1) + "]";
+                } catch (NumberFormatException e){
+                    throw unsupported();
+                }
+            default:
+                throw unsupported();
+        }
+    }
+
+    /**
+     * Reads quoted or bare attribute value
+     *
+     * @return String
+     */
+    private String value(){
+        char quote = peek();
+        if (quote != '"' && quote != '\'') return name();
+        int end = mCss.indexOf(quote, mPosition + 1);
+        if (end < 0) throw unsupported();
+        String value = mCss.substring(mPosition + 1, end);
+        mPosition = end + 1;
+        return value;
+    }
+
+    /**
+     * Reads identifier
+     *
+     * @return String
+     */
+    private String name(){
+        int start = mPosition;
+        while (mPosition < mCss.length() && isNameChar(mCss.charAt(mPosition))) {
+            mPosition++;
+        }
+        if (start == mPosition) throw unsupported();
+        return mCss.substring(start, mPosition);
+    }
+
+    /**
+     * Skips whitespace
+     *
+     * @return boolean -> 'true' in case if anything was skipped
+     */
+    private boolean skipSpaces(){
+        int start = mPosition;
+        while (mPosition < mCss.length() && Character.isWhitespace(mCss.charAt(mPosition))) {
+            mPosition++;
+        }
+        return mPosition > start || mPosition >= mCss.length();
+    }
+
+    /**
+     * Returns current character
+     *
+     * @return char -> current character or 0 at the end of selector
+     */
+    private char peek(){
+        return mPosition < mCss.length() ? mCss.charAt(mPosition) : 0;
+    }
+
+    /**
+     * Returns 'true' in case if character can be part of identifier
+     *
+     * @param c char
+     * @return boolean
+     */
+    private static boolean isNameChar(char c){
+        return Character.isLetterOrDigit(c) || c == '-' || c == '_';
+    }
+
+    /**
+     * Quotes string as XPath literal
+     *
+     * @param value String
+     * @return String
+     */
+    static String literal(String value){
+        if (value.indexOf('\'') < 0) return "'" + value + "'";
+        if (value.indexOf('"') < 0) return "\"" + value + "\"";
+        return "concat('" + value.replace("'", "', \"'\", '") + "')";
+    }
+
+    /**
+     * Builds exception for selector which can't be translated
+     *
+     * @return IllegalArgumentException
+     */
+    private IllegalArgumentException unsupported(){
+        return new IllegalArgumentException("Unsupported CSS selector for DOM snapshot: '" + mCss
+                + "' at position " + mPosition);
+    }
+}
@@ -0,0 +1,335 @@
+package page;
+
+import org.openqa.selenium.InvalidSelectorException;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-only copy of page DOM taken with one WebDriver call
+ * Answers locator, text and attribute queries inside the JVM, results are indexed per locator
+ * NOTE: texts are whitespace normalized 'textContent', hidden elements included, and attributes are
+ * markup attributes, so e.g. typed input value is not visible in the snapshot
+ * Snapshot is not updated with the page, check 'isStale()' or take new one after navigation or mutation
+ * Not thread safe, use one snapshot per thread
+ */
+public final class DomSnapshot {
+
+    private static final AtomicLong TOKENS = new AtomicLong();
+
+    private final WebDriver mDriver;
+    private final String mToken;
+    private final String mUrl;
+    private final Document mDocument;
+    private final XPath mXPath = XPathFactory.newInstance().newXPath();
+    private final Map<String, Element> mIds = new HashMap<>();
+    private final Map<Locator, List<Element>> mResults = new HashMap<>();
+
+    private DomSnapshot(WebDriver driver, String token, String url, Document document){
+        mDriver = driver;
+        mToken = token;
+        mUrl = url;
+        mDocument = document;
+        indexIds();
+    }
+
+    /**
+     * Takes snapshot of the current page
+     * Serializes DOM in the browser in case if scripts are supported, otherwise parses page source
+     *
+     * @param driver WebDriver -> driver of the page
+     * @param scripts boolean -> 'true' in case if driver can execute JavaScript
+     * @return DomSnapshot
+     */
+    static DomSnapshot capture(WebDriver driver, boolean scripts){
+        if (scripts) {
+            String token = TOKENS.incrementAndGet() + "-" + System.nanoTime();
+            List<?> result = (List<?>) ((JavascriptExecutor) driver).executeScript(Scripts.SNAPSHOT, token);
+            String url = String.valueOf(result.get(0));
+            return new DomSnapshot(driver, token, url, parse(String.valueOf(result.get(1)), url));
+        }
+        String url = driver.getCurrentUrl();
+        return new DomSnapshot(driver, null, url, parse(driver.getPageSource(), url));
+    }
+
+    /**
+     * Returns 'true' in case if page was mutated or navigated since snapshot was taken
+     * Costs one WebDriver call, without JavaScript only navigation is detected
+     *
+     * @return boolean
+     */
+    public boolean isStale(){
+        try {
+            if (mToken == null) return !mUrl.equals(mDriver.getCurrentUrl());
+            return !Boolean.FALSE.equals(((JavascriptExecutor) mDriver).executeScript(Scripts.SNAPSHOT_STALE, mToken));
+        } catch (WebDriverException e){
+            return true;
+        }
+    }
+
+    /**
+     * Getter for URL of the page at the moment of snapshot
+     *
+     * @return String
+     */
+    public String getUrl(){
+        return mUrl;
+    }
+
+    /**
+     * Getter for parsed document
+     *
+     * @return Document
+     */
+    public Document getDocument(){
+        return mDocument;
+    }
+
+    /**
+     * Returns every element matching locator in document order
+     *
+     * @param locator Locator -> Element locator
+     * @return List -> matched elements, empty list if none
+     * @throws InvalidSelectorException in case if locator can't be evaluated
+     */
+    public List<Element> findAll(Locator locator){
+        List<Element> elements = mResults.get(locator);
+        if (elements == null) {
+            elements = evaluate(locator);
+            mResults.put(locator, elements);
+        }
+        return elements;
+    }
+
+    /**
+     * Returns first element matching locator
+     *
+     * @param locator Locator -> Element locator
+     * @return Element -> matched element or null if none
+     */
+    public Element find(Locator locator){
+        List<Element> elements = findAll(locator);
+        return elements.isEmpty() ? null : elements.get(0);
+    }
+
+    /**
+     * Returns 'true' in case if at least one element matches locator
+     *
+     * @param locator Locator -> Element locator
+     * @return boolean
+     */
+    public boolean isPresent(Locator locator){
+        return !findAll(locator).isEmpty();
+    }
+
+    /**
+     * Returns number of elements matching locator
+     *
+     * @param locator Locator -> Element locator
+     * @return int
+     */
+    public int count(Locator locator){
+        return findAll(locator).size();
+    }
+
+    /**
+     * Returns text of the first element matching locator
+     *
+     * @param locator Locator -> Element locator
+     * @return String -> text or null if element is missing
+     */
+    public String getText(Locator locator){
+        Element element = find(locator);
+        return element != null ? text(element) : null;
+    }
+
+    /**
+     * Returns text of every element matching locator
+     *
+     * @param locator Locator -> Element locator
+     * @return List -> texts in document order
+     */
+    public List<String> getTexts(Locator locator){
+        List<String> texts = new ArrayList<>();
+        for (Element element : findAll(locator)) {
+            texts.add(text(element));
+        }
+        return texts;
+    }
+
+    /**
+     * Returns attribute of the first element matching locator
+     *
+     * @param locator Locator -> Element locator
+     * @param attribute String -> attribute name
+     * @return String -> value or null if element or attribute is missing
+     */
+    public String getAttribute(Locator locator, String attribute){
+        Element element = find(locator);
+        return element != null && element.hasAttribute(attribute) ? element.getAttribute(attribute) : null;
+    }
+
+    /**
+     * Returns attribute of every element matching locator
+     *
+     * @param locator Locator -> Element locator
+     * @param attribute String -> attribute name
+     * @return List -> values in document order, null for elements without the attribute
+     */
+    public List<String> getAttributes(Locator locator, String attribute){
+        List<String> values = new ArrayList<>();
+        for (Element element : findAll(locator)) {
+            values.add(element.hasAttribute(attribute) ? element.getAttribute(attribute) : null);
+        }
+        return values;
+    }
+
+    /**
+     * Returns whitespace normalized text of the element, script and style contents excluded
+     *
+     * @param element Element
+     * @return String
+     */
+    public static String text(Element element){
+        StringBuilder text = new StringBuilder();
+        Deque<Node> nodes = new ArrayDeque<>();
+        nodes.push(element);
+        while (!nodes.isEmpty()) {
+            Node node = nodes.pop();
+            if (node.getNodeType() == Node.TEXT_NODE || node.getNodeType() == Node.CDATA_SECTION_NODE) {
+                text.append(node.getNodeValue());
+            } else if (node.getNodeType() == Node.ELEMENT_NODE && !isHidden(node.getNodeName())) {
+                NodeList children = node.getChildNodes();
+                for (int i = children.getLength() - 1; i >= 0; i--) {
+                    nodes.push(children.item(i));
+                }
+            }
+        }
+        return text.toString().replaceAll("[\\s\\u00a0]+", " ").trim();
+    }
+
+    /**
+     * Evaluates locator against the document
+     *
+     * @param locator Locator -> Element locator
+     * @return List -> matched elements
+     */
+    private List<Element> evaluate(Locator locator){
+        if (locator.getStrategy() == Locator.Strategy.ID) {
+            Element element = mIds.get(locator.getValue());
+            return element != null ? Collections.singletonList(element) : Collections.emptyList();
+        }
+        try {
+            NodeList nodes = (NodeList) mXPath.evaluate(toXPath(locator), mDocument, XPathConstants.NODESET);
+            List<Element> elements = new ArrayList<>(nodes.getLength());
+            for (int i = 0; i < nodes.getLength(); i++) {
+                if (nodes.item(i) instanceof Element) {
+                    elements.add((Element) nodes.item(i));
+                }
+            }
+            return Collections.unmodifiableList(elements);
+        } catch (XPathExpressionException | IllegalArgumentException e){
+            throw new InvalidSelectorException("Locator can't be evaluated against DOM snapshot: " + locator, e);
+        }
+    }
+
+    /**
+     * Translates locator into XPath expression
+     *
+     * @param locator Locator -> Element locator
+     * @return String
+     */
+    private static String toXPath(Locator locator){
+        String value = locator.getValue();
+        switch (locator.getStrategy()) {
+            case XPATH:
+                return value;
+            case CSS:
+                return CssXPath.translate(value);
+            case CLASS_NAME:
+                return "//*[contains(concat(' ', normalize-space(@class), ' '), " + CssXPath.literal(" " + value + " ") + ")]";
+            case NAME:
+                return "//*[@name=" + CssXPath.literal(value) + "]";
+            case TAG_NAME:
+                return "//" + value.toLowerCase();
+            case LINK_TEXT:
+                return "//a[normalize-space(.)=" + CssXPath.literal(value.trim()) + "]";
+            case PARTIAL_LINK_TEXT:
+                return "//a[contains(normalize-space(.), " + CssXPath.literal(value) + ")]";
+            default:
+                return "//*[@id=" + CssXPath.literal(value) + "]";
+        }
+    }
+
+    /**
+     * Indexes elements by 'id' attribute, first element wins as in the browser
+     */
+    private void indexIds(){
+        NodeList elements = mDocument.getElementsByTagName("*");
+        for (int i = 0; i < elements.getLength(); i++) {
+            Element element = (Element) elements.item(i);
+            String id = element.getAttribute("id");
+            if (!id.isEmpty()) {
+                mIds.putIfAbsent(id, element);
+            }
+        }
+    }
+
+    /**
+     * Returns 'true' for elements which content is never rendered as text
+     *
+     * @param name String -> element name
+     * @return boolean
+     */
+    private static boolean isHidden(String name){
+        return "script".equalsIgnoreCase(name) || "style".equalsIgnoreCase(name)
+                || "template".equalsIgnoreCase(name) || "noscript".equalsIgnoreCase(name);
+    }
+
+    /**
+     * Parses serialized document
+     * External DTDs are never loaded
+     *
+     * @param markup String -> serialized document
+     * @param url String -> page URL for error message
+     * @return Document
+     */
+    private static Document parse(String markup, String url){
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setNamespaceAware(false);
+            factory.setValidating(false);
+            factory.setExpandEntityReferences(false);
+            factory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+            DocumentBuilder builder = factory.newDocumentBuilder();
+            builder.setErrorHandler(null);
+            return builder.parse(new InputSource(new StringReader(markup)));
+        } catch (ParserConfigurationException | SAXException | IOException e){
+            throw new WebDriverException("Could not parse DOM snapshot of " + url, e);
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package page;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Batch of field operations executed by 'BaseWebPage.fill' in one script execution
+ * Scripted operations set values the way a user does from the page point of view:
+ * element is focused, value is set through the native setter, 'input' and 'change' events are fired and element is blurred
+ * Fields needing real key events (e.g. key handlers, masks, autocompletes) are added with 'typeKeys'
+ * and typed with native 'sendKeys' between scripted operations, so order of the batch is kept
+ */
+public final class FormFill {
+
+    public enum Action {
+        CLEAR, TYPE, KEYS, SELECT, CHECK
+    }
+
+    public enum Status {
+        DONE, NOT_FOUND, DISABLED, NO_OPTION, FAILED
+    }
+
+    private final List<Field> mFields = new ArrayList<>();
+    private boolean mNativeFallback;
+
+    public FormFill(){
+    }
+
+    /**
+     * Adds clearing of text field
+     *
+     * @param locator Locator -> Element locator
+     * @return FormFill
+     */
+    public FormFill clear(Locator locator){
+        return add(locator, Action.CLEAR, null, false);
+    }
+
+    /**
+     * Adds typing into text field, text is appended to current value as with 'sendKeys'
+     *
+     * @param locator Locator -> Element locator
+     * @param text String -> desired string
+     * @return FormFill
+     */
+    public FormFill type(Locator locator, String text){
+        return add(locator, Action.TYPE, text, false);
+    }
+
+    /**
+     * Adds typing into text field with native 'sendKeys', for fields which need real key events
+     *
+     * @param locator Locator -> Element locator
+     * @param text String -> desired string
+     * @return FormFill
+     */
+    public FormFill typeKeys(Locator locator, String text){
+        return add(locator, Action.KEYS, text, false);
+    }
+
+    /**
+     * Adds selecting drop-down option by visible text
+     *
+     * @param locator Locator -> Element locator
+     * @param text String -> desired option
+     * @return FormFill
+     */
+    public FormFill select(Locator locator, String text){
+        return add(locator, Action.SELECT, text, false);
+    }
+
+    /**
+     * Adds checking or unchecking of checkbox or radio button
+     * Element is clicked only in case if its state differs
+     *
+     * @param locator Locator -> Element locator
+     * @param checked boolean -> desired state
+     * @return FormFill
+     */
+    public FormFill check(Locator locator, boolean checked){
+        return add(locator, Action.CHECK, null, checked);
+    }
+
+    /**
+     * Retries fields the script could not find or fill with native WebDriver calls
+     * Native retry waits for element to become clickable, so it also covers fields rendered late
+     *
+     * @return FormFill
+     */
+    public FormFill withNativeFallback(){
+        mNativeFallback = true;
+        return this;
+    }
+
+    /**
+     * Getter for fields in execution order
+     *
+     * @return List
+     */
+    public List<Field> getFields(){
+        return Collections.unmodifiableList(mFields);
+    }
+
+    /**
+     * Returns 'true' in case if failed fields are retried natively
+     *
+     * @return boolean
+     */
+    public boolean isNativeFallback(){
+        return mNativeFallback;
+    }
+
+    /**
+     * Adds field operation
+     *
+     * @param locator Locator -> Element locator
+     * @param action Action -> operation
+     * @param text String -> text or option, null if not used
+     * @param checked boolean -> desired state of CHECK
+     * @return FormFill
+     */
+    private FormFill add(Locator locator, Action action, String text, boolean checked){
+        if (locator == null) throw new IllegalArgumentException("Locator must not be null");
+        mFields.add(new Field(locator, action, text, checked));
+        return this;
+    }
+
+    /**
+     * Single field operation
+     */
+    public static final class Field {
+
+        private final Locator mLocator;
+        private final Action mAction;
+        private final String mText;
+        private final boolean mChecked;
+
+        private Field(Locator locator, Action action, String text, boolean checked){
+            mLocator = locator;
+            mAction = action;
+            mText = text;
+            mChecked = checked;
+        }
+
+        /**
+         * Getter for element locator
+         *
+         * @return Locator
+         */
+        public Locator getLocator(){
+            return mLocator;
+        }
+
+        /**
+         * Getter for operation
+         *
+         * @return Action
+         */
+        public Action getAction(){
+            return mAction;
+        }
+
+        /**
+         * Getter for text or option
+         *
+         * @return String -> text or null if operation takes none
+         */
+        public String getText(){
+            return mText;
+        }
+
+        /**
+         * Getter for desired state of CHECK
+         *
+         * @return boolean
+         */
+        public boolean isChecked(){
+            return mChecked;
+        }
+
+        @Override
+        public String toString(){
+            return mAction + " " + mLocator;
+        }
+    }
+
+    /**
+     * Outcome of single field operation
+     */
+    public static final class Result {
+
+        private final Field mField;
+        private final Status mStatus;
+        private final boolean mNative;
+        private final String mMessage;
+
+        Result(Field field, Status status, boolean nativeCall, String message){
+            mField = field;
+            mStatus = status;
+            mNative = nativeCall;
+            mMessage = message;
+        }
+
+        /**
+         * Getter for field operation
+         *
+         * @return Field
+         */
+        public Field getField(){
+            return mField;
+        }
+
+        /**
+         * Getter for status
+         *
+         * @return Status
+         */
+        public Status getStatus(){
+            return mStatus;
+        }
+
+        /**
+         * Returns 'true' in case if field was filled
+         *
+         * @return boolean
+         */
+        public boolean isDone(){
+            return mStatus == Status.DONE;
+        }
+
+        /**
+         * Returns 'true' in case if field was filled with native WebDriver calls
+         *
+         * @return boolean
+         */
+        public boolean isNative(){
+            return mNative;
+        }
+
+        /**
+         * Getter for error message
+         *
+         * @return String -> message or null if none
+         */
+        public String getMessage(){
+            return mMessage;
+        }
+
+        @Override
+        public String toString(){
+            return mField + ": " + mStatus + (mNative ? " (native)" : "") + (mMessage != null ? " - " + mMessage : "");
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package page;
+
+import org.openqa.selenium.By;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Typed element locator
+ * Instances are interned and hold compiled 'By', so the same locator is never built twice
+ */
+public final class Locator {
+
+    public enum Strategy {
+        XPATH, ID, CLASS_NAME, CSS, NAME, TAG_NAME, LINK_TEXT, PARTIAL_LINK_TEXT
+    }
+
+    private static final int MAX_CACHED = 10000;
+    private static final Map<String, Locator> CACHE = new ConcurrentHashMap<>();
+
+    private final Strategy mStrategy;
+    private final String mValue;
+    private final By mBy;
+
+    private Locator(Strategy strategy, String value){
+        mStrategy = strategy;
+        mValue = value;
+        mBy = compile(strategy, value);
+    }
+
+    /**
+     * Returns cached locator for provided strategy and value
+     * Once cache holds 'MAX_CACHED' locators new ones are built without caching
+     *
+     * @param strategy Strategy -> locator strategy
+     * @param value String -> element unique identifier
+     * @return Locator
+     */
+    public static Locator of(Strategy strategy, String value){
+        if (strategy == null || value == null) {
+            throw new IllegalArgumentException("Locator strategy and value must not be null");
+        }
+        String key = strategy.name() + ':' + value;
+        Locator locator = CACHE.get(key);
+        if (locator != null) return locator;
+        if (CACHE.size() >= MAX_CACHED) return new Locator(strategy, value);
+        return CACHE.computeIfAbsent(key, k -> new Locator(strategy, value));
+    }
+
+    /**
+     * Returns cached locator for 'BaseWebPage' int identifier
+     *
+     * @param by int -> identifier, one of 'BaseWebPage' constants
+     * @param value String -> element unique identifier
+     * @return Locator -> locator or null if identifier is unknown
+     */
+    public static Locator of(int by, String value){
+        switch (by){
+            case BaseWebPage.XPATH:
+                return xpath(value);
+            case BaseWebPage.ID:
+                return id(value);
+            case BaseWebPage.CLASS_NAME:
+                return className(value);
+            case BaseWebPage.CSS:
+                return css(value);
+            case BaseWebPage.NAME:
+                return name(value);
+            case BaseWebPage.TAG_NAME:
+                return tagName(value);
+            case BaseWebPage.LINK_TEXT:
+                return linkText(value);
+            case BaseWebPage.PARTIAL_LINK_TEXT:
+                return partialLinkText(value);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Returns cached locator by xPath
+     *
+     * @param xPath String -> element xPath
+     * @return Locator
+     */
+    public static Locator xpath(String xPath){
+        return of(Strategy.XPATH, xPath);
+    }
+
+    /**
+     * Returns cached locator by id attribute
+     *
+     * @param id String -> element id attribute
+     * @return Locator
+     */
+    public static Locator id(String id){
+        return of(Strategy.ID, id);
+    }
+
+    /**
+     * Returns cached locator by class attribute
+     *
+     * @param className String -> element class attribute
+     * @return Locator
+     */
+    public static Locator className(String className){
+        return of(Strategy.CLASS_NAME, className);
+    }
+
+    /**
+     * Returns cached locator by CSS selector
+     *
+     * @param selector String -> element CSS selector
+     * @return Locator
+     */
+    public static Locator css(String selector){
+        return of(Strategy.CSS, selector);
+    }
+
+    /**
+     * Returns cached locator by name attribute
+     *
+     * @param name String -> element name attribute
+     * @return Locator
+     */
+    public static Locator name(String name){
+        return of(Strategy.NAME, name);
+    }
+
+    /**
+     * Returns cached locator by tag name
+     *
+     * @param tagName String -> element tag name
+     * @return Locator
+     */
+    public static Locator tagName(String tagName){
+        return of(Strategy.TAG_NAME, tagName);
+    }
+
+    /**
+     * Returns cached locator by exact link text
+     *
+     * @param linkText String -> element exact link text
+     * @return Locator
+     */
+    public static Locator linkText(String linkText){
+        return of(Strategy.LINK_TEXT, linkText);
+    }
+
+    /**
+     * Returns cached locator by part of link text
+     *
+     * @param linkText String -> element part of link text
+     * @return Locator
+     */
+    public static Locator partialLinkText(String linkText){
+        return of(Strategy.PARTIAL_LINK_TEXT, linkText);
+    }
+
+    /**
+     * Getter for locator strategy
+     *
+     * @return Strategy
+     */
+    public Strategy getStrategy(){
+        return mStrategy;
+    }
+
+    /**
+     * Getter for element unique identifier
+     *
+     * @return String
+     */
+    public String getValue(){
+        return mValue;
+    }
+
+    /**
+     * Getter for compiled 'By'
+     *
+     * @return By
+     */
+    public By toBy(){
+        return mBy;
+    }
+
+    @Override
+    public boolean equals(Object o){
+        if (this == o) return true;
+        if (!(o instanceof Locator)) return false;
+        Locator locator = (Locator) o;
+        return mStrategy == locator.mStrategy && mValue.equals(locator.mValue);
+    }
+
+    @Override
+    public int hashCode(){
+        return 31 * mStrategy.hashCode() + mValue.hashCode();
+    }
+
+    @Override
+    public String toString(){
+        return mStrategy.name().toLowerCase() + ": " + mValue;
+    }
+
+    /**
+     * Builds 'By' for provided strategy
+     *
+     * @param strategy Strategy
+     * @param value String
+     * @return By
+     */
+    private static By compile(Strategy strategy, String value){
+        switch (strategy){
+            case XPATH:
+                return By.xpath(value);
+            case ID:
+                return By.id(value);
+            case CLASS_NAME:
+                return By.className(value);
+            case CSS:
+                return By.cssSelector(value);
+            case NAME:
+                return By.name(value);
+            case TAG_NAME:
+                return By.tagName(value);
+            case LINK_TEXT:
+                return By.linkText(value);
+            case PARTIAL_LINK_TEXT:
+                return By.partialLinkText(value);
+            default:
+                throw new IllegalArgumentException("Unsupported locator strategy: " + strategy);
+        }
+    }
+}
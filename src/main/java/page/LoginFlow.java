@@ -0,0 +1,29 @@
+package page;
+
+import org.openqa.selenium.WebDriver;
+
+/**
+ * Login performed through the UI once and then reused by 'SessionStore' as captured 'SessionState'
+ */
+public interface LoginFlow {
+
+    /**
+     * Logs in through the UI, e.g. with a login page object
+     * Browser must stay on the application after login, state of its current origin is captured
+     *
+     * @param driver WebDriver -> browser to log in with
+     */
+    void login(WebDriver driver);
+
+    /**
+     * Checks that restored state is still accepted by the application, e.g. by looking for user menu
+     * Called right after state was restored, browser is on the origin of the state with the page reloaded
+     * Restored state is accepted by default
+     *
+     * @param driver WebDriver -> browser with restored state
+     * @return boolean -> 'false' in case if state is stale and login has to be performed again
+     */
+    default boolean isLoggedIn(WebDriver driver){
+        return true;
+    }
+}
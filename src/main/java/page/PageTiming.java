@@ -0,0 +1,99 @@
+package page;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Navigation, Paint and Resource Timing of the current document, taken with one script call
+ * Times are milliseconds since navigation start, sizes are kilobytes
+ * Metrics the browser doesn't report (e.g. paint timing of HtmlUnit) are absent
+ */
+public final class PageTiming {
+
+    public static final String TTFB = "ttfb";
+    public static final String DOM_INTERACTIVE = "domInteractive";
+    public static final String DOM_CONTENT_LOADED = "domContentLoaded";
+    public static final String LOAD = "load";
+    public static final String FIRST_PAINT = "firstPaint";
+    public static final String FIRST_CONTENTFUL_PAINT = "firstContentfulPaint";
+    public static final String DOCUMENT_KB = "documentKb";
+    public static final String RESOURCE_COUNT = "resourceCount";
+    public static final String RESOURCE_KB = "resourceKb";
+    public static final String SLOWEST_RESOURCE = "slowestResource";
+
+    private static final Logger logger = Logger.getLogger(PageTiming.class.getName());
+
+    private final String mUrl;
+    private final Map<String, Double> mMetrics;
+
+    private PageTiming(String url, Map<String, Double> metrics){
+        mUrl = url;
+        mMetrics = Collections.unmodifiableMap(metrics);
+    }
+
+    /**
+     * Reads timings of the document currently open in the driver
+     *
+     * @param driver WebDriver -> driver of the page
+     * @param scripted boolean -> 'false' in case if driver can't execute JavaScript, empty timing is returned
+     * @return PageTiming
+     */
+    static PageTiming capture(WebDriver driver, boolean scripted){
+        Map<String, Double> metrics = new LinkedHashMap<>();
+        String url = null;
+        try {
+            url = driver.getCurrentUrl();
+            Object result = scripted ? ((JavascriptExecutor) driver).executeScript(Scripts.TIMING) : null;
+            if (result instanceof Map) {
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) result).entrySet()) {
+                    if (entry.getValue() instanceof Number) {
+                        metrics.put(String.valueOf(entry.getKey()), ((Number) entry.getValue()).doubleValue());
+                    }
+                }
+            }
+        } catch (WebDriverException e){
+            logger.log(Level.WARNING, "There was an issue reading page timing. Please refer to the following error: " + e);
+        }
+        return new PageTiming(url, metrics);
+    }
+
+    /**
+     * Getter for URL of the measured document
+     *
+     * @return String -> URL or null if it couldn't be read
+     */
+    public String getUrl(){
+        return mUrl;
+    }
+
+    /**
+     * Getter for every reported metric
+     *
+     * @return Map -> unmodifiable map of metric values by name
+     */
+    public Map<String, Double> getMetrics(){
+        return mMetrics;
+    }
+
+    /**
+     * Returns value of the metric
+     *
+     * @param metric String -> metric name, e.g. 'PageTiming.LOAD'
+     * @return Double -> value or null if not reported
+     */
+    public Double get(String metric){
+        return mMetrics.get(metric);
+    }
+
+    @Override
+    public String toString(){
+        return "PageTiming{url=" + mUrl + ", " + mMetrics + "}";
+    }
+}
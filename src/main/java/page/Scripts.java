@@ -0,0 +1,290 @@
+package page;
+
+/**
+ * JavaScript snippets executed in the browser by 'BaseWebPage'
+ * Every snippet which takes locator expects strategy name as 'arguments[0]' and value as 'arguments[1]'
+ */
+final class Scripts {
+
+    /**
+     * Declares 'find(strategy, value)' which returns array of elements matching 'Locator'
+     * Link text strategies match trimmed 'innerText' of anchors
+     */
+    static final String FIND =
+            "var find = function(strategy, value) {"
+            + "  var list = function(nodes) { return Array.prototype.slice.call(nodes); };"
+            + "  var links = function(match) {"
+            + "    return list(document.getElementsByTagName('a')).filter(function(a) {"
+            + "      return match((a.innerText || a.textContent || '').trim());"
+            + "    });"
+            + "  };"
+            + "  switch (strategy) {"
+            + "    case 'XPATH':"
+            + "      var result = document.evaluate(value, document, null, XPathResult.ORDERED_NODE_SNAPSHOT_TYPE, null);"
+            + "      var nodes = [];"
+            + "      for (var i = 0; i < result.snapshotLength; i++) nodes.push(result.snapshotItem(i));"
+            + "      return nodes;"
+            + "    case 'ID': var element = document.getElementById(value); return element ? [element] : [];"
+            + "    case 'CLASS_NAME': return list(document.getElementsByClassName(value));"
+            + "    case 'CSS': return list(document.querySelectorAll(value));"
+            + "    case 'NAME': return list(document.getElementsByName(value));"
+            + "    case 'TAG_NAME': return list(document.getElementsByTagName(value));"
+            + "    case 'LINK_TEXT': return links(function(text) { return text === value; });"
+            + "    case 'PARTIAL_LINK_TEXT': return links(function(text) { return text.indexOf(value) >= 0; });"
+            + "  }"
+            + "  return [];"
+            + "};"
+            + "var text = function(element) { return (element.innerText || element.textContent || '').trim(); };";
+
+    /**
+     * Returns text of every element matching locator
+     */
+    static final String TEXTS = FIND
+            + "return find(arguments[0], arguments[1]).map(text);";
+
+    /**
+     * Returns map of requested attributes for every element matching locator
+     * 'arguments[2]' -> array of attribute names
+     * 'value', 'checked' and 'selected' are read from element properties as Selenium does
+     */
+    static final String ATTRIBUTES = FIND
+            + "var names = arguments[2];"
+            + "var properties = { value: true, checked: true, selected: true };"
+            + "return find(arguments[0], arguments[1]).map(function(element) {"
+            + "  var values = {};"
+            + "  names.forEach(function(name) {"
+            + "    var value = properties[name] ? element[name] : element.getAttribute(name);"
+            + "    values[name] = (value === undefined || value === null) ? null : String(value);"
+            + "  });"
+            + "  return values;"
+            + "});";
+
+    /**
+     * Returns text matrix of table rows
+     * 'arguments[2]' -> index of the first row, 'arguments[3]' -> max number of rows, -1 for all
+     */
+    static final String TABLE_CELLS = FIND
+            + "var table = find(arguments[0], arguments[1])[0];"
+            + "if (!table) return [];"
+            + "var rows = Array.prototype.slice.call(table.rows || table.getElementsByTagName('tr'));"
+            + "var end = arguments[3] < 0 ? rows.length : Math.min(rows.length, arguments[2] + arguments[3]);"
+            + "return rows.slice(arguments[2], end).map(function(row) {"
+            + "  return Array.prototype.slice.call(row.cells).map(text);"
+            + "});";
+
+    /**
+     * Returns presence flag for every locator
+     * 'arguments[0]' -> array of locators, every locator is a map of 'strategy' and 'value'
+     * Locator which fails to evaluate (e.g. malformed XPath) is reported as absent
+     */
+    static final String PRESENCE = FIND
+            + "return arguments[0].map(function(locator) {"
+            + "  try {"
+            + "    return find(locator.strategy, locator.value).length > 0;"
+            + "  } catch (e) {"
+            + "    return false;"
+            + "  }"
+            + "});";
+
+    /**
+     * Asynchronous script which resolves as soon as condition of 'WaitEngine' holds
+     * Watches DOM with MutationObserver, re-checks every 100 ms to catch style-only changes
+     * 'arguments[2]' -> condition name, 'arguments[3]' -> timeout in milliseconds
+     * Resolves with element ('true' for INVISIBLE) or 'false' on timeout
+     */
+    static final String AWAIT = FIND
+            + "var callback = arguments[arguments.length - 1];"
+            + "var strategy = arguments[0], value = arguments[1], condition = arguments[2];"
+            + "var visible = function(element) {"
+            + "  if (!document.documentElement.contains(element)) return false;"
+            + "  var style = window.getComputedStyle(element);"
+            + "  return style.visibility !== 'hidden' && style.display !== 'none'"
+            + "      && !!(element.offsetWidth || element.offsetHeight || element.getClientRects().length);"
+            + "};"
+            + "var check = function() {"
+            + "  var element = find(strategy, value)[0];"
+            + "  switch (condition) {"
+            + "    case 'PRESENT': return element || null;"
+            + "    case 'VISIBLE': return element && visible(element) ? element : null;"
+            + "    case 'CLICKABLE': return element && visible(element) && !element.disabled ? element : null;"
+            + "    case 'INVISIBLE': return !element || !visible(element) ? true : null;"
+            + "  }"
+            + "  return null;"
+            + "};"
+            + "var first = check();"
+            + "if (first) { callback(first); return; }"
+            + "var done = false, observer = null, poll = null, timer = null;"
+            + "var finish = function(result) {"
+            + "  if (done) return;"
+            + "  done = true;"
+            + "  if (observer) observer.disconnect();"
+            + "  clearInterval(poll);"
+            + "  clearTimeout(timer);"
+            + "  callback(result);"
+            + "};"
+            + "var recheck = function() { var result = check(); if (result) finish(result); };"
+            + "if (window.MutationObserver) {"
+            + "  observer = new MutationObserver(recheck);"
+            + "  observer.observe(document.documentElement,"
+            + "      { childList: true, subtree: true, attributes: true, characterData: true });"
+            + "}"
+            + "poll = setInterval(recheck, 100);"
+            + "timer = setTimeout(function() { finish(false); }, arguments[3]);";
+
+    /**
+     * Marks document with snapshot token passed as 'arguments[0]' and returns '[url, serialized document]'
+     * Observer installed once per document drops the token on any mutation, see 'SNAPSHOT_STALE'
+     * Element count is kept too, as not every browser reports every mutation (e.g. HtmlUnit)
+     */
+    static final String SNAPSHOT =
+            "var observer = window.__tinyUiChefObserver;"
+            + "if (!observer && window.MutationObserver) {"
+            + "  observer = new MutationObserver(function() { window.__tinyUiChefSnapshot = null; });"
+            + "  observer.observe(document.documentElement,"
+            + "      { childList: true, subtree: true, attributes: true, characterData: true });"
+            + "  window.__tinyUiChefObserver = observer;"
+            + "}"
+            + "if (observer) observer.takeRecords();"
+            + "window.__tinyUiChefSnapshot = arguments[0];"
+            + "window.__tinyUiChefSnapshotSize = document.getElementsByTagName('*').length;"
+            + "return [location.href, new XMLSerializer().serializeToString(document)];";
+
+    /**
+     * Returns 'true' in case if document was mutated or replaced since snapshot with token 'arguments[0]'
+     */
+    static final String SNAPSHOT_STALE =
+            "var observer = window.__tinyUiChefObserver;"
+            + "if (observer && observer.takeRecords().length) window.__tinyUiChefSnapshot = null;"
+            + "return window.__tinyUiChefSnapshot !== arguments[0]"
+            + "    || window.__tinyUiChefSnapshotSize !== document.getElementsByTagName('*').length;";
+
+    /**
+     * Runs batch of 'FormFill' operations, unlike other snippets takes list of fields as 'arguments[0]',
+     * every field is a map of 'strategy', 'value', 'action', 'text' and 'checked'
+     * Returns '[status, message]' for every field
+     * Values are set through prototype setter, so frameworks tracking value property (e.g. React) notice the change
+     */
+    static final String FILL = FIND
+            + "var fire = function(element, type) {"
+            + "  var event = document.createEvent('HTMLEvents');"
+            + "  event.initEvent(type, true, false);"
+            + "  element.dispatchEvent(event);"
+            + "};"
+            + "var setValue = function(element, value) {"
+            + "  if (element.isContentEditable) { element.textContent = value; return; }"
+            + "  var prototype = element.tagName === 'TEXTAREA' ? window.HTMLTextAreaElement : window.HTMLInputElement;"
+            + "  var descriptor = prototype && Object.getOwnPropertyDescriptor(prototype.prototype, 'value');"
+            + "  if (descriptor && descriptor.set) descriptor.set.call(element, value); else element.value = value;"
+            + "};"
+            + "var current = function(element) {"
+            + "  return element.isContentEditable ? element.textContent : (element.value || '');"
+            + "};"
+            + "return arguments[0].map(function(field) {"
+            + "  try {"
+            + "    var element = find(field.strategy, field.value)[0];"
+            + "    if (!element) return ['NOT_FOUND', null];"
+            + "    if (element.disabled || element.readOnly) return ['DISABLED', null];"
+            + "    if (element.focus) element.focus();"
+            + "    switch (field.action) {"
+            + "      case 'CLEAR':"
+            + "        setValue(element, '');"
+            + "        fire(element, 'input');"
+            + "        fire(element, 'change');"
+            + "        break;"
+            + "      case 'TYPE':"
+            + "        setValue(element, current(element) + field.text);"
+            + "        fire(element, 'input');"
+            + "        fire(element, 'change');"
+            + "        break;"
+            + "      case 'SELECT':"
+            + "        var options = Array.prototype.slice.call(element.options || []);"
+            + "        var option = options.filter(function(o) { return text(o) === field.text; })[0];"
+            + "        if (!option) return ['NO_OPTION', 'No option with text: ' + field.text];"
+            + "        if (!option.selected) {"
+            + "          option.selected = true;"
+            + "          fire(element, 'input');"
+            + "          fire(element, 'change');"
+            + "        }"
+            + "        break;"
+            + "      case 'CHECK':"
+            + "        if (element.checked !== field.checked) element.click();"
+            + "        break;"
+            + "      default:"
+            + "        return ['FAILED', 'Unsupported action: ' + field.action];"
+            + "    }"
+            + "    if (element.blur) element.blur();"
+            + "    return ['DONE', null];"
+            + "  } catch (e) {"
+            + "    return ['FAILED', String(e && e.message || e)];"
+            + "  }"
+            + "});";
+
+    /**
+     * Returns '[origin, localStorage, sessionStorage]' of the current document, storages as key-value maps
+     */
+    static final String STORAGE =
+            "var dump = function(storage) {"
+            + "  var values = {};"
+            + "  for (var i = 0; i < storage.length; i++) {"
+            + "    var key = storage.key(i);"
+            + "    values[key] = storage.getItem(key);"
+            + "  }"
+            + "  return values;"
+            + "};"
+            + "return [location.protocol + '//' + location.host, dump(window.localStorage), dump(window.sessionStorage)];";
+
+    /**
+     * Replaces content of localStorage with 'arguments[0]' and sessionStorage with 'arguments[1]' maps
+     */
+    static final String RESTORE_STORAGE =
+            "var fill = function(storage, values) {"
+            + "  storage.clear();"
+            + "  Object.keys(values || {}).forEach(function(key) { storage.setItem(key, values[key]); });"
+            + "};"
+            + "fill(window.localStorage, arguments[0]);"
+            + "fill(window.sessionStorage, arguments[1]);";
+
+    /**
+     * Returns map of page timings in milliseconds since navigation start, null if Performance API is missing
+     * Navigation Timing Level 2 entry is used when available, legacy 'performance.timing' otherwise
+     * Events which didn't happen yet (e.g. load of still loading page) are left out
+     */
+    static final String TIMING =
+            "var perf = window.performance;"
+            + "if (!perf) return null;"
+            + "var result = {};"
+            + "var put = function(name, value) { if (typeof value === 'number' && value > 0) result[name] = value; };"
+            + "var entries = function(type) { return perf.getEntriesByType ? perf.getEntriesByType(type) || [] : []; };"
+            + "var navigation = entries('navigation')[0];"
+            + "if (navigation) {"
+            + "  put('ttfb', navigation.responseStart);"
+            + "  put('domInteractive', navigation.domInteractive);"
+            + "  put('domContentLoaded', navigation.domContentLoadedEventEnd);"
+            + "  put('load', navigation.loadEventEnd);"
+            + "  put('documentKb', (navigation.transferSize || 0) / 1024);"
+            + "} else if (perf.timing && perf.timing.navigationStart) {"
+            + "  var timing = perf.timing, start = timing.navigationStart;"
+            + "  var since = function(value) { return value > 0 ? value - start : 0; };"
+            + "  put('ttfb', since(timing.responseStart));"
+            + "  put('domInteractive', since(timing.domInteractive));"
+            + "  put('domContentLoaded', since(timing.domContentLoadedEventEnd));"
+            + "  put('load', since(timing.loadEventEnd));"
+            + "}"
+            + "entries('paint').forEach(function(paint) {"
+            + "  if (paint.name === 'first-paint') put('firstPaint', paint.startTime);"
+            + "  if (paint.name === 'first-contentful-paint') put('firstContentfulPaint', paint.startTime);"
+            + "});"
+            + "var resources = entries('resource');"
+            + "var transfer = 0, slowest = 0;"
+            + "resources.forEach(function(resource) {"
+            + "  transfer += resource.transferSize || 0;"
+            + "  slowest = Math.max(slowest, resource.duration || 0);"
+            + "});"
+            + "result.resourceCount = resources.length;"
+            + "put('resourceKb', transfer / 1024);"
+            + "put('slowestResource', slowest);"
+            + "return result;";
+
+    private Scripts(){
+    }
+}
@@ -0,0 +1,277 @@
+package page;
+
+import org.openqa.selenium.Cookie;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.json.Json;
+import org.openqa.selenium.json.JsonException;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Authenticated browser state of one origin: cookies, localStorage and sessionStorage
+ * Captured once after login and restored into other browsers instead of logging in through the UI again
+ * Immutable, stored as JSON file by 'SessionStore'
+ */
+public final class SessionState {
+
+    private static final Logger logger = Logger.getLogger(SessionState.class.getName());
+
+    private final String mOrigin;
+    private final long mCaptured;
+    private final List<Cookie> mCookies;
+    private final Map<String, String> mLocalStorage;
+    private final Map<String, String> mSessionStorage;
+
+    private SessionState(String origin, long captured, List<Cookie> cookies,
+                         Map<String, String> localStorage, Map<String, String> sessionStorage){
+        mOrigin = origin;
+        mCaptured = captured;
+        mCookies = Collections.unmodifiableList(new ArrayList<>(cookies));
+        mLocalStorage = Collections.unmodifiableMap(new LinkedHashMap<>(localStorage));
+        mSessionStorage = Collections.unmodifiableMap(new LinkedHashMap<>(sessionStorage));
+    }
+
+    /**
+     * Captures state of the origin browser is currently on
+     * Storages are only captured in case if driver can execute JavaScript
+     *
+     * @param driver WebDriver -> logged in browser
+     * @return SessionState
+     */
+    @SuppressWarnings("unchecked")
+    public static SessionState capture(WebDriver driver){
+        List<Cookie> cookies = new ArrayList<>(driver.manage().getCookies());
+        if (BaseWebPage.supportsScripts(driver)) {
+            List<Object> storage = (List<Object>) ((JavascriptExecutor) driver).executeScript(Scripts.STORAGE);
+            return new SessionState(String.valueOf(storage.get(0)), System.currentTimeMillis(), cookies,
+                    toStrings((Map<String, Object>) storage.get(1)), toStrings((Map<String, Object>) storage.get(2)));
+        }
+        return new SessionState(toOrigin(driver.getCurrentUrl()), System.currentTimeMillis(), cookies,
+                Collections.emptyMap(), Collections.emptyMap());
+    }
+
+    /**
+     * Restores state into browser
+     * Opens 'path' of the origin, as cookies and storages can only be set by a page of the origin,
+     * replaces its cookies and storages and reloads the page, so it is rendered with restored state
+     * Cookies the browser refuses (e.g. of a parent domain) are skipped
+     *
+     * @param driver WebDriver -> browser to restore state into, new or reused
+     * @param path String -> page of the origin to open, e.g. '/' or a light static page
+     */
+    public void restore(WebDriver driver, String path){
+        driver.get(mOrigin + (path.startsWith("/") ? path : "/" + path));
+        driver.manage().deleteAllCookies();
+        for (Cookie cookie : mCookies) {
+            try {
+                driver.manage().addCookie(cookie);
+            } catch (WebDriverException e){
+                logger.log(Level.FINE, "Cookie '" + cookie.getName() + "' of " + cookie.getDomain()
+                        + " was not restored: " + e.getMessage());
+            }
+        }
+        if (BaseWebPage.supportsScripts(driver)) {
+            ((JavascriptExecutor) driver).executeScript(Scripts.RESTORE_STORAGE, mLocalStorage, mSessionStorage);
+        }
+        driver.navigate().refresh();
+    }
+
+    /**
+     * Deletes cookies and storages of the origin browser is currently on
+     *
+     * @param driver WebDriver
+     */
+    public static void clear(WebDriver driver){
+        driver.manage().deleteAllCookies();
+        if (BaseWebPage.supportsScripts(driver)) {
+            ((JavascriptExecutor) driver).executeScript(Scripts.RESTORE_STORAGE,
+                    Collections.emptyMap(), Collections.emptyMap());
+        }
+    }
+
+    /**
+     * Returns 'true' in case if state is older than max age or any of its cookies has expired
+     *
+     * @param maxAgeMillis long -> max age of state
+     * @return boolean
+     */
+    public boolean isExpired(long maxAgeMillis){
+        long now = System.currentTimeMillis();
+        if (now - mCaptured > maxAgeMillis) return true;
+        for (Cookie cookie : mCookies) {
+            if (cookie.getExpiry() != null && cookie.getExpiry().getTime() <= now) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Getter for origin of the state, e.g. 'https://example.com'
+     *
+     * @return String
+     */
+    public String getOrigin(){
+        return mOrigin;
+    }
+
+    /**
+     * Getter for capture time
+     *
+     * @return long -> milliseconds since epoch
+     */
+    public long getCaptured(){
+        return mCaptured;
+    }
+
+    /**
+     * Getter for cookies
+     *
+     * @return List
+     */
+    public List<Cookie> getCookies(){
+        return mCookies;
+    }
+
+    /**
+     * Getter for localStorage content
+     *
+     * @return Map
+     */
+    public Map<String, String> getLocalStorage(){
+        return mLocalStorage;
+    }
+
+    /**
+     * Getter for sessionStorage content
+     *
+     * @return Map
+     */
+    public Map<String, String> getSessionStorage(){
+        return mSessionStorage;
+    }
+
+    /**
+     * Writes state into JSON file
+     * File is replaced atomically, so concurrent readers never see partial state
+     * NOTE: file holds credentials of the session, keep it out of version control
+     *
+     * @param file File
+     * @throws IOException in case if file can't be written
+     */
+    public void save(File file) throws IOException {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("origin", mOrigin);
+        json.put("captured", mCaptured);
+        List<Map<String, Object>> cookies = new ArrayList<>();
+        for (Cookie cookie : mCookies) {
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("name", cookie.getName());
+            values.put("value", cookie.getValue());
+            values.put("domain", cookie.getDomain());
+            values.put("path", cookie.getPath());
+            values.put("expiry", cookie.getExpiry() != null ? cookie.getExpiry().getTime() : null);
+            values.put("secure", cookie.isSecure());
+            values.put("httpOnly", cookie.isHttpOnly());
+            values.put("sameSite", cookie.getSameSite());
+            cookies.add(values);
+        }
+        json.put("cookies", cookies);
+        json.put("localStorage", mLocalStorage);
+        json.put("sessionStorage", mSessionStorage);
+        Path target = file.toPath();
+        Path parent = file.getAbsoluteFile().getParentFile().toPath();
+        Files.createDirectories(parent);
+        Path temporary = Files.createTempFile(parent, file.getName(), ".tmp");
+        try {
+            Files.write(temporary, new Json().toJson(json).getBytes(StandardCharsets.UTF_8));
+            try {
+                Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e){
+                Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Reads state from JSON file
+     *
+     * @param file File
+     * @return SessionState -> state or null in case if file is missing or malformed
+     */
+    @SuppressWarnings("unchecked")
+    public static SessionState load(File file){
+        if (!file.isFile()) return null;
+        try {
+            Map<String, Object> json = new Json().toType(
+                    new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8), Json.MAP_TYPE);
+            List<Cookie> cookies = new ArrayList<>();
+            for (Map<String, Object> values : (List<Map<String, Object>>) json.get("cookies")) {
+                Object expiry = values.get("expiry");
+                cookies.add(new Cookie.Builder((String) values.get("name"), (String) values.get("value"))
+                        .domain((String) values.get("domain"))
+                        .path((String) values.get("path"))
+                        .expiresOn(expiry != null ? new Date(((Number) expiry).longValue()) : null)
+                        .isSecure(Boolean.TRUE.equals(values.get("secure")))
+                        .isHttpOnly(Boolean.TRUE.equals(values.get("httpOnly")))
+                        .sameSite((String) values.get("sameSite"))
+                        .build());
+            }
+            return new SessionState((String) json.get("origin"), ((Number) json.get("captured")).longValue(), cookies,
+                    toStrings((Map<String, Object>) json.get("localStorage")),
+                    toStrings((Map<String, Object>) json.get("sessionStorage")));
+        } catch (IOException | JsonException | ClassCastException | NullPointerException e){
+            logger.log(Level.WARNING, "There was an issue reading session state " + file.getPath()
+                    + ". Please refer to the following error: " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Converts storage values to strings
+     *
+     * @param values Map -> storage content, null if none
+     * @return Map
+     */
+    private static Map<String, String> toStrings(Map<String, Object> values){
+        Map<String, String> strings = new LinkedHashMap<>();
+        if (values == null) return strings;
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            strings.put(entry.getKey(), String.valueOf(entry.getValue()));
+        }
+        return strings;
+    }
+
+    /**
+     * Returns 'scheme://host[:port]' of the URL
+     *
+     * @param url String
+     * @return String
+     */
+    private static String toOrigin(String url){
+        try {
+            URI uri = new URI(url);
+            return uri.getScheme() + "://" + uri.getRawAuthority();
+        } catch (URISyntaxException e){
+            throw new WebDriverException("Session state can't be captured from " + url, e);
+        }
+    }
+}
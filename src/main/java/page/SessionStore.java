@@ -0,0 +1,123 @@
+package page;
+
+import org.openqa.selenium.WebDriver;
+import provider.Parameters;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Named authenticated sessions shared by test methods
+ * First test needing a session logs in through its 'LoginFlow' and the resulting 'SessionState' is kept in memory
+ * and in '<session_dir>/<name>.json', so later tests, threads and runs restore it instead of logging in again
+ * State is logged in again when it is expired or restored state is rejected by 'LoginFlow.isLoggedIn'
+ * Threads needing the same session wait for one login instead of logging in concurrently
+ * Configured in 'parameters.xml':
+ * 'session/dir' -> directory of state files, 'target/sessions' by default
+ * 'session/max_age' -> seconds state is reused for, 1800 by default
+ * 'session/restore_path' -> page of the origin opened to restore state, '/' by default
+ */
+public final class SessionStore {
+
+    public static final String DEFAULT_DIR = "target/sessions";
+
+    private static final Map<String, Object> LOCKS = new ConcurrentHashMap<>();
+    private static final Map<String, SessionState> STATES = new ConcurrentHashMap<>();
+    private static final Logger logger = Logger.getLogger(SessionStore.class.getName());
+
+    private SessionStore(){
+    }
+
+    /**
+     * Brings browser into logged in state of the session
+     * Browser ends up on the origin of the session, either on reloaded 'session/restore_path' or where login left it
+     *
+     * @param driver WebDriver -> browser of the test, new or taken from the pool
+     * @param name String -> session name, e.g. 'admin'
+     * @param flow LoginFlow -> login used when there is no valid state
+     */
+    public static void restore(WebDriver driver, String name, LoginFlow flow){
+        Parameters parameters = Parameters.current();
+        long maxAge = TimeUnit.SECONDS.toMillis(parameters.getInt("session.max_age", 1800));
+        String path = parameters.getString("session.restore_path", "/");
+        Object lock = LOCKS.computeIfAbsent(name, key -> new Object());
+        SessionState state;
+        synchronized (lock) {
+            state = STATES.get(name);
+            if (state == null || state.isExpired(maxAge)) {
+                state = SessionState.load(getFile(name));
+            }
+            if (state == null || state.isExpired(maxAge)) {
+                login(driver, name, flow);
+                return;
+            }
+            STATES.put(name, state);
+        }
+        state.restore(driver, path);
+        if (flow.isLoggedIn(driver)) return;
+        synchronized (lock) {
+            SessionState current = STATES.get(name);
+            if (current != null && current != state && !current.isExpired(maxAge)) {
+                current.restore(driver, path);
+                if (flow.isLoggedIn(driver)) return;
+            }
+            logger.log(Level.INFO, "Session '" + name + "' was rejected by the application, logging in again");
+            SessionState.clear(driver);
+            login(driver, name, flow);
+        }
+    }
+
+    /**
+     * Drops state of the session, next 'restore' logs in again
+     *
+     * @param name String -> session name
+     */
+    public static void invalidate(String name){
+        synchronized (LOCKS.computeIfAbsent(name, key -> new Object())) {
+            STATES.remove(name);
+            if (!getFile(name).delete() && getFile(name).exists()) {
+                logger.log(Level.WARNING, "Session state file was not deleted: " + getFile(name).getPath());
+            }
+        }
+    }
+
+    /**
+     * Logs in through the UI and stores captured state
+     * Must be called holding the lock of the session
+     *
+     * @param driver WebDriver -> browser to log in with
+     * @param name String -> session name
+     * @param flow LoginFlow -> login
+     */
+    private static void login(WebDriver driver, String name, LoginFlow flow){
+        long started = System.nanoTime();
+        flow.login(driver);
+        SessionState state = SessionState.capture(driver);
+        STATES.put(name, state);
+        logger.log(Level.INFO, "Session '" + name + "' logged in on " + state.getOrigin() + " in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) + " ms");
+        File file = getFile(name);
+        try {
+            state.save(file);
+        } catch (IOException e){
+            logger.log(Level.WARNING, "There was an issue saving session state " + file.getPath()
+                    + ". Please refer to the following error: " + e);
+        }
+    }
+
+    /**
+     * Returns state file of the session
+     *
+     * @param name String -> session name
+     * @return File
+     */
+    private static File getFile(String name){
+        return new File(Parameters.current().getString("session.dir", DEFAULT_DIR),
+                name.replaceAll("[^A-Za-z0-9._-]", "_") + ".json");
+    }
+}
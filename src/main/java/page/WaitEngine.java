@@ -0,0 +1,197 @@
+package page;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.support.ui.ExpectedCondition;
+import org.openqa.selenium.support.ui.ExpectedConditions;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Waits for element conditions without fixed polling
+ * Installs MutationObserver in the page and blocks on asynchronous script which resolves
+ * as soon as condition holds. Falls back to polling with exponential backoff in case if
+ * script can't run, e.g. JavaScript is disabled or page navigates while waiting
+ * In-page waits are split into parts no longer than default timeout, 'Driver' sets session script timeout
+ * above it once at startup, so waits make no extra WebDriver calls
+ */
+public class WaitEngine {
+
+    public enum Condition {
+        PRESENT, VISIBLE, INVISIBLE, CLICKABLE
+    }
+
+    private static final long MIN_POLL_MILLIS = 10;
+    private static final long MAX_POLL_MILLIS = 500;
+    private static final Logger logger = Logger.getLogger(WaitEngine.class.getName());
+
+    private final WebDriver mDriver;
+    private final Duration mTimeout;
+
+    public WaitEngine(WebDriver driver, Duration timeout){
+        mDriver = driver;
+        mTimeout = timeout;
+    }
+
+    /**
+     * Getter for default timeout
+     *
+     * @return Duration
+     */
+    public Duration getTimeout(){
+        return mTimeout;
+    }
+
+    /**
+     * Waits for condition using default timeout
+     *
+     * @param locator Locator -> Element locator
+     * @param condition Condition -> expected condition
+     * @return WebElement -> matched element, null for INVISIBLE condition
+     * @throws TimeoutException in case if condition didn't hold in time
+     */
+    public WebElement until(Locator locator, Condition condition){
+        return until(locator, condition, mTimeout);
+    }
+
+    /**
+     * Waits for condition
+     *
+     * @param locator Locator -> Element locator
+     * @param condition Condition -> expected condition
+     * @param timeout Duration -> max time to wait
+     * @return WebElement -> matched element, null for INVISIBLE condition
+     * @throws TimeoutException in case if condition didn't hold in time
+     */
+    public WebElement until(Locator locator, Condition condition, Duration timeout){
+        return await(locator, condition, timeout, BaseWebPage.supportsScripts(mDriver));
+    }
+
+    /**
+     * Waits in the page while script can run, polls otherwise
+     *
+     * @param locator Locator -> Element locator
+     * @param condition Condition -> expected condition
+     * @param timeout Duration -> max time to wait
+     * @param scripts boolean -> 'true' in case if driver can execute JavaScript
+     * @return WebElement -> matched element, null for INVISIBLE condition
+     * @throws TimeoutException in case if condition didn't hold in time
+     */
+    private WebElement await(Locator locator, Condition condition, Duration timeout, boolean scripts){
+        long deadline = System.nanoTime() + timeout.toNanos();
+        long pollMillis = MIN_POLL_MILLIS;
+        while (true) {
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (scripts && remaining > 0) {
+                try {
+                    Object result = awaitInPage(locator, condition, Math.min(remaining, mTimeout.toMillis()));
+                    if (result instanceof WebElement) return (WebElement) result;
+                    if (Boolean.TRUE.equals(result)) return null;
+                    if (System.nanoTime() >= deadline) throw timeout(locator, condition, timeout);
+                    continue;
+                } catch (UnsupportedOperationException e){
+                    scripts = false;
+                } catch (TimeoutException e){
+                    throw e;
+                } catch (WebDriverException e){
+                    logger.log(Level.FINE, "In-page wait interrupted, polling instead: " + e.getMessage());
+                }
+            }
+            Object result = poll(locator, condition);
+            if (result instanceof WebElement) return (WebElement) result;
+            if (Boolean.TRUE.equals(result)) return null;
+            remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining <= 0) {
+                throw timeout(locator, condition, timeout);
+            }
+            sleep(Math.min(pollMillis, remaining));
+            pollMillis = Math.min(pollMillis * 2, MAX_POLL_MILLIS);
+        }
+    }
+
+    /**
+     * Blocks on asynchronous script which resolves once condition holds in the page
+     *
+     * @param locator Locator -> Element locator
+     * @param condition Condition -> expected condition
+     * @param timeoutMillis long -> max time to wait in the page
+     * @return Object -> element, 'true' or 'false' on timeout
+     */
+    private Object awaitInPage(Locator locator, Condition condition, long timeoutMillis){
+        return ((JavascriptExecutor) mDriver).executeAsyncScript(Scripts.AWAIT,
+                locator.getStrategy().name(), locator.getValue(), condition.name(), timeoutMillis);
+    }
+
+    /**
+     * Evaluates condition once through WebDriver
+     *
+     * @param locator Locator -> Element locator
+     * @param condition Condition -> expected condition
+     * @return Object -> element, 'true' or null if condition doesn't hold
+     */
+    private Object poll(Locator locator, Condition condition){
+        try {
+            Object result = toExpectedCondition(locator, condition).apply(mDriver);
+            return Boolean.FALSE.equals(result) ? null : result;
+        } catch (NoSuchElementException | StaleElementReferenceException e){
+            return null;
+        }
+    }
+
+    /**
+     * Maps condition to Selenium expected condition
+     *
+     * @param locator Locator -> Element locator
+     * @param condition Condition -> expected condition
+     * @return ExpectedCondition
+     */
+    private ExpectedCondition<?> toExpectedCondition(Locator locator, Condition condition){
+        switch (condition){
+            case PRESENT:
+                return ExpectedConditions.presenceOfElementLocated(locator.toBy());
+            case VISIBLE:
+                return ExpectedConditions.visibilityOfElementLocated(locator.toBy());
+            case INVISIBLE:
+                return ExpectedConditions.invisibilityOfElementLocated(locator.toBy());
+            case CLICKABLE:
+                return ExpectedConditions.elementToBeClickable(locator.toBy());
+            default:
+                throw new IllegalArgumentException("Unsupported condition: " + condition);
+        }
+    }
+
+    /**
+     * Builds timeout exception
+     *
+     * @param locator Locator -> Element locator
+     * @param condition Condition -> expected condition
+     * @param timeout Duration -> time waited
+     * @return TimeoutException
+     */
+    private TimeoutException timeout(Locator locator, Condition condition, Duration timeout){
+        return new TimeoutException("Expected condition failed: waiting for " + condition.name().toLowerCase()
+                + " element located by " + locator + " (tried for " + timeout.toMillis() + " ms)");
+    }
+
+    /**
+     * Sleeps between polls
+     *
+     * @param millis long
+     */
+    private void sleep(long millis){
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new WebDriverException("Interrupted while waiting", e);
+        }
+    }
+}
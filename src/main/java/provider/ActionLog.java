@@ -0,0 +1,391 @@
+package provider;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Structured log of page actions
+ * Callers pass action parts as arguments, nothing is formatted on the calling thread
+ * Entries go to bounded queue drained by background thread into '<test>.log' file per test method,
+ * file is rewritten on the first action of the test in the run,
+ * entries are dropped instead of blocking the test in case if queue is full,
+ * files are closed at the end of the test and whenever the queue stays empty for a second
+ * Last 'execution/action_history' actions of every test method are kept in memory to be shown on test failure,
+ * actions of threads acting for the test, e.g. 'AsyncPage' workers, go to the same history
+ * Configured in 'parameters.xml':
+ * 'execution/action_log' -> lowest logged level, e.g. INFO, FINE or OFF, INFO by default
+ * 'execution/action_log_dir' -> output directory, 'target/actions' by default
+ * 'execution/action_history' -> number of actions kept per test method, 20 by default
+ */
+public final class ActionLog {
+
+    public static final String DEFAULT_DIR = "target/actions";
+
+    private static final int QUEUE_CAPACITY = 8192;
+    private static final int DRAIN_BATCH = 512;
+    private static final long IDLE_MILLIS = 1000;
+    private static final long END_TIMEOUT_MILLIS = 1000;
+    private static final long FLUSH_TIMEOUT_MILLIS = 10000;
+    private static final Logger logger = Logger.getLogger(ActionLog.class.getName());
+
+    private static final int THRESHOLD;
+    private static final int HISTORY;
+    private static final File DIRECTORY;
+    private static final Thread WRITER;
+    private static final Entry STOP = new Entry();
+    private static final BlockingQueue<Entry> QUEUE = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private static final ThreadLocal<History> HISTORIES = ThreadLocal.withInitial(History::new);
+    private static final Map<String, History> TESTS = new ConcurrentHashMap<>();
+    private static final Set<String> OPENED = ConcurrentHashMap.newKeySet();
+    private static final AtomicLong DROPPED = new AtomicLong();
+
+    private static volatile boolean sStopped;
+
+    static {
+        Parameters parameters = Parameters.current();
+        THRESHOLD = toLevel(parameters.getString("execution.action_log", "INFO")).intValue();
+        HISTORY = Math.max(1, parameters.getInt("execution.action_history", 20));
+        DIRECTORY = new File(parameters.getString("execution.action_log_dir", DEFAULT_DIR));
+        if (THRESHOLD != Level.OFF.intValue()) {
+            WRITER = new Thread(ActionLog::drain, "action-log-writer");
+            WRITER.setDaemon(true);
+            WRITER.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(ActionLog::flush, "action-log-shutdown"));
+        } else {
+            WRITER = null;
+        }
+    }
+
+    private ActionLog(){
+    }
+
+    /**
+     * Returns 'true' in case if actions of provided level are logged
+     *
+     * @param level Level
+     * @return boolean
+     */
+    public static boolean isLoggable(Level level){
+        return level.intValue() >= THRESHOLD && THRESHOLD != Level.OFF.intValue();
+    }
+
+    /**
+     * Logs action of the current thread
+     *
+     * @param level Level -> action level
+     * @param action String -> action name, e.g. 'click'
+     * @param page Class -> page object class
+     * @param target Object -> action target, e.g. locator
+     */
+    public static void log(Level level, String action, Class<?> page, Object target){
+        log(level, action, page, target, null);
+    }
+
+    /**
+     * Logs action of the current thread
+     *
+     * @param level Level -> action level
+     * @param action String -> action name, e.g. 'select'
+     * @param page Class -> page object class
+     * @param target Object -> action target, e.g. locator
+     * @param detail Object -> action detail, e.g. selected value, null if none
+     */
+    public static void log(Level level, String action, Class<?> page, Object target, Object detail){
+        if (!isLoggable(level)) return;
+        History history = HISTORIES.get();
+        Entry entry = new Entry();
+        entry.mMillis = System.currentTimeMillis();
+        entry.mThread = Thread.currentThread().getName();
+        entry.mTest = history.mTest;
+        entry.mLevel = level;
+        entry.mAction = action;
+        entry.mPage = page;
+        entry.mTarget = target;
+        entry.mDetail = detail;
+        history.add(entry);
+        if (entry.mTest != null && !sStopped && !QUEUE.offer(entry)) {
+            DROPPED.incrementAndGet();
+        }
+    }
+
+    /**
+     * Binds actions of the current thread to the test method and starts new history of the test
+     *
+     * @param test String -> test method name
+     */
+    public static void startTest(String test){
+        History previous = HISTORIES.get();
+        if (previous.mTest != null) TESTS.remove(previous.mTest, previous);
+        History history = new History();
+        history.mTest = test;
+        HISTORIES.set(history);
+        TESTS.put(test, history);
+    }
+
+    /**
+     * Getter for test method the current thread acts for
+     *
+     * @return String -> test method name or null if thread is not bound
+     */
+    public static String getTest(){
+        return HISTORIES.get().mTest;
+    }
+
+    /**
+     * Binds actions of the current thread to the test method and its history without closing log file,
+     * so 'getRecent' of the test thread shows them as well
+     * Used by threads acting for the test thread, e.g. 'AsyncPage' workers
+     *
+     * @param test String -> test method name, null to unbind
+     */
+    public static void setTest(String test){
+        if (test == null) {
+            HISTORIES.remove();
+            return;
+        }
+        History history = TESTS.get(test);
+        if (history == null) {
+            history = new History();
+            history.mTest = test;
+        }
+        HISTORIES.set(history);
+    }
+
+    /**
+     * Unbinds current thread from the test method and closes its log file
+     * End of the test waits for free space in the queue for a second, if it is still full the file
+     * is closed once the writer catches up and the queue stays empty
+     * History of the test is kept until the next 'startTest', so failure handlers can still read it
+     */
+    public static void endTest(){
+        History history = HISTORIES.get();
+        String test = history.mTest;
+        if (test == null) return;
+        TESTS.remove(test, history);
+        history.mTest = null;
+        if (WRITER != null && !sStopped) {
+            Entry end = new Entry();
+            end.mTest = test;
+            end.mEnd = true;
+            try {
+                QUEUE.offer(end, END_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e){
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Returns last actions of the test method the current thread acts or acted for, oldest first
+     *
+     * @return List -> formatted actions
+     */
+    public static List<String> getRecent(){
+        List<String> recent = new ArrayList<>();
+        for (Entry entry : HISTORIES.get().toList()) {
+            recent.add(format(entry));
+        }
+        return recent;
+    }
+
+    /**
+     * Getter for number of actions dropped because writer didn't keep up
+     *
+     * @return long
+     */
+    public static long getDroppedCount(){
+        return DROPPED.get();
+    }
+
+    /**
+     * Writes every queued action and stops the background writer, actions logged afterwards are not written
+     * Called automatically on JVM shutdown
+     */
+    public static void flush(){
+        if (WRITER == null || sStopped) return;
+        sStopped = true;
+        try {
+            QUEUE.put(STOP);
+            WRITER.join(FLUSH_TIMEOUT_MILLIS);
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+        if (WRITER.isAlive()) {
+            logger.log(Level.WARNING, "Action log writer didn't finish in " + FLUSH_TIMEOUT_MILLIS + " ms");
+        }
+    }
+
+    /**
+     * Background writer loop, the only place files are written
+     * Closes every file when queue stays empty, stops at 'STOP' marker
+     */
+    private static void drain(){
+        Map<String, Writer> writers = new HashMap<>();
+        List<Entry> batch = new ArrayList<>(DRAIN_BATCH);
+        while (true) {
+            try {
+                Entry first = QUEUE.poll(IDLE_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    closeAll(writers);
+                    continue;
+                }
+                batch.add(first);
+                QUEUE.drainTo(batch, DRAIN_BATCH - 1);
+                boolean stop = batch.remove(STOP);
+                write(batch, writers);
+                batch.clear();
+                if (stop) {
+                    closeAll(writers);
+                    return;
+                }
+            } catch (InterruptedException e){
+                closeAll(writers);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Appends batch of actions to per-test files
+     *
+     * @param batch List -> actions to write
+     * @param writers Map -> open writers by test
+     */
+    private static void write(List<Entry> batch, Map<String, Writer> writers){
+        for (Entry entry : batch) {
+            try {
+                if (entry.mEnd) {
+                    Writer writer = writers.remove(entry.mTest);
+                    if (writer != null) writer.close();
+                    continue;
+                }
+                Writer writer = writers.get(entry.mTest);
+                if (writer == null) {
+                    Files.createDirectories(DIRECTORY.toPath());
+                    StandardOpenOption mode = OPENED.add(entry.mTest)
+                            ? StandardOpenOption.TRUNCATE_EXISTING : StandardOpenOption.APPEND;
+                    writer = Files.newBufferedWriter(new File(DIRECTORY, entry.mTest + ".log").toPath(),
+                            StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.WRITE, mode);
+                    writers.put(entry.mTest, writer);
+                }
+                writer.write(format(entry));
+                writer.write('\n');
+            } catch (IOException e){
+                logger.log(Level.WARNING,
+                        "There was an issue writing action log. Please refer to the following error: " + e);
+            }
+        }
+        for (Writer writer : writers.values()) {
+            try {
+                writer.flush();
+            } catch (IOException e){
+                logger.log(Level.FINE, "Action log was not flushed: " + e);
+            }
+        }
+    }
+
+    /**
+     * Closes every open writer
+     *
+     * @param writers Map -> open writers by test
+     */
+    private static void closeAll(Map<String, Writer> writers){
+        for (Writer writer : writers.values()) {
+            try {
+                writer.close();
+            } catch (IOException e){
+                logger.log(Level.FINE, "Action log was not closed: " + e);
+            }
+        }
+        writers.clear();
+    }
+
+    /**
+     * Formats action as tab separated line: time, level, thread, action, page, target, detail
+     *
+     * @param entry Entry
+     * @return String
+     */
+    private static String format(Entry entry){
+        StringBuilder line = new StringBuilder(96)
+                .append(new SimpleDateFormat("HH:mm:ss.SSS").format(new Date(entry.mMillis))).append('\t')
+                .append(entry.mLevel).append('\t')
+                .append(entry.mThread).append('\t')
+                .append(entry.mAction).append('\t')
+                .append(entry.mPage != null ? entry.mPage.getSimpleName() : "-").append('\t')
+                .append(entry.mTarget != null ? entry.mTarget : "-");
+        if (entry.mDetail != null) {
+            line.append('\t').append(entry.mDetail);
+        }
+        return line.toString();
+    }
+
+    /**
+     * Parses level name
+     *
+     * @param name String -> level name, e.g. INFO
+     * @return Level -> parsed level or INFO if name is unknown
+     */
+    private static Level toLevel(String name){
+        try {
+            return Level.parse(name.trim().toUpperCase());
+        } catch (IllegalArgumentException e){
+            logger.log(Level.WARNING, "Unknown action_log level: " + name + ", INFO is used");
+            return Level.INFO;
+        }
+    }
+
+    private static final class Entry {
+        private long mMillis;
+        private String mThread;
+        private String mTest;
+        private Level mLevel;
+        private String mAction;
+        private Class<?> mPage;
+        private Object mTarget;
+        private Object mDetail;
+        private boolean mEnd;
+    }
+
+    /**
+     * Ring of last actions of one test method, shared by the test thread and threads acting for it
+     */
+    private static final class History {
+        private final Entry[] mEntries = new Entry[HISTORY];
+        private int mNext;
+        private int mSize;
+        private volatile String mTest;
+
+        synchronized void add(Entry entry){
+            mEntries[mNext] = entry;
+            mNext = (mNext + 1) % mEntries.length;
+            mSize = Math.min(mSize + 1, mEntries.length);
+        }
+
+        synchronized List<Entry> toList(){
+            List<Entry> entries = new ArrayList<>(mSize);
+            for (int i = 0; i < mSize; i++) {
+                entries.add(mEntries[(mNext - mSize + i + mEntries.length) % mEntries.length]);
+            }
+            return entries;
+        }
+    }
+}
@@ -0,0 +1,414 @@
+package provider;
+
+import org.openqa.selenium.WebDriverException;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Admits new local browser sessions only while the machine has room for them
+ * Every session start of 'Driver' takes a place in one first-come first-served queue,
+ * the head of the queue is admitted as soon as all checks pass:
+ * - available memory, less memory reserved for sessions still starting, is above 'min_free_memory'
+ * - load average per CPU core is below 'max_load', or CPU usage is below 'max_cpu' where
+ *   load average is not available (e.g. Windows)
+ * - number of running browser processes is below 'max_browsers'
+ * - fewer than 'max_starting' sessions are starting at the same time
+ * Memory and browser processes are read from '/proc' on Linux, memory and CPU usage are read from
+ * OperatingSystemMXBean elsewhere, check without data passes
+ * Browser processes are counted at most once per poll interval
+ * 'remote' sessions don't use local resources and are never queued
+ * Configured in 'parameters.xml':
+ * 'scheduler/enabled' -> 'false' admits every session at once, enabled by default
+ * 'scheduler/min_free_memory' -> megabytes to keep available, 1024 by default
+ * 'scheduler/session_memory' -> megabytes reserved for every starting session, 400 by default
+ * 'scheduler/max_load' -> load average per core in percent, 150 by default, 0 for no limit
+ * 'scheduler/max_cpu' -> CPU usage of the machine in percent, used without load average, 90 by default, 0 for no limit
+ * 'scheduler/max_browsers' -> browser processes on the machine at most, 0 (no limit) by default,
+ * Linux only as processes are listed from '/proc'
+ * 'scheduler/max_starting' -> sessions starting at once at most, half of CPU cores by default
+ * 'scheduler/max_wait' -> seconds in queue after which session is admitted anyway, 600 by default,
+ * one at a time, so an overloaded machine slows the run down instead of failing it
+ */
+public final class BrowserScheduler {
+
+    private static final long POLL_MILLIS = 200;
+    private static final long MEGABYTE = 1024L * 1024L;
+    private static final Logger logger = Logger.getLogger(BrowserScheduler.class.getName());
+
+    private static final boolean ENABLED;
+    private static final long MIN_FREE_MEMORY;
+    private static final long SESSION_MEMORY;
+    private static final double MAX_LOAD;
+    private static final double MAX_CPU;
+    private static final int MAX_BROWSERS;
+    private static final int MAX_STARTING;
+    private static final long MAX_WAIT_NANOS;
+
+    private static final Object LOCK = new Object();
+    private static final Deque<Object> QUEUE = new ArrayDeque<>();
+    private static final Map<Reason, AtomicLong> DELAYED_BY = new EnumMap<>(Reason.class);
+    private static final AtomicLong ADMITTED = new AtomicLong();
+    private static final AtomicLong DELAYED = new AtomicLong();
+    private static final AtomicLong FORCED = new AtomicLong();
+    private static final AtomicLong WAIT_NANOS = new AtomicLong();
+    private static final AtomicLong MAX_WAIT = new AtomicLong();
+
+    private static int sStarting;
+    private static int sMaxDepth;
+    private static int sBrowsers;
+    private static long sBrowsersCounted;
+    private static boolean sBrowsersKnown;
+
+    /**
+     * Resource which kept session in the queue
+     */
+    public enum Reason {
+        MEMORY, LOAD, BROWSERS, STARTING
+    }
+
+    static {
+        Parameters parameters = Parameters.current();
+        ENABLED = parameters.getBoolean("scheduler.enabled", true);
+        MIN_FREE_MEMORY = parameters.getInt("scheduler.min_free_memory", 1024) * MEGABYTE;
+        SESSION_MEMORY = parameters.getInt("scheduler.session_memory", 400) * MEGABYTE;
+        MAX_LOAD = parameters.getInt("scheduler.max_load", 150) / 100.0;
+        MAX_CPU = parameters.getInt("scheduler.max_cpu", 90) / 100.0;
+        MAX_BROWSERS = parameters.getInt("scheduler.max_browsers", 0);
+        MAX_STARTING = Math.max(1, parameters.getInt("scheduler.max_starting",
+                Runtime.getRuntime().availableProcessors() / 2));
+        MAX_WAIT_NANOS = TimeUnit.SECONDS.toNanos(parameters.getInt("scheduler.max_wait", 600));
+        for (Reason reason : Reason.values()) {
+            DELAYED_BY.put(reason, new AtomicLong());
+        }
+    }
+
+    private BrowserScheduler(){
+    }
+
+    /**
+     * Returns 'true' unless 'scheduler/enabled' is 'false'
+     *
+     * @return boolean
+     */
+    public static boolean isEnabled(){
+        return ENABLED;
+    }
+
+    /**
+     * Waits in the queue until new session of the profile may start
+     * Every admitted session must be followed by 'finish()' once it started or failed to start
+     *
+     * @param profile String -> browser profile
+     * @return boolean -> 'false' in case if session doesn't need admission and 'finish()' must not be called
+     */
+    public static boolean admit(String profile){
+        if (!ENABLED || "remote".equals(profile)) return false;
+        Object ticket = new Object();
+        long start = System.nanoTime();
+        Set<Reason> reasons = EnumSet.noneOf(Reason.class);
+        synchronized (LOCK) {
+            QUEUE.addLast(ticket);
+            sMaxDepth = Math.max(sMaxDepth, QUEUE.size());
+            try {
+                while (true) {
+                    if (QUEUE.peekFirst() == ticket) {
+                        Reason reason = check();
+                        if (reason == null) break;
+                        reasons.add(reason);
+                        if (sStarting == 0 && System.nanoTime() - start > MAX_WAIT_NANOS) {
+                            FORCED.incrementAndGet();
+                            logger.log(Level.WARNING, "Starting " + profile + " session despite low resources ("
+                                    + reason + ") after waiting " + TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start)
+                                    + " s. Current state: " + getState());
+                            break;
+                        }
+                    }
+                    LOCK.wait(POLL_MILLIS);
+                }
+            } catch (InterruptedException e){
+                Thread.currentThread().interrupt();
+                throw new WebDriverException("Interrupted while waiting to start " + profile + " session", e);
+            } finally {
+                QUEUE.remove(ticket);
+                LOCK.notifyAll();
+            }
+            sStarting++;
+        }
+        record(System.nanoTime() - start, reasons);
+        if (!reasons.isEmpty()) {
+            logger.log(Level.FINE, "Session of " + profile + " waited "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms for " + reasons);
+        }
+        return true;
+    }
+
+    /**
+     * Releases start slot taken with 'admit()'
+     */
+    public static void finish(){
+        synchronized (LOCK) {
+            if (sStarting > 0) sStarting--;
+            LOCK.notifyAll();
+        }
+    }
+
+    /**
+     * Getter for number of sessions waiting in the queue
+     *
+     * @return int
+     */
+    public static int getQueueDepth(){
+        synchronized (LOCK) {
+            return QUEUE.size();
+        }
+    }
+
+    /**
+     * Getter for the longest queue seen so far
+     *
+     * @return int
+     */
+    public static int getMaxQueueDepth(){
+        synchronized (LOCK) {
+            return sMaxDepth;
+        }
+    }
+
+    /**
+     * Getter for number of sessions admitted and still starting
+     *
+     * @return int
+     */
+    public static int getStartingCount(){
+        synchronized (LOCK) {
+            return sStarting;
+        }
+    }
+
+    /**
+     * Getter for number of admitted sessions
+     *
+     * @return long
+     */
+    public static long getAdmittedCount(){
+        return ADMITTED.get();
+    }
+
+    /**
+     * Getter for number of sessions which had to wait for resources
+     *
+     * @return long
+     */
+    public static long getDelayedCount(){
+        return DELAYED.get();
+    }
+
+    /**
+     * Getter for number of sessions admitted after 'scheduler/max_wait' without free resources
+     *
+     * @return long
+     */
+    public static long getForcedCount(){
+        return FORCED.get();
+    }
+
+    /**
+     * Getter for number of sessions which waited for the resource at least once
+     *
+     * @param reason Reason -> resource
+     * @return long
+     */
+    public static long getDelayedCount(Reason reason){
+        return DELAYED_BY.get(reason).get();
+    }
+
+    /**
+     * Getter for average time spent in the queue
+     *
+     * @return long -> milliseconds
+     */
+    public static long getAverageWaitMillis(){
+        long admitted = ADMITTED.get();
+        return admitted == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(WAIT_NANOS.get() / admitted);
+    }
+
+    /**
+     * Getter for the longest time spent in the queue
+     *
+     * @return long -> milliseconds
+     */
+    public static long getMaxWaitMillis(){
+        return TimeUnit.NANOSECONDS.toMillis(MAX_WAIT.get());
+    }
+
+    /**
+     * Returns one line summary of admissions, empty string if no session was admitted
+     *
+     * @return String
+     */
+    public static String getSummary(){
+        if (ADMITTED.get() == 0) return "";
+        StringBuilder summary = new StringBuilder()
+                .append("admitted=").append(ADMITTED.get())
+                .append(", delayed=").append(DELAYED.get())
+                .append(", forced=").append(FORCED.get())
+                .append(", maxQueue=").append(getMaxQueueDepth())
+                .append(", avgWaitMs=").append(getAverageWaitMillis())
+                .append(", maxWaitMs=").append(getMaxWaitMillis());
+        for (Reason reason : Reason.values()) {
+            summary.append(", ").append(reason.name().toLowerCase()).append('=').append(getDelayedCount(reason));
+        }
+        return summary.toString();
+    }
+
+    /**
+     * Returns resource which doesn't allow another session to start, must be called holding 'LOCK'
+     *
+     * @return Reason -> reason or null if session may start
+     */
+    private static Reason check(){
+        if (sStarting >= MAX_STARTING) return Reason.STARTING;
+        long available = getAvailableMemory();
+        if (available >= 0 && available - sStarting * SESSION_MEMORY < MIN_FREE_MEMORY) return Reason.MEMORY;
+        double load = getLoad();
+        if (load >= 0) {
+            if (MAX_LOAD > 0 && load >= MAX_LOAD) return Reason.LOAD;
+        } else if (MAX_CPU > 0) {
+            double cpu = getCpuUsage();
+            if (cpu >= 0 && cpu >= MAX_CPU) return Reason.LOAD;
+        }
+        if (MAX_BROWSERS > 0) {
+            int browsers = getBrowserCount();
+            if (browsers >= 0 && browsers + sStarting >= MAX_BROWSERS) return Reason.BROWSERS;
+        }
+        return null;
+    }
+
+    /**
+     * Returns number of running browser processes counted within the last poll interval,
+     * must be called holding 'LOCK'
+     *
+     * @return int -> count or -1 if processes can't be listed
+     */
+    private static int getBrowserCount(){
+        long now = System.nanoTime();
+        if (!sBrowsersKnown || now - sBrowsersCounted >= TimeUnit.MILLISECONDS.toNanos(POLL_MILLIS)) {
+            sBrowsers = countBrowsers();
+            sBrowsersCounted = now;
+            sBrowsersKnown = true;
+        }
+        return sBrowsers;
+    }
+
+    /**
+     * Returns measured resources for logging
+     *
+     * @return String
+     */
+    private static String getState(){
+        return "availableMb=" + getAvailableMemory() / MEGABYTE + ", loadPerCore=" + String.format("%.2f", getLoad())
+                + ", cpu=" + String.format("%.2f", getCpuUsage()) + ", browsers=" + getBrowserCount() + ", starting=" + sStarting + ", queued=" + QUEUE.size();
+    }
+
+    /**
+     * Records admission
+     *
+     * @param nanos long -> time spent in the queue
+     * @param reasons Set -> resources the session waited for
+     */
+    private static void record(long nanos, Set<Reason> reasons){
+        ADMITTED.incrementAndGet();
+        WAIT_NANOS.addAndGet(nanos);
+        long max;
+        do {
+            max = MAX_WAIT.get();
+        } while (nanos > max && !MAX_WAIT.compareAndSet(max, nanos));
+        if (reasons.isEmpty()) return;
+        DELAYED.incrementAndGet();
+        for (Reason reason : reasons) {
+            DELAYED_BY.get(reason).incrementAndGet();
+        }
+    }
+
+    /**
+     * Returns memory available for new processes without swapping
+     *
+     * @return long -> bytes or -1 if unknown
+     */
+    @SuppressWarnings("deprecation")
+    private static long getAvailableMemory(){
+        File meminfo = new File("/proc/meminfo");
+        if (meminfo.isFile()) {
+            try {
+                for (String line : Files.readAllLines(meminfo.toPath(), StandardCharsets.US_ASCII)) {
+                    if (line.startsWith("MemAvailable:")) {
+                        return Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024L;
+                    }
+                }
+            } catch (IOException | NumberFormatException e){
+                logger.log(Level.FINE, "Available memory was not read: " + e);
+            }
+        }
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) os).getFreePhysicalMemorySize();
+        }
+        return -1;
+    }
+
+    /**
+     * Returns system load per CPU core, 1.0 is one runnable task per core
+     *
+     * @return double -> load or -1 if load average is not available (e.g. Windows)
+     */
+    private static double getLoad(){
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        double load = os.getSystemLoadAverage();
+        return load >= 0 ? load / os.getAvailableProcessors() : -1;
+    }
+
+    /**
+     * Returns recent CPU usage of the whole machine, used where load average is not available
+     *
+     * @return double -> usage from 0.0 to 1.0 or -1 if unknown
+     */
+    @SuppressWarnings("deprecation")
+    private static double getCpuUsage(){
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) os).getSystemCpuLoad();
+        }
+        return -1;
+    }
+
+    /**
+     * Counts running browser main processes (chrome, msedge, firefox) on the machine
+     * Renderer and content processes are not counted
+     *
+     * @return int -> count or -1 if processes can't be listed
+     */
+    private static int countBrowsers(){
+        if (!ProcessTable.isSupported()) return -1;
+        ProcessTable processes = ProcessTable.read();
+        int count = 0;
+        for (int pid : processes.getPids()) {
+            if (processes.isBrowser(pid)) count++;
+        }
+        return count;
+    }
+}
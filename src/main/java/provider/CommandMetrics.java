@@ -0,0 +1,338 @@
+package provider;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.HasCapabilities;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WrapsDriver;
+import org.openqa.selenium.WrapsElement;
+import org.openqa.selenium.support.events.EventFiringDecorator;
+import org.openqa.selenium.support.events.WebDriverListener;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Records latency of every WebDriver command issued through wrapped drivers
+ * Latencies are tagged by command, page class, locator and test method and kept in 'LatencyHistogram's
+ * Enabled with 'execution/command_metrics' in 'parameters.xml'
+ * Drivers are wrapped with 'EventFiringDecorator', so every call is timed, e.g. 'getAttribute' and 'isDisplayed' too,
+ * commands are named after WebDriver methods, e.g. 'get', 'findElement', 'click'
+ */
+public final class CommandMetrics {
+
+    public static final String DEFAULT_REPORT_DIR = "target/metrics";
+
+    private static final Map<String, LatencyHistogram> BY_COMMAND = new ConcurrentHashMap<>();
+    private static final Map<String, LatencyHistogram> BY_LOCATOR = new ConcurrentHashMap<>();
+    private static final Map<String, LatencyHistogram> BY_TEST = new ConcurrentHashMap<>();
+    private static final ThreadLocal<Context> CONTEXT = ThreadLocal.withInitial(Context::new);
+    private static final Logger logger = Logger.getLogger(CommandMetrics.class.getName());
+
+    private CommandMetrics(){
+    }
+
+    /**
+     * Returns 'true' in case if 'execution/command_metrics' is enabled in 'parameters.xml'
+     *
+     * @return boolean
+     */
+    public static boolean isEnabled(){
+        return Parameters.current().getBoolean("execution.command_metrics", false);
+    }
+
+    /**
+     * Wraps driver so every command it issues is timed
+     *
+     * @param driver WebDriver -> driver to wrap
+     * @return WebDriver -> wrapping driver
+     */
+    public static WebDriver wrap(WebDriver driver){
+        if (driver == null || (Proxy.isProxyClass(driver.getClass()) && driver instanceof WrapsDriver)) return driver;
+        return new EventFiringDecorator(new Listener()).decorate(driver);
+    }
+
+    /**
+     * Tags commands of the current thread with the test method
+     *
+     * @param test String -> test method name, null to clear
+     */
+    public static void setTest(String test){
+        Context context = CONTEXT.get();
+        context.mTest = test;
+        context.mPage = null;
+        context.mLocator = null;
+    }
+
+    /**
+     * Tags commands of the current thread with the page and locator
+     *
+     * @param page Class -> page object class
+     * @param locator Object -> element locator, null if command is not bound to element
+     */
+    public static void setTarget(Class<?> page, Object locator){
+        Context context = CONTEXT.get();
+        context.mPage = page;
+        context.mLocator = locator;
+    }
+
+    /**
+     * Records latency of the command issued by current thread
+     *
+     * @param command String -> command name
+     * @param locator Object -> locator, null to use the one provided with 'setTarget()'
+     * @param nanos long -> latency
+     */
+    public static void record(String command, Object locator, long nanos){
+        Context context = CONTEXT.get();
+        long micros = nanos / 1000;
+        histogram(BY_COMMAND, command).record(micros);
+        Object target = locator != null ? locator : context.mLocator;
+        String page = context.mPage != null ? context.mPage.getSimpleName() : "-";
+        histogram(BY_LOCATOR, command + '|' + page + '|' + (target != null ? target : "-")).record(micros);
+        if (context.mTest != null) {
+            histogram(BY_TEST, context.mTest).record(micros);
+        }
+    }
+
+    /**
+     * Writes 'commands.json' and 'commands.csv' reports into provided directory
+     *
+     * @param directory File -> report directory, created if missing
+     */
+    public static void writeReport(File directory){
+        if (BY_COMMAND.isEmpty()) return;
+        try {
+            Files.createDirectories(directory.toPath());
+            try (Writer writer = Files.newBufferedWriter(new File(directory, "commands.json").toPath(), StandardCharsets.UTF_8)) {
+                writer.write("{\n");
+                writeJsonSection(writer, "commands", new String[]{"command"}, BY_COMMAND);
+                writer.write(",\n");
+                writeJsonSection(writer, "locators", new String[]{"command", "page", "locator"}, BY_LOCATOR);
+                writer.write(",\n");
+                writeJsonSection(writer, "tests", new String[]{"test"}, BY_TEST);
+                writer.write("\n}\n");
+            }
+            try (Writer writer = Files.newBufferedWriter(new File(directory, "commands.csv").toPath(), StandardCharsets.UTF_8)) {
+                writer.write("view,command,page,locator,test,count,mean_us,p50_us,p90_us,p99_us,max_us\n");
+                writeCsvSection(writer, "command", BY_COMMAND);
+                writeCsvSection(writer, "locator", BY_LOCATOR);
+                writeCsvSection(writer, "test", BY_TEST);
+            }
+            logger.log(Level.INFO, "Command metrics written to: " + directory.getAbsolutePath());
+        } catch (IOException e){
+            logger.log(Level.WARNING,
+                    "There was an issue writing command metrics. Please refer to the following error: " + e);
+        }
+    }
+
+    /**
+     * Drops every recorded latency
+     */
+    public static void reset(){
+        BY_COMMAND.clear();
+        BY_LOCATOR.clear();
+        BY_TEST.clear();
+    }
+
+    /**
+     * Returns histogram of the key, creates it on first use
+     *
+     * @param view Map -> one of report views
+     * @param key String -> view key
+     * @return LatencyHistogram
+     */
+    private static LatencyHistogram histogram(Map<String, LatencyHistogram> view, String key){
+        LatencyHistogram histogram = view.get(key);
+        return histogram != null ? histogram : view.computeIfAbsent(key, k -> new LatencyHistogram());
+    }
+
+    /**
+     * Writes one view as JSON array
+     *
+     * @param writer Writer -> report writer
+     * @param name String -> array name
+     * @param fields String -> names of '|' separated key parts
+     * @param view Map -> view to write
+     */
+    private static void writeJsonSection(Writer writer, String name, String[] fields,
+                                         Map<String, LatencyHistogram> view) throws IOException {
+        writer.write("  \"" + name + "\": [");
+        boolean first = true;
+        for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<>(view).entrySet()) {
+            String[] keys = entry.getKey().split("\\|", fields.length);
+            StringBuilder row = new StringBuilder(first ? "\n    {" : ",\n    {");
+            for (int i = 0; i < fields.length; i++) {
+                row.append('"').append(fields[i]).append("\": \"").append(escapeJson(i < keys.length ? keys[i] : "")).append("\", ");
+            }
+            LatencyHistogram histogram = entry.getValue();
+            row.append("\"count\": ").append(histogram.getCount())
+                    .append(", \"mean_us\": ").append(Math.round(histogram.getMean()))
+                    .append(", \"p50_us\": ").append(histogram.getPercentile(50))
+                    .append(", \"p90_us\": ").append(histogram.getPercentile(90))
+                    .append(", \"p99_us\": ").append(histogram.getPercentile(99))
+                    .append(", \"max_us\": ").append(histogram.getMax())
+                    .append('}');
+            writer.write(row.toString());
+            first = false;
+        }
+        writer.write("\n  ]");
+    }
+
+    /**
+     * Writes one view as CSV rows
+     *
+     * @param writer Writer -> report writer
+     * @param view String -> view name
+     * @param histograms Map -> view to write
+     */
+    private static void writeCsvSection(Writer writer, String view, Map<String, LatencyHistogram> histograms) throws IOException {
+        for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<>(histograms).entrySet()) {
+            String command = "", page = "", locator = "", test = "";
+            if ("test".equals(view)) {
+                test = entry.getKey();
+            } else {
+                String[] keys = entry.getKey().split("\\|", 3);
+                command = keys[0];
+                if (keys.length == 3) {
+                    page = keys[1];
+                    locator = keys[2];
+                }
+            }
+            LatencyHistogram histogram = entry.getValue();
+            writer.write(view + ',' + escapeCsv(command) + ',' + escapeCsv(page) + ',' + escapeCsv(locator) + ','
+                    + escapeCsv(test) + ',' + histogram.getCount() + ',' + Math.round(histogram.getMean()) + ','
+                    + histogram.getPercentile(50) + ',' + histogram.getPercentile(90) + ','
+                    + histogram.getPercentile(99) + ',' + histogram.getMax() + '\n');
+        }
+    }
+
+    /**
+     * Escapes JSON string value
+     *
+     * @param value String
+     * @return String
+     */
+    private static String escapeJson(String value){
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (char c : value.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                escaped.append('\\').append(c);
+            } else if (c < 0x20) {
+                escaped.append(String.format("\\u%04x", (int) c));
+            } else {
+                escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    /**
+     * Quotes CSV value in case if it holds separator, quote or new line
+     *
+     * @param value String
+     * @return String
+     */
+    private static String escapeCsv(String value){
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) return value;
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * Per-thread tags of issued commands
+     */
+    private static final class Context {
+        private String mTest;
+        private Class<?> mPage;
+        private Object mLocator;
+        private final ArrayDeque<long[]> mStarted = new ArrayDeque<>();
+    }
+
+    /**
+     * Times every call of decorated driver and of objects it hands out (elements, navigation, alerts, window)
+     * Calls which only return such objects, e.g. 'manage()' or 'navigate()', are not commands and are not timed
+     */
+    private static final class Listener implements WebDriverListener {
+
+        private static final Set<Class<?>> ACCESSORS = new HashSet<>(Arrays.asList(WebDriver.Options.class,
+                WebDriver.Navigation.class, WebDriver.TargetLocator.class, WebDriver.Timeouts.class,
+                WebDriver.Window.class));
+
+        @Override
+        public void beforeAnyCall(Object target, Method method, Object[] args){
+            if (isCommand(method)) {
+                CONTEXT.get().mStarted.push(new long[]{System.nanoTime()});
+            }
+        }
+
+        @Override
+        public void afterAnyCall(Object target, Method method, Object[] args, Object result){
+            if (isCommand(method)) {
+                stop(method.getName(), getLocator(method, args));
+            }
+        }
+
+        @Override
+        public void onError(Object target, Method method, Object[] args, InvocationTargetException e){
+            if (isCommand(method)) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                stop("failed:" + cause.getClass().getSimpleName(), getLocator(method, args));
+            }
+        }
+
+        /**
+         * Records latency of the command started in 'beforeAnyCall()'
+         *
+         * @param command String -> command name
+         * @param locator Object -> locator, null to use the one provided with 'setTarget()'
+         */
+        private static void stop(String command, Object locator){
+            long[] started = CONTEXT.get().mStarted.poll();
+            if (started != null) {
+                record(command, locator, System.nanoTime() - started[0]);
+            }
+        }
+
+        /**
+         * Returns 'true' in case if the call reaches the browser, local getters and accessors are skipped
+         *
+         * @param method Method -> called method
+         * @return boolean
+         */
+        private static boolean isCommand(Method method){
+            Class<?> declaring = method.getDeclaringClass();
+            return declaring != Object.class && declaring != WrapsDriver.class && declaring != WrapsElement.class
+                    && declaring != HasCapabilities.class && !ACCESSORS.contains(method.getReturnType());
+        }
+
+        /**
+         * Returns locator of the command: 'By' of find commands, URL of navigation
+         *
+         * @param method Method -> called method
+         * @param args Object -> call arguments
+         * @return Object -> locator, null to use the one provided with 'setTarget()'
+         */
+        private static Object getLocator(Method method, Object[] args){
+            if (args == null || args.length != 1) return null;
+            if (args[0] instanceof By) return args[0];
+            if (args[0] instanceof String && (method.getName().equals("get") || method.getName().equals("to"))) {
+                return args[0];
+            }
+            return null;
+        }
+    }
+}
@@ -1,92 +1,265 @@
 package provider;
 
+import org.openqa.selenium.Capabilities;
 import org.openqa.selenium.Dimension;
 import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
 import org.openqa.selenium.chrome.ChromeDriver;
 import org.openqa.selenium.chrome.ChromeOptions;
+import org.openqa.selenium.chromium.ChromiumDriver;
 import org.openqa.selenium.edge.EdgeDriver;
 import org.openqa.selenium.edge.EdgeOptions;
 import org.openqa.selenium.firefox.FirefoxDriver;
 import org.openqa.selenium.firefox.FirefoxOptions;
 
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.time.Duration;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
 
 public class Driver {
 
     private final String mProfile;
     private final int mWidth, mHeight;
-    private final boolean mIsFullscreen, mHeadless;
+    private final boolean mIsFullscreen, mHeadless, mJavascript;
+    private final ResourcePolicy mResourcePolicy;
+    private final String mRemoteUrl, mRemoteBrowser;
+    private final String mCell;
+    private final Duration mScriptTimeout;
 
-    private final String GECKO_DRIVER = "src/test/resources/drivers/geckodriver.exe";
-    private final String CHROME_DRIVER = "src/test/resources/drivers/chromedriver.exe";
-    private final String EDGE_DRIVER = "src/test/resources/drivers/msedgedriver.exe";
+    private static final String GECKO_DRIVER = "src/test/resources/drivers/geckodriver.exe";
+    private static final String CHROME_DRIVER = "src/test/resources/drivers/chromedriver.exe";
+    private static final String EDGE_DRIVER = "src/test/resources/drivers/msedgedriver.exe";
+    private static final long SCRIPT_TIMEOUT_MARGIN_MILLIS = 5000;
+    private static final Logger logger = Logger.getLogger(Driver.class.getName());
 
     private WebDriver mDriver;
 
+    static {
+        setDriverProperty("webdriver.gecko.driver", GECKO_DRIVER);
+        setDriverProperty("webdriver.chrome.driver", CHROME_DRIVER);
+        setDriverProperty("webdriver.edge.driver", EDGE_DRIVER);
+    }
+
     public Driver(ParameterReader parameterReader){
         mProfile = parameterReader.getProfile();
         mIsFullscreen = parameterReader.getFullscreen();
         mWidth = parameterReader.getWidth();
         mHeight = parameterReader.getHeight();
         mHeadless = parameterReader.getHeadless();
+        mJavascript = parameterReader.getJavascript();
+        mResourcePolicy = new ResourcePolicy(parameterReader.getParameters());
+        mRemoteUrl = parameterReader.getParameters().getString("remote.url", "");
+        mRemoteBrowser = parameterReader.getParameters().getString("remote.browser", "chrome");
+        mCell = parameterReader.getParameters().getString(MatrixCell.CELL_KEY, "");
+        mScriptTimeout = Duration.ofSeconds(parameterReader.getParameters().getInt("execution.wait_timeout", 30))
+                .plusMillis(SCRIPT_TIMEOUT_MARGIN_MILLIS);
     }
 
     /**
      * Sets up and starts browser depends on the parameters provided in 'parameters.xml'
-     * NOTE: Currently supports 2 browsers: Firefox and Chrome
+     * NOTE: Currently supports 5 profiles: firefox, chrome, edge, htmlunit and remote
+     * 'htmlunit' runs inside the JVM, always headless, JavaScript is toggled with 'javascript' value
+     * 'remote' starts 'remote/browser' (chrome, firefox or edge) on Grid or driver server at 'remote/url'
      * If 'fullscreen' value is false -> will set width and height of window depends on respective
      * values from 'parameters.xml'
+     * Page load strategy and resource blocking are applied from 'parameters.xml', see 'ResourcePolicy'
      */
     protected void startBrowser(){
-        switch (mProfile){
-            case "firefox":
-                System.setProperty("webdriver.gecko.driver", GECKO_DRIVER);
-                if (mHeadless){
+        mDriver = createBrowser();
+    }
+
+    /**
+     * Creates new browser session depends on the parameters provided in 'parameters.xml'
+     * Used by 'startBrowser()' and by 'DriverPool' to fill up its warm sessions
+     * Thread safe -> keeps no state between calls, so sessions can be started from parallel tests
+     * Session is wrapped for latency recording in case if 'execution/command_metrics' is enabled
+     * 'chrome' and 'edge' sessions share one driver process per JVM, see 'DriverServices'
+     * Startup time of every session is recorded in 'DriverServices.getStartupTimes()'
+     * Local session waits until the machine has room for another browser, see 'BrowserScheduler'
+     * Every session is registered in 'SessionRegistry', quit it with 'SessionRegistry.quit()'
+     *
+     * @return WebDriver -> new WebDriver object or null if profile is not supported
+     */
+    WebDriver createBrowser(){
+        boolean admitted = BrowserScheduler.admit(mProfile);
+        try {
+            return launchBrowser();
+        } finally {
+            if (admitted) BrowserScheduler.finish();
+        }
+    }
+
+    /**
+     * Starts browser session of the profile
+     *
+     * Session which fails window setup is quit before the error is rethrown
+     *
+     * @return WebDriver -> new WebDriver object or null if profile is not supported
+     */
+    private WebDriver launchBrowser(){
+        long start = System.nanoTime();
+        WebDriver driver = null;
+        try {
+            switch (mProfile){
+                case "firefox":
                     FirefoxOptions firefoxOptions = new FirefoxOptions();
-                    firefoxOptions.addArguments("-headless");
-                    mDriver = new FirefoxDriver(firefoxOptions);
-                } else {
-                    mDriver = new FirefoxDriver();
-                    if (mIsFullscreen) {
-                        mDriver.manage().window().fullscreen();
+                    mResourcePolicy.applyTo(firefoxOptions);
+                    if (mHeadless){
+                        firefoxOptions.addArguments("-headless");
+                        driver = new FirefoxDriver(firefoxOptions);
                     } else {
-                        Dimension dimension = new Dimension(mWidth, mHeight);
-                        mDriver.manage().window().setSize(dimension);
+                        driver = new FirefoxDriver(firefoxOptions);
+                        if (mIsFullscreen) {
+                            driver.manage().window().fullscreen();
+                        } else {
+                            Dimension dimension = new Dimension(mWidth, mHeight);
+                            driver.manage().window().setSize(dimension);
+                        }
                     }
-                }
-                break;
-            case "chrome":
-                System.setProperty("webdriver.chrome.driver", CHROME_DRIVER);
-                if (mHeadless){
+                    break;
+                case "chrome":
                     ChromeOptions chromeOptions = new ChromeOptions();
-                    chromeOptions.addArguments("--headless");
-                    mDriver = new ChromeDriver(chromeOptions);
-                } else {
-                    mDriver = new ChromeDriver();
-                    if (mIsFullscreen) {
-                        mDriver.manage().window().fullscreen();
+                    mResourcePolicy.applyTo(chromeOptions);
+                    if (mHeadless){
+                        chromeOptions.addArguments("--headless");
+                        driver = new ChromeDriver(DriverServices.chrome(), chromeOptions);
                     } else {
-                        Dimension dimension = new Dimension(mWidth, mHeight);
-                        mDriver.manage().window().setSize(dimension);
+                        driver = new ChromeDriver(DriverServices.chrome(), chromeOptions);
+                        if (mIsFullscreen) {
+                            driver.manage().window().fullscreen();
+                        } else {
+                            Dimension dimension = new Dimension(mWidth, mHeight);
+                            driver.manage().window().setSize(dimension);
+                        }
                     }
-                }
-                break;
-            case "edge":
-                System.setProperty("webdriver.edge.driver", EDGE_DRIVER);
-                if (mHeadless){
+                    mResourcePolicy.applyTo((ChromiumDriver) driver);
+                    break;
+                case "edge":
                     EdgeOptions edgeOptions = new EdgeOptions();
-                    edgeOptions.addArguments("headless");
-                    edgeOptions.addArguments("disable-gpu");
-                    mDriver = new EdgeDriver(edgeOptions);
-                } else {
-                    mDriver = new EdgeDriver();
+                    mResourcePolicy.applyTo(edgeOptions);
+                    if (mHeadless){
+                        edgeOptions.addArguments("headless");
+                        edgeOptions.addArguments("disable-gpu");
+                        driver = new EdgeDriver(DriverServices.edge(), edgeOptions);
+                    } else {
+                        driver = new EdgeDriver(DriverServices.edge(), edgeOptions);
+                        if (mIsFullscreen) {
+                            driver.manage().window().fullscreen();
+                        } else {
+                            Dimension dimension = new Dimension(mWidth, mHeight);
+                            driver.manage().window().setSize(dimension);
+                        }
+                    }
+                    mResourcePolicy.applyTo((ChromiumDriver) driver);
+                    break;
+                case "remote":
+                    driver = RemoteBrowser.start(toUrl(mRemoteUrl), createRemoteOptions());
+                    if (mHeadless) break;
                     if (mIsFullscreen) {
-                        mDriver.manage().window().fullscreen();
+                        driver.manage().window().fullscreen();
                     } else {
                         Dimension dimension = new Dimension(mWidth, mHeight);
-                        mDriver.manage().window().setSize(dimension);
+                        driver.manage().window().setSize(dimension);
                     }
-                }
-                break;
+                    break;
+                case "htmlunit":
+                    driver = new HtmlUnitBrowser(mJavascript, mResourcePolicy);
+                    if (mIsFullscreen) {
+                        driver.manage().window().fullscreen();
+                    } else if (mWidth > 0 && mHeight > 0) {
+                        Dimension dimension = new Dimension(mWidth, mHeight);
+                        driver.manage().window().setSize(dimension);
+                    }
+                    break;
+            }
+            if (driver != null) {
+                applyScriptTimeout(driver);
+            }
+        } catch (RuntimeException e){
+            if (driver != null) {
+                quitQuietly(driver);
+            }
+            throw e;
+        }
+        if (driver != null) {
+            DriverServices.recordStartup(mProfile, System.nanoTime() - start);
+        }
+        if (CommandMetrics.isEnabled()) {
+            driver = CommandMetrics.wrap(driver);
+        }
+        SessionRegistry.register(driver, mProfile, mCell);
+        return driver;
+    }
+
+    /**
+     * Creates options of 'remote/browser' for 'remote' profile
+     * NOTE: URL blocking and cache settings need DevTools connection and are not applied to remote sessions
+     *
+     * @return Capabilities -> browser options
+     */
+    private Capabilities createRemoteOptions(){
+        switch (mRemoteBrowser){
+            case "firefox":
+                FirefoxOptions firefoxOptions = new FirefoxOptions();
+                mResourcePolicy.applyTo(firefoxOptions);
+                if (mHeadless) firefoxOptions.addArguments("-headless");
+                return firefoxOptions;
+            case "edge":
+                EdgeOptions edgeOptions = new EdgeOptions();
+                mResourcePolicy.applyTo(edgeOptions);
+                if (mHeadless) edgeOptions.addArguments("headless", "disable-gpu");
+                return edgeOptions;
+            case "chrome":
+                ChromeOptions chromeOptions = new ChromeOptions();
+                mResourcePolicy.applyTo(chromeOptions);
+                if (mHeadless) chromeOptions.addArguments("--headless");
+                return chromeOptions;
+            default:
+                throw new WebDriverException("Unsupported remote browser: " + mRemoteBrowser);
+        }
+    }
+
+    /**
+     * Parses 'remote/url' value
+     *
+     * @param url String -> endpoint URL, e.g. 'http://localhost:4444'
+     * @return URL
+     */
+    private static URL toUrl(String url){
+        try {
+            return new URL(url);
+        } catch (MalformedURLException e){
+            throw new WebDriverException("Invalid 'remote/url' parameter: '" + url + "'", e);
+        }
+    }
+
+    /**
+     * Sets script timeout of the session above 'execution/wait_timeout', so in-page waits of 'WaitEngine'
+     * never have to change it, session still works with default value in case if it can't be set
+     *
+     * @param driver WebDriver -> new session
+     */
+    private void applyScriptTimeout(WebDriver driver){
+        try {
+            driver.manage().timeouts().scriptTimeout(mScriptTimeout);
+        } catch (UnsupportedOperationException | WebDriverException e){
+            logger.log(Level.WARNING, "There was an issue setting script timeout. Please refer to the following error: " + e);
+        }
+    }
+
+    /**
+     * Quits session which failed its setup, so browser doesn't outlive the error
+     *
+     * @param driver WebDriver -> partially configured session
+     */
+    private static void quitQuietly(WebDriver driver){
+        try {
+            driver.quit();
+        } catch (WebDriverException e){
+            logger.log(Level.FINE, "Error while quitting partially started driver: " + e);
         }
     }
 
@@ -100,6 +273,19 @@ public class Driver {
         return mDriver;
     }
 
+    /**
+     * Points Selenium to the bundled driver binary once per JVM
+     * Value provided with '-D' on the command line is kept
+     *
+     * @param property String -> driver system property
+     * @param path String -> driver binary path
+     */
+    private static void setDriverProperty(String property, String path){
+        if (System.getProperty(property) == null) {
+            System.setProperty(property, path);
+        }
+    }
+
     /**
      * Getter for headless value
      *
@@ -0,0 +1,415 @@
+package provider;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class DriverPool {
+
+    private static final Map<String, DriverPool> POOLS = new ConcurrentHashMap<>();
+    private static final long ACQUIRE_TIMEOUT_MINUTES = 5;
+    private static final long BOOT_POLL_MILLIS = 100;
+    private static final Logger logger = Logger.getLogger(DriverPool.class.getName());
+
+    private final String mKey;
+    private final Driver mFactory;
+    private final int mSize;
+    private final int mPrelaunch;
+    private final Semaphore mPermits;
+    private final LinkedBlockingDeque<WebDriver> mIdle = new LinkedBlockingDeque<>();
+    private final ExecutorService mLauncher;
+    private final AtomicInteger mBooting = new AtomicInteger();
+    private volatile boolean mShutdown;
+
+    private final AtomicLong mAcquired = new AtomicLong();
+    private final AtomicLong mReleased = new AtomicLong();
+    private final AtomicLong mCreated = new AtomicLong();
+    private final AtomicLong mReplaced = new AtomicLong();
+    private final AtomicLong mPrelaunched = new AtomicLong();
+    private final AtomicLong mAcquireWaitNanos = new AtomicLong();
+    private final AtomicLong mMaxAcquireWaitNanos = new AtomicLong();
+
+    static {
+        ShutdownSequence.install();
+    }
+
+    DriverPool(String key, Driver factory, int size, int prelaunch){
+        mKey = key;
+        mFactory = factory;
+        mSize = size;
+        mPrelaunch = Math.min(Math.max(0, prelaunch), size);
+        mPermits = new Semaphore(size, true);
+        mLauncher = mPrelaunch == 0 ? null : Executors.newFixedThreadPool(mPrelaunch, runnable -> {
+            Thread thread = new Thread(runnable, "driver-prelaunch-" + key);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Returns process-wide pool for the profile provided in 'parameters.xml', one pool per matrix cell
+     * Pool is created on first call and keeps up to 'pool_size' warm sessions
+     * In case if 'prelaunch' value is greater than 0, up to that many sessions are started in background,
+     * so next 'acquire()' takes already booted session instead of starting one
+     *
+     * @param parameterReader ParameterReader -> parameters of the pool
+     * @return DriverPool
+     */
+    public static DriverPool getPool(ParameterReader parameterReader){
+        return POOLS.computeIfAbsent(parameterReader.getCell(), key -> {
+            DriverPool pool = new DriverPool(key, new Driver(parameterReader),
+                    Math.max(1, parameterReader.getPoolSize()), parameterReader.getPrelaunch());
+            pool.prelaunch();
+            return pool;
+        });
+    }
+
+    /**
+     * Quits every idle session of every pool
+     * Called automatically on JVM shutdown, after open sessions are quit, see 'ShutdownSequence'
+     */
+    public static void shutdownAll(){
+        for (DriverPool pool : POOLS.values()) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Takes warm session from the pool or starts new one if none is idle
+     * Blocks while all 'pool_size' sessions are in use
+     * Idle session which fails health check is quit and replaced
+     * Waits for session booting in background instead of starting another one
+     *
+     * @return WebDriver -> ready to use session
+     */
+    public WebDriver acquire(){
+        long start = System.nanoTime();
+        try {
+            if (!mPermits.tryAcquire(ACQUIRE_TIMEOUT_MINUTES, TimeUnit.MINUTES)) {
+                throw new WebDriverException("Timed out waiting for pooled driver of profile: " + mKey);
+            }
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new WebDriverException("Interrupted while waiting for pooled driver of profile: " + mKey, e);
+        }
+        try {
+            WebDriver driver = mIdle.pollFirst();
+            while (driver != null && !isHealthy(driver)) {
+                logger.log(Level.WARNING, "Replacing unhealthy pooled driver of profile: " + mKey);
+                quitQuietly(driver);
+                mReplaced.incrementAndGet();
+                driver = mIdle.pollFirst();
+            }
+            if (driver == null) {
+                driver = awaitBooting();
+            }
+            if (driver == null) {
+                driver = create();
+            }
+            recordWait(System.nanoTime() - start);
+            mAcquired.incrementAndGet();
+            SessionRegistry.claim(driver);
+            prelaunch();
+            return driver;
+        } catch (RuntimeException e){
+            mPermits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Resets session and returns it to the pool
+     * Session which can't be reset is quit, its slot is refilled on next 'acquire()'
+     *
+     * @param driver WebDriver -> session previously taken with 'acquire()'
+     */
+    public void release(WebDriver driver){
+        if (driver == null) return;
+        try {
+            if (reset(driver)) {
+                SessionRegistry.park(driver);
+                mIdle.offerFirst(driver);
+            } else {
+                quitQuietly(driver);
+                mReplaced.incrementAndGet();
+            }
+            mReleased.incrementAndGet();
+        } finally {
+            mPermits.release();
+        }
+        prelaunch();
+    }
+
+    /**
+     * Quits every idle session of the pool
+     */
+    public void shutdown(){
+        mShutdown = true;
+        if (mLauncher != null) {
+            mLauncher.shutdownNow();
+        }
+        List<WebDriver> drivers = new ArrayList<>();
+        mIdle.drainTo(drivers);
+        for (WebDriver driver : drivers) {
+            quitQuietly(driver);
+        }
+        logger.log(Level.INFO, "Driver pool '" + mKey + "' shut down: " + this);
+    }
+
+    /**
+     * Getter for number of 'acquire()' calls served
+     *
+     * @return long
+     */
+    public long getAcquireCount(){
+        return mAcquired.get();
+    }
+
+    /**
+     * Getter for number of 'release()' calls served
+     *
+     * @return long
+     */
+    public long getReleaseCount(){
+        return mReleased.get();
+    }
+
+    /**
+     * Getter for number of sessions started by the pool
+     *
+     * @return long
+     */
+    public long getCreatedCount(){
+        return mCreated.get();
+    }
+
+    /**
+     * Getter for number of sessions quit because of failed health check or reset
+     *
+     * @return long
+     */
+    public long getReplacedCount(){
+        return mReplaced.get();
+    }
+
+    /**
+     * Getter for number of sessions started in background
+     *
+     * @return long
+     */
+    public long getPrelaunchedCount(){
+        return mPrelaunched.get();
+    }
+
+    /**
+     * Getter for number of sessions currently booting in background
+     *
+     * @return int
+     */
+    public int getBootingCount(){
+        return mBooting.get();
+    }
+
+    /**
+     * Getter for number of sessions currently idle in the pool
+     *
+     * @return int
+     */
+    public int getIdleCount(){
+        return mIdle.size();
+    }
+
+    /**
+     * Getter for number of sessions currently taken from the pool
+     *
+     * @return int
+     */
+    public int getInUseCount(){
+        return mSize - mPermits.availablePermits();
+    }
+
+    /**
+     * Getter for average time spent in 'acquire()', session startup included
+     *
+     * @return long -> milliseconds
+     */
+    public long getAverageAcquireMillis(){
+        long acquired = mAcquired.get();
+        return acquired == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(mAcquireWaitNanos.get() / acquired);
+    }
+
+    /**
+     * Getter for longest time spent in 'acquire()', session startup included
+     *
+     * @return long -> milliseconds
+     */
+    public long getMaxAcquireMillis(){
+        return TimeUnit.NANOSECONDS.toMillis(mMaxAcquireWaitNanos.get());
+    }
+
+    @Override
+    public String toString(){
+        return "DriverPool{profile=" + mKey + ", size=" + mSize + ", inUse=" + getInUseCount()
+                + ", idle=" + getIdleCount() + ", acquired=" + getAcquireCount() + ", released=" + getReleaseCount()
+                + ", created=" + getCreatedCount() + ", prelaunched=" + getPrelaunchedCount()
+                + ", booting=" + getBootingCount() + ", replaced=" + getReplacedCount()
+                + ", avgAcquireMs=" + getAverageAcquireMillis() + ", maxAcquireMs=" + getMaxAcquireMillis() + "}";
+    }
+
+    /**
+     * Starts new session for the pool
+     *
+     * @return WebDriver
+     */
+    private WebDriver create(){
+        WebDriver driver = mFactory.createBrowser();
+        if (driver == null) {
+            throw new WebDriverException("Unsupported profile: " + mKey);
+        }
+        mCreated.incrementAndGet();
+        return driver;
+    }
+
+    /**
+     * Starts sessions in background until 'prelaunch' sessions are idle or booting
+     * Never goes over 'pool_size' sessions in total
+     */
+    private synchronized void prelaunch(){
+        if (mLauncher == null || mShutdown) return;
+        while (mIdle.size() + mBooting.get() < mPrelaunch
+                && getInUseCount() + mIdle.size() + mBooting.get() < mSize) {
+            mBooting.incrementAndGet();
+            mLauncher.execute(this::launch);
+        }
+    }
+
+    /**
+     * Starts one session in background and puts it to idle sessions
+     */
+    private void launch(){
+        try {
+            WebDriver driver = create();
+            if (mShutdown) {
+                quitQuietly(driver);
+            } else {
+                SessionRegistry.park(driver);
+                mIdle.offerLast(driver);
+                mPrelaunched.incrementAndGet();
+            }
+        } catch (RuntimeException e){
+            logger.log(Level.WARNING, "There was an issue with starting driver of profile: " + mKey
+                    + " in background. Please refer to the following error: " + e);
+        } finally {
+            mBooting.decrementAndGet();
+        }
+    }
+
+    /**
+     * Waits for session booting in background
+     *
+     * @return WebDriver -> booted session or null if nothing is booting
+     */
+    private WebDriver awaitBooting(){
+        try {
+            while (mBooting.get() > 0) {
+                WebDriver driver = mIdle.pollFirst(BOOT_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (driver != null) return driver;
+            }
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new WebDriverException("Interrupted while waiting for pooled driver of profile: " + mKey, e);
+        }
+        return mIdle.pollFirst();
+    }
+
+    /**
+     * Returns 'true' in case if session still responds
+     *
+     * @param driver WebDriver
+     * @return boolean
+     */
+    private boolean isHealthy(WebDriver driver){
+        try {
+            driver.getWindowHandle();
+            return true;
+        } catch (WebDriverException e){
+            return false;
+        }
+    }
+
+    /**
+     * Brings session back to clean state:
+     * closes extra windows, clears storage and cookies and navigates to 'about:blank'
+     *
+     * @param driver WebDriver
+     * @return boolean -> 'false' in case if session can't be reused
+     */
+    private boolean reset(WebDriver driver){
+        try {
+            List<String> handles = new ArrayList<>(driver.getWindowHandles());
+            for (int i = 1; i < handles.size(); i++) {
+                driver.switchTo().window(handles.get(i)).close();
+            }
+            driver.switchTo().window(handles.get(0));
+            clearStorage(driver);
+            driver.manage().deleteAllCookies();
+            driver.navigate().to("about:blank");
+            return true;
+        } catch (WebDriverException | IndexOutOfBoundsException e){
+            logger.log(Level.WARNING, "Could not reset pooled driver of profile: " + mKey + ". Error: " + e);
+            return false;
+        }
+    }
+
+    /**
+     * Clears local and session storage of the current origin
+     * Pages without storage access (e.g. 'about:blank') are skipped
+     *
+     * @param driver WebDriver
+     */
+    private void clearStorage(WebDriver driver){
+        if (!(driver instanceof JavascriptExecutor)) return;
+        try {
+            ((JavascriptExecutor) driver).executeScript(
+                    "try { window.localStorage.clear(); window.sessionStorage.clear(); } catch (e) {}");
+        } catch (WebDriverException | UnsupportedOperationException e){
+            logger.log(Level.FINE, "Storage was not cleared: " + e);
+        }
+    }
+
+    /**
+     * Records time spent in 'acquire()'
+     *
+     * @param nanos long
+     */
+    private void recordWait(long nanos){
+        mAcquireWaitNanos.addAndGet(nanos);
+        long max;
+        do {
+            max = mMaxAcquireWaitNanos.get();
+        } while (nanos > max && !mMaxAcquireWaitNanos.compareAndSet(max, nanos));
+    }
+
+    /**
+     * Quits session ignoring any error, see 'SessionRegistry.quit()'
+     *
+     * @param driver WebDriver
+     */
+    private void quitQuietly(WebDriver driver){
+        SessionRegistry.quit(driver);
+    }
+}
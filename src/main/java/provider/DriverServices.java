@@ -0,0 +1,207 @@
+package provider;
+
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.chrome.ChromeDriverService;
+import org.openqa.selenium.edge.EdgeDriverService;
+import org.openqa.selenium.net.PortProber;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps one chromedriver and one msedgedriver process per JVM, shared by every session of the profile
+ * Sessions only send 'quit' to the shared process, it is stopped on JVM shutdown
+ * NOTE: geckodriver serves a single session per process, so 'firefox' still starts own process per session
+ * Also collects browser startup timings per profile
+ */
+public final class DriverServices {
+
+    private static final Duration START_TIMEOUT = Duration.ofSeconds(20);
+    private static final Map<String, LatencyHistogram> STARTUP_TIMES = new ConcurrentHashMap<>();
+    private static final Logger logger = Logger.getLogger(DriverServices.class.getName());
+
+    private static SharedChromeService sChrome;
+    private static SharedEdgeService sEdge;
+
+    static {
+        ShutdownSequence.install();
+    }
+
+    private DriverServices(){
+    }
+
+    /**
+     * Returns running chromedriver process shared by all 'chrome' sessions
+     * Process is started on first call from 'webdriver.chrome.driver' binary
+     *
+     * @return ChromeDriverService
+     */
+    public static synchronized ChromeDriverService chrome(){
+        if (sChrome == null) {
+            String executable = System.getProperty(ChromeDriverService.CHROME_DRIVER_EXE_PROPERTY);
+            sChrome = start("chrome", port -> new SharedChromeService(new File(executable), port));
+        }
+        return sChrome;
+    }
+
+    /**
+     * Returns running msedgedriver process shared by all 'edge' sessions
+     * Process is started on first call from 'webdriver.edge.driver' binary
+     *
+     * @return EdgeDriverService
+     */
+    public static synchronized EdgeDriverService edge(){
+        if (sEdge == null) {
+            String executable = System.getProperty(EdgeDriverService.EDGE_DRIVER_EXE_PROPERTY);
+            sEdge = start("edge", port -> new SharedEdgeService(new File(executable), port));
+        }
+        return sEdge;
+    }
+
+    /**
+     * Stops shared driver processes
+     * Called automatically on JVM shutdown, after every session is quit, see 'ShutdownSequence'
+     */
+    public static synchronized void stopAll(){
+        if (sChrome != null) {
+            sChrome.shutdown();
+            sChrome = null;
+        }
+        if (sEdge != null) {
+            sEdge.shutdown();
+            sEdge = null;
+        }
+    }
+
+    /**
+     * Records time spent to start browser session
+     *
+     * @param profile String -> browser profile
+     * @param nanos long -> startup time
+     */
+    public static void recordStartup(String profile, long nanos){
+        STARTUP_TIMES.computeIfAbsent(profile, key -> new LatencyHistogram())
+                .record(TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+    /**
+     * Getter for browser startup timings recorded so far
+     *
+     * @return Map -> startup histogram by profile
+     */
+    public static Map<String, LatencyHistogram> getStartupTimes(){
+        return Collections.unmodifiableMap(new TreeMap<>(STARTUP_TIMES));
+    }
+
+    /**
+     * Returns one line summary of browser startup timings, e.g.
+     * 'chrome: sessions=12, avgMs=840, p95Ms=1210, maxMs=1630'
+     *
+     * @return String -> summary or empty string if no session was started
+     */
+    public static String getStartupSummary(){
+        StringBuilder summary = new StringBuilder();
+        for (Map.Entry<String, LatencyHistogram> entry : getStartupTimes().entrySet()) {
+            LatencyHistogram histogram = entry.getValue();
+            if (summary.length() > 0) summary.append("; ");
+            summary.append(entry.getKey())
+                    .append(": sessions=").append(histogram.getCount())
+                    .append(", avgMs=").append(Math.round(histogram.getMean() / 1000))
+                    .append(", p95Ms=").append(histogram.getPercentile(95) / 1000)
+                    .append(", maxMs=").append(histogram.getMax() / 1000);
+        }
+        return summary.toString();
+    }
+
+    /**
+     * Starts driver process on free port
+     *
+     * @param name String -> driver name for logging
+     * @param factory ServiceFactory -> creates service for the port
+     * @return T -> running service
+     */
+    private static <T extends SharedService> T start(String name, ServiceFactory<T> factory){
+        long start = System.nanoTime();
+        try {
+            T service = factory.create(PortProber.findFreePort());
+            service.start();
+            logger.log(Level.INFO, "Started shared " + name + " driver service at " + service.getUrl() + " in "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+            return service;
+        } catch (IOException e){
+            throw new WebDriverException("Could not start shared " + name + " driver service", e);
+        }
+    }
+
+    /**
+     * Builds port argument passed to the driver binary
+     *
+     * @param port int
+     * @return List -> driver arguments
+     */
+    private static List<String> args(int port){
+        return Collections.singletonList("--port=" + port);
+    }
+
+    private interface ServiceFactory<T> {
+        T create(int port) throws IOException;
+    }
+
+    private interface SharedService {
+        void start() throws IOException;
+
+        URL getUrl();
+
+        void shutdown();
+    }
+
+    /**
+     * Chromedriver process which ignores 'stop()' issued on session quit
+     */
+    private static final class SharedChromeService extends ChromeDriverService implements SharedService {
+
+        SharedChromeService(File executable, int port) throws IOException {
+            super(executable, port, START_TIMEOUT, args(port), Collections.emptyMap());
+        }
+
+        @Override
+        public void stop(){
+            // Kept running for next sessions, see 'shutdown()'
+        }
+
+        @Override
+        public void shutdown(){
+            super.stop();
+        }
+    }
+
+    /**
+     * Msedgedriver process which ignores 'stop()' issued on session quit
+     */
+    private static final class SharedEdgeService extends EdgeDriverService implements SharedService {
+
+        SharedEdgeService(File executable, int port) throws IOException {
+            super(executable, port, START_TIMEOUT, args(port), Collections.emptyMap());
+        }
+
+        @Override
+        public void stop(){
+            // Kept running for next sessions, see 'shutdown()'
+        }
+
+        @Override
+        public void shutdown(){
+            super.stop();
+        }
+    }
+}
@@ -0,0 +1,362 @@
+package provider;
+
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.TakesScreenshot;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.logging.LogEntry;
+import org.openqa.selenium.logging.LogType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Captures screenshot, page source, browser console and last page actions of failed tests
+ * Only the browser calls run on the test thread, hashing, compression and disk writes are done by
+ * background thread into '<artifact_dir>/run-<timestamp>' directory of the run
+ * Text artifacts are gzipped, screenshots are stored once per distinct image as 'screenshots/<sha-256>.png'
+ * and referenced from '<test>.txt' summary, so repeated failures on the same screen cost no disk space
+ * Configured in 'parameters.xml':
+ * 'execution/artifacts' -> 'false' disables capture, enabled by default
+ * 'execution/artifact_dir' -> output directory, 'target/artifacts' by default
+ * 'execution/artifact_quota' -> megabytes written per run at most, 256 by default, 0 for no limit
+ * 'execution/artifact_queue' -> failures waiting to be written at most, further captures are dropped, 32 by default
+ */
+public final class FailureArtifacts {
+
+    public static final String DEFAULT_DIR = "target/artifacts";
+
+    private static final Logger logger = Logger.getLogger(FailureArtifacts.class.getName());
+
+    private static final boolean ENABLED;
+    private static final long QUOTA;
+    private static final File DIRECTORY;
+    private static final BlockingQueue<Bundle> QUEUE;
+    private static final Map<String, AtomicInteger> NAMES = new ConcurrentHashMap<>();
+    private static final Set<String> SCREENSHOTS = ConcurrentHashMap.newKeySet();
+    private static final AtomicInteger PENDING = new AtomicInteger();
+    private static final AtomicLong WRITTEN_BYTES = new AtomicLong();
+    private static final AtomicLong WRITTEN = new AtomicLong();
+    private static final AtomicLong DUPLICATES = new AtomicLong();
+    private static final AtomicLong SKIPPED = new AtomicLong();
+    private static final AtomicLong DROPPED = new AtomicLong();
+
+    static {
+        Parameters parameters = Parameters.current();
+        ENABLED = parameters.getBoolean("execution.artifacts", true);
+        QUOTA = parameters.getInt("execution.artifact_quota", 256) * 1024L * 1024L;
+        QUEUE = new ArrayBlockingQueue<>(Math.max(1, parameters.getInt("execution.artifact_queue", 32)));
+        DIRECTORY = new File(parameters.getString("execution.artifact_dir", DEFAULT_DIR),
+                "run-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()));
+        if (ENABLED) {
+            Thread writer = new Thread(FailureArtifacts::drain, "artifact-writer");
+            writer.setDaemon(true);
+            writer.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> flush(30, TimeUnit.SECONDS), "artifact-shutdown"));
+        }
+    }
+
+    private FailureArtifacts(){
+    }
+
+    /**
+     * Returns 'true' unless 'execution/artifacts' is 'false'
+     *
+     * @return boolean
+     */
+    public static boolean isEnabled(){
+        return ENABLED;
+    }
+
+    /**
+     * Captures artifacts of the failed test and hands them over to background writer
+     * Must be called before the driver is released or closed, never throws
+     *
+     * @param driver WebDriver -> driver of the failed test
+     * @param test String -> test method name
+     * @param failure Throwable -> failure of the test, null if unknown
+     */
+    public static void capture(WebDriver driver, String test, Throwable failure){
+        if (!ENABLED || driver == null) return;
+        Bundle bundle = new Bundle();
+        bundle.mName = getFileName(test);
+        bundle.mTest = test;
+        bundle.mTime = System.currentTimeMillis();
+        bundle.mActions = ActionLog.getRecent();
+        if (failure != null) {
+            StringWriter trace = new StringWriter();
+            failure.printStackTrace(new PrintWriter(trace));
+            bundle.mFailure = trace.toString();
+        }
+        try {
+            bundle.mUrl = driver.getCurrentUrl();
+            bundle.mTitle = driver.getTitle();
+        } catch (WebDriverException e){
+            logger.log(Level.FINE, "Page URL was not captured: " + e);
+        }
+        if (driver instanceof TakesScreenshot) {
+            try {
+                bundle.mScreenshot = ((TakesScreenshot) driver).getScreenshotAs(OutputType.BYTES);
+            } catch (WebDriverException | UnsupportedOperationException e){
+                logger.log(Level.FINE, "Screenshot was not captured: " + e);
+            }
+        }
+        try {
+            bundle.mSource = driver.getPageSource();
+        } catch (WebDriverException e){
+            logger.log(Level.FINE, "Page source was not captured: " + e);
+        }
+        try {
+            bundle.mConsole = new ArrayList<>();
+            for (LogEntry entry : driver.manage().logs().get(LogType.BROWSER)) {
+                bundle.mConsole.add(entry.toString());
+            }
+        } catch (WebDriverException | UnsupportedOperationException e){
+            logger.log(Level.FINE, "Browser console was not captured: " + e);
+        }
+        PENDING.incrementAndGet();
+        if (!QUEUE.offer(bundle)) {
+            PENDING.decrementAndGet();
+            DROPPED.incrementAndGet();
+            logger.log(Level.WARNING, "Artifacts of " + test + " were dropped, writer didn't keep up");
+        }
+    }
+
+    /**
+     * Writes every queued capture and waits for the one being written
+     *
+     * @param timeout long -> max time to wait
+     * @param unit TimeUnit -> unit of timeout
+     * @return boolean -> 'true' in case if everything was written in time
+     */
+    public static boolean flush(long timeout, TimeUnit unit){
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        Bundle bundle;
+        while ((bundle = QUEUE.poll()) != null) {
+            write(bundle);
+        }
+        while (PENDING.get() > 0) {
+            if (System.nanoTime() > deadline) return false;
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e){
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns one line summary of the run, empty string if nothing was captured
+     *
+     * @return String
+     */
+    public static String getSummary(){
+        if (WRITTEN.get() == 0 && SKIPPED.get() == 0 && DROPPED.get() == 0) return "";
+        return WRITTEN.get() + " failures captured into " + DIRECTORY.getPath() + " (" + WRITTEN_BYTES.get() / 1024
+                + " KB, " + DUPLICATES.get() + " duplicate screenshots, " + SKIPPED.get()
+                + " files over quota, " + DROPPED.get() + " captures dropped)";
+    }
+
+    /**
+     * Getter for directory of the run
+     *
+     * @return File
+     */
+    public static File getDirectory(){
+        return DIRECTORY;
+    }
+
+    /**
+     * Background writer loop
+     */
+    private static void drain(){
+        while (true) {
+            try {
+                write(QUEUE.take());
+            } catch (InterruptedException e){
+                return;
+            }
+        }
+    }
+
+    /**
+     * Writes artifacts of one failure
+     *
+     * @param bundle Bundle -> captured artifacts
+     */
+    private static void write(Bundle bundle){
+        try {
+            Files.createDirectories(DIRECTORY.toPath());
+            StringBuilder summary = new StringBuilder()
+                    .append("test: ").append(bundle.mTest).append('\n')
+                    .append("time: ").append(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS").format(new Date(bundle.mTime)))
+                    .append('\n')
+                    .append("url: ").append(bundle.mUrl).append('\n')
+                    .append("title: ").append(bundle.mTitle).append('\n');
+            if (bundle.mScreenshot != null) {
+                summary.append("screenshot: ").append(writeScreenshot(bundle.mScreenshot)).append('\n');
+            }
+            if (bundle.mSource != null) {
+                summary.append("source: ").append(writeText(bundle.mName + ".html.gz", bundle.mSource)).append('\n');
+            }
+            if (bundle.mConsole != null && !bundle.mConsole.isEmpty()) {
+                summary.append("console: ").append(writeText(bundle.mName + ".console.log.gz",
+                        String.join("\n", bundle.mConsole))).append('\n');
+            }
+            if (!bundle.mActions.isEmpty()) {
+                summary.append("actions: ").append(writeText(bundle.mName + ".actions.log.gz",
+                        String.join("\n", bundle.mActions))).append('\n');
+            }
+            if (bundle.mFailure != null) {
+                summary.append('\n').append(bundle.mFailure);
+            }
+            writeFile(DIRECTORY.toPath().resolve(bundle.mName + ".txt"),
+                    summary.toString().getBytes(StandardCharsets.UTF_8));
+            WRITTEN.incrementAndGet();
+        } catch (IOException e){
+            logger.log(Level.WARNING, "There was an issue writing artifacts of " + bundle.mTest
+                    + ". Please refer to the following error: " + e);
+        } finally {
+            PENDING.decrementAndGet();
+        }
+    }
+
+    /**
+     * Writes screenshot unless identical one was already written in the run
+     *
+     * @param png byte[] -> PNG image
+     * @return String -> path relative to run directory or reason it was not written
+     */
+    private static String writeScreenshot(byte[] png) throws IOException {
+        String name = "screenshots/" + sha256(png) + ".png";
+        if (!SCREENSHOTS.add(name)) {
+            DUPLICATES.incrementAndGet();
+            return name;
+        }
+        Path path = DIRECTORY.toPath().resolve(name);
+        Files.createDirectories(path.getParent());
+        if (!writeFile(path, png)) {
+            SCREENSHOTS.remove(name);
+            return "skipped, quota exceeded";
+        }
+        return name;
+    }
+
+    /**
+     * Writes gzipped text
+     *
+     * @param name String -> file name
+     * @param text String -> content
+     * @return String -> file name or reason it was not written
+     */
+    private static String writeText(String name, String text) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(512, text.length() / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed, 8192)) {
+            gzip.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+        return writeFile(DIRECTORY.toPath().resolve(name), compressed.toByteArray()) ? name : "skipped, quota exceeded";
+    }
+
+    /**
+     * Writes file through file channel in case if it fits into quota
+     *
+     * @param path Path -> file to create
+     * @param content byte[] -> file content
+     * @return boolean -> 'false' in case if file was skipped because of quota
+     */
+    private static boolean writeFile(Path path, byte[] content) throws IOException {
+        if (QUOTA > 0 && WRITTEN_BYTES.addAndGet(content.length) > QUOTA) {
+            WRITTEN_BYTES.addAndGet(-content.length);
+            if (SKIPPED.getAndIncrement() == 0) {
+                logger.log(Level.WARNING, "Artifact quota of " + QUOTA / 1024 / 1024
+                        + " MB is exceeded, further artifacts are skipped");
+            }
+            return false;
+        }
+        if (QUOTA <= 0) WRITTEN_BYTES.addAndGet(content.length);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(content);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (FileAlreadyExistsException e){
+            WRITTEN_BYTES.addAndGet(-content.length);
+            logger.log(Level.FINE, "Artifact already exists: " + path);
+        }
+        return true;
+    }
+
+    /**
+     * Returns file name of the test unique within the run
+     * Repeated failures of the same test method (e.g. data provider rows) are numbered
+     *
+     * @param test String -> test method name
+     * @return String
+     */
+    private static String getFileName(String test){
+        String name = String.valueOf(test).replaceAll("[^A-Za-z0-9._-]", "_");
+        int count = NAMES.computeIfAbsent(name, key -> new AtomicInteger()).incrementAndGet();
+        return count == 1 ? name : name + "-" + count;
+    }
+
+    /**
+     * Returns hex encoded SHA-256 of content
+     *
+     * @param content byte[]
+     * @return String
+     */
+    private static String sha256(byte[] content){
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e){
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static final class Bundle {
+        private String mName;
+        private String mTest;
+        private long mTime;
+        private String mUrl;
+        private String mTitle;
+        private byte[] mScreenshot;
+        private String mSource;
+        private List<String> mConsole;
+        private List<String> mActions;
+        private String mFailure;
+    }
+}
@@ -0,0 +1,14 @@
+package provider;
+
+import org.openqa.selenium.htmlunit.HtmlUnitDriver;
+
+/**
+ * 'htmlunit' session with resource policy applied to its web client
+ */
+class HtmlUnitBrowser extends HtmlUnitDriver {
+
+    HtmlUnitBrowser(boolean javascript, ResourcePolicy resourcePolicy){
+        super(javascript);
+        resourcePolicy.applyTo(getWebClient());
+    }
+}
@@ -0,0 +1,123 @@
+package provider;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free log-linear histogram of latencies in microseconds
+ * Every power of two range is split into 32 buckets, so percentiles are within ~3% of exact value
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int LINEAR_LIMIT = SUB_BUCKETS * 2;
+    private static final int MAX_EXPONENT = 40;
+    private static final int BUCKETS = LINEAR_LIMIT + (MAX_EXPONENT - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray mCounts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong mCount = new AtomicLong();
+    private final AtomicLong mTotal = new AtomicLong();
+    private final AtomicLong mMax = new AtomicLong();
+
+    /**
+     * Records one latency
+     *
+     * @param micros long -> latency in microseconds
+     */
+    public void record(long micros){
+        long value = Math.max(0, micros);
+        mCounts.incrementAndGet(bucketOf(value));
+        mCount.incrementAndGet();
+        mTotal.addAndGet(value);
+        long max;
+        do {
+            max = mMax.get();
+        } while (value > max && !mMax.compareAndSet(max, value));
+    }
+
+    /**
+     * Getter for number of recorded latencies
+     *
+     * @return long
+     */
+    public long getCount(){
+        return mCount.get();
+    }
+
+    /**
+     * Getter for sum of recorded latencies
+     *
+     * @return long -> microseconds
+     */
+    public long getTotal(){
+        return mTotal.get();
+    }
+
+    /**
+     * Getter for highest recorded latency
+     *
+     * @return long -> microseconds
+     */
+    public long getMax(){
+        return mMax.get();
+    }
+
+    /**
+     * Getter for mean latency
+     *
+     * @return double -> microseconds
+     */
+    public double getMean(){
+        long count = mCount.get();
+        return count == 0 ? 0 : (double) mTotal.get() / count;
+    }
+
+    /**
+     * Returns latency below which provided share of recorded latencies falls
+     *
+     * @param percentile double -> percentile, e.g. 99.0
+     * @return long -> microseconds
+     */
+    public long getPercentile(double percentile){
+        long count = mCount.get();
+        if (count == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += mCounts.get(i);
+            if (seen >= rank) {
+                return Math.min(valueOf(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Returns bucket index of the value
+     *
+     * @param value long -> microseconds
+     * @return int
+     */
+    private static int bucketOf(long value){
+        if (value < LINEAR_LIMIT) return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent >= MAX_EXPONENT) return BUCKETS - 1;
+        int shift = exponent - SUB_BUCKET_BITS;
+        return LINEAR_LIMIT + (exponent - SUB_BUCKET_BITS - 1) * SUB_BUCKETS + (int) ((value >>> shift) - SUB_BUCKETS);
+    }
+
+    /**
+     * Returns middle value of the bucket
+     *
+     * @param bucket int -> bucket index
+     * @return long -> microseconds
+     */
+    private static long valueOf(int bucket){
+        if (bucket < LINEAR_LIMIT) return bucket;
+        int exponent = (bucket - LINEAR_LIMIT) / SUB_BUCKETS + SUB_BUCKET_BITS + 1;
+        long mantissa = (bucket - LINEAR_LIMIT) % SUB_BUCKETS + SUB_BUCKETS;
+        int shift = exponent - SUB_BUCKET_BITS;
+        return (mantissa << shift) + ((1L << shift) >> 1);
+    }
+}
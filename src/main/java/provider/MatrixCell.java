@@ -0,0 +1,222 @@
+package provider;
+
+import org.openqa.selenium.WebDriverException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * One browser configuration of cross-browser matrix
+ * Matrix is declared in 'parameters.xml' as comma separated cells 'profile[:headless|:headed][@WIDTHxHEIGHT]':
+ * 'matrix/cells' -> e.g. 'chrome@1920x1080, chrome:headless@1280x800, firefox, edge:headless'
+ * 'matrix/limits' -> max test methods running at once per profile over all cells, e.g. 'firefox:1, edge:2'
+ * Values a cell doesn't set are taken from 'browser' section
+ */
+public final class MatrixCell {
+
+    public static final String PARAMETER = "tinyuichef.cell";
+    public static final String CELL_KEY = "matrix.cell";
+
+    private static final long ACQUIRE_TIMEOUT_MINUTES = 30;
+    private static final Map<String, MatrixCell> CELLS = new ConcurrentHashMap<>();
+    private static final Logger logger = Logger.getLogger(MatrixCell.class.getName());
+
+    private static volatile Map<String, Semaphore> sLimits;
+
+    private final String mName;
+    private final String mProfile;
+    private final Boolean mHeadless;
+    private final int mWidth, mHeight;
+
+    private MatrixCell(String profile, Boolean headless, int width, int height){
+        mProfile = profile;
+        mHeadless = headless;
+        mWidth = width;
+        mHeight = height;
+        StringBuilder name = new StringBuilder(profile);
+        if (headless != null) name.append(headless ? "-headless" : "-headed");
+        if (width > 0) name.append('-').append(width).append('x').append(height);
+        mName = name.toString();
+    }
+
+    /**
+     * Returns cells of 'matrix/cells'
+     *
+     * @param parameters Parameters -> parameters snapshot
+     * @return List -> cells in declared order, empty list if matrix is not declared
+     */
+    public static List<MatrixCell> getCells(Parameters parameters){
+        List<MatrixCell> cells = new ArrayList<>();
+        for (String cell : parameters.getString("matrix.cells", "").split(",")) {
+            if (!cell.trim().isEmpty()) cells.add(of(cell));
+        }
+        return cells;
+    }
+
+    /**
+     * Returns parsed cell
+     *
+     * @param cell String -> 'profile[:headless|:headed][@WIDTHxHEIGHT]' or cell name
+     * @return MatrixCell
+     * @throws IllegalArgumentException in case if cell can't be parsed
+     */
+    public static MatrixCell of(String cell){
+        return CELLS.computeIfAbsent(cell.trim(), MatrixCell::parse);
+    }
+
+    /**
+     * Parses cell declaration, cell name is accepted as well
+     *
+     * @param cell String -> trimmed declaration
+     * @return MatrixCell
+     */
+    private static MatrixCell parse(String cell){
+        String declaration = cell.replaceFirst("-(?=headless|headed)", ":").replaceFirst("-(?=\\d+x\\d+$)", "@");
+        String size = null;
+        int at = declaration.indexOf('@');
+        if (at >= 0) {
+            size = declaration.substring(at + 1).trim();
+            declaration = declaration.substring(0, at);
+        }
+        Boolean headless = null;
+        int colon = declaration.indexOf(':');
+        if (colon >= 0) {
+            String mode = declaration.substring(colon + 1).trim();
+            if (!mode.equals("headless") && !mode.equals("headed")) {
+                throw new IllegalArgumentException("Unknown mode of matrix cell '" + cell + "': " + mode);
+            }
+            headless = mode.equals("headless");
+            declaration = declaration.substring(0, colon);
+        }
+        String profile = declaration.trim();
+        if (profile.isEmpty()) throw new IllegalArgumentException("Matrix cell without profile: '" + cell + "'");
+        int width = -1, height = -1;
+        if (size != null) {
+            String[] dimensions = size.toLowerCase().split("x");
+            try {
+                width = Integer.parseInt(dimensions[0].trim());
+                height = Integer.parseInt(dimensions[1].trim());
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e){
+                throw new IllegalArgumentException("Invalid window size of matrix cell '" + cell + "': " + size, e);
+            }
+        }
+        return new MatrixCell(profile, headless, width, height);
+    }
+
+    /**
+     * Returns parameters of the cell: profile, mode and window size of the cell on top of provided ones
+     *
+     * @param parameters Parameters -> base parameters
+     * @return ParameterReader
+     */
+    public ParameterReader getParameterReader(Parameters parameters){
+        Map<String, String> values = new HashMap<>();
+        values.put("browser.profile", mProfile);
+        values.put(CELL_KEY, mName);
+        if (mHeadless != null) values.put("browser.headless", String.valueOf(mHeadless));
+        if (mWidth > 0) {
+            values.put("browser.window_width", String.valueOf(mWidth));
+            values.put("browser.window_height", String.valueOf(mHeight));
+            values.put("browser.fullscreen", "false");
+        }
+        return new ParameterReader(parameters.withValues(values));
+    }
+
+    /**
+     * Takes slot of the profile limited with 'matrix/limits', blocks while all slots are taken
+     * Does nothing in case if profile is not limited
+     *
+     * @param profile String -> browser profile
+     */
+    public static void acquire(String profile){
+        Semaphore limit = getLimit(profile);
+        if (limit == null) return;
+        try {
+            if (!limit.tryAcquire(ACQUIRE_TIMEOUT_MINUTES, TimeUnit.MINUTES)) {
+                throw new WebDriverException("Timed out waiting for a free slot of profile: " + profile);
+            }
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new WebDriverException("Interrupted while waiting for a free slot of profile: " + profile, e);
+        }
+    }
+
+    /**
+     * Returns slot taken with 'acquire'
+     *
+     * @param profile String -> browser profile
+     */
+    public static void release(String profile){
+        Semaphore limit = getLimit(profile);
+        if (limit != null) limit.release();
+    }
+
+    /**
+     * Returns semaphore of the profile created from 'matrix/limits' on first use
+     *
+     * @param profile String -> browser profile
+     * @return Semaphore -> semaphore or null if profile is not limited
+     */
+    private static Semaphore getLimit(String profile){
+        Map<String, Semaphore> limits = sLimits;
+        if (limits == null) {
+            synchronized (MatrixCell.class) {
+                if (sLimits == null) sLimits = parseLimits(Parameters.current().getString("matrix.limits", ""));
+                limits = sLimits;
+            }
+        }
+        return limits.get(profile);
+    }
+
+    /**
+     * Parses 'profile:count' pairs
+     *
+     * @param limits String -> comma separated pairs
+     * @return Map -> semaphore by profile
+     */
+    private static Map<String, Semaphore> parseLimits(String limits){
+        Map<String, Semaphore> semaphores = new HashMap<>();
+        for (String limit : limits.split(",")) {
+            if (limit.trim().isEmpty()) continue;
+            String[] pair = limit.split(":");
+            try {
+                if (pair.length != 2) throw new NumberFormatException(limit);
+                semaphores.put(pair[0].trim(), new Semaphore(Math.max(1, Integer.parseInt(pair[1].trim())), true));
+            } catch (NumberFormatException e){
+                logger.log(Level.WARNING, "Skipping malformed matrix limit: " + limit);
+            }
+        }
+        return Collections.unmodifiableMap(semaphores);
+    }
+
+    /**
+     * Getter for cell name, e.g. 'chrome-headless-1280x800'
+     *
+     * @return String
+     */
+    public String getName(){
+        return mName;
+    }
+
+    /**
+     * Getter for browser profile
+     *
+     * @return String
+     */
+    public String getProfile(){
+        return mProfile;
+    }
+
+    @Override
+    public String toString(){
+        return mName;
+    }
+}
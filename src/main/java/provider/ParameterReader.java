@@ -1,32 +1,24 @@
 package provider;
 
-import org.w3c.dom.Document;
-import org.xml.sax.SAXException;
-
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.xpath.*;
-import java.io.File;
-import java.io.IOException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+/**
+ * Reads parameters from 'parameters.xml'
+ * Backed by process-wide 'Parameters' snapshot, so construction is cheap and instances are thread safe
+ */
 public class ParameterReader {
 
-    private String mProfile;
-    private int mWidth, mHeight;
-    private boolean mIsFullscreen, mHeadless;
-
-    private XPath mXPath;
-    private XPathExpression mExpression;
-    private Document mDocument;
+    private final Parameters mParameters;
 
-    private final Logger logger = Logger.getLogger(ParameterReader.class.getName());
+    private static final Logger logger = Logger.getLogger(ParameterReader.class.getName());
 
     public ParameterReader() {
-        setupXMLParser();
-        readParameters();
+        this(Parameters.current());
+    }
+
+    public ParameterReader(Parameters parameters) {
+        mParameters = parameters;
     }
 
     /**
@@ -35,25 +27,32 @@ public class ParameterReader {
      * @return boolean
      */
     public boolean getCustomBoolean(String tag){
-        return parseCustomBoolean(tag);
+        return Boolean.parseBoolean(getCustomString(tag));
     }
 
     /**
      * Getter for custom int value
      *
-     * @return int
+     * @return int -> value or -1 if tag is missing or not a number
      */
     public int getCustomInt(String tag){
-        return parseCustomInt(tag);
+        try {
+            return Integer.parseInt(getCustomString(tag));
+        } catch (NumberFormatException e){
+            logger.log(Level.WARNING,
+                    "There was an issue parsing " + tag + " parameter. Please refer to the following error: " + e);
+            return -1;
+        }
     }
 
     /**
      * Getter for custom String value
+     * Nested tags are addressed by '/' separated path, e.g. 'group/item' for '/parameters/custom/group/item'
      *
-     * @return String
+     * @return String -> value or empty string if tag is missing
      */
     public String getCustomString(String tag){
-        return parseCustomString(tag);
+        return mParameters.getString("custom." + tag.replace('/', '.'), "");
     }
 
     /**
@@ -62,7 +61,7 @@ public class ParameterReader {
      * @return boolean -> 'fullscreen' value
      */
     public boolean getFullscreen(){
-        return mIsFullscreen;
+        return mParameters.getFullscreen();
     }
 
     /**
@@ -71,7 +70,7 @@ public class ParameterReader {
      * @return boolean -> 'headless' value
      */
     public boolean getHeadless(){
-        return mHeadless;
+        return mParameters.getHeadless();
     }
 
     /**
@@ -80,180 +79,78 @@ public class ParameterReader {
      * @return int -> 'window_height' value
      */
     public int getHeight(){
-        return mHeight;
-    }
-
-    /**
-     * Getter for 'profile' value
-     *
-     * @return String -> 'profile' value
-     */
-    public String getProfile(){
-        return mProfile;
+        return mParameters.getHeight();
     }
 
     /**
-     * Getter for 'window_width' value
+     * Getter for 'javascript' value, used by 'htmlunit' profile
      *
-     * @return int -> 'window_width' value
-     */
-    public int getWidth(){
-        return mWidth;
-    }
-
-    /**
-     * Reads parameters from 'parameters.xml'
+     * @return boolean -> 'javascript' value, 'true' if not set
      */
-    private void readParameters() {
-        mHeadless = parseHeadless();
-        mProfile = parseProfile();
-        mIsFullscreen = parseFullscreen();
-        mWidth = parseWidth();
-        mHeight = parseHeight();
+    public boolean getJavascript(){
+        return mParameters.getJavascript();
     }
 
     /**
-     * Parses custom tag boolean value from
+     * Getter for 'pool_size' value
      *
-     * @return boolean
+     * @return int -> 'pool_size' value, 0 if driver pool is disabled
      */
-    private boolean parseCustomBoolean(String tag){
-        try {
-            mExpression = mXPath.compile("/parameters/custom/" + tag + "/text()");
-            return  Boolean.parseBoolean((String) mExpression.evaluate(mDocument, XPathConstants.STRING));
-        } catch (XPathExpressionException e){
-            logger.log(Level.WARNING,
-                    "There was an issue parsing fullscreen parameter. Please refer to the following error: " + e);
-            return false;
-        }
+    public int getPoolSize(){
+        return mParameters.getPoolSize();
     }
 
     /**
-     * Parses custom tag int value from
+     * Getter for 'prelaunch' value
      *
-     * @return int
+     * @return int -> 'prelaunch' value, 0 if pooled sessions are started on demand
      */
-    private int parseCustomInt(String tag){
-        try {
-            mExpression = mXPath.compile("/parameters/custom/" + tag + "/text()");
-            return  Integer.parseInt((String) mExpression.evaluate(mDocument, XPathConstants.STRING));
-        } catch (XPathExpressionException e){
-            logger.log(Level.WARNING,
-                    "There was an issue parsing fullscreen parameter. Please refer to the following error: " + e);
-            return -1;
-        }
+    public int getPrelaunch(){
+        return mParameters.getPrelaunch();
     }
 
     /**
-     * Parses custom tag String value from
-     *
-     * @return String
-     */
-    private String parseCustomString(String tag){
-        try {
-            mExpression = mXPath.compile("/parameters/custom/" + tag + "/text()");
-            return  (String) mExpression.evaluate(mDocument, XPathConstants.STRING);
-        } catch (XPathExpressionException e){
-            logger.log(Level.WARNING,
-                    "There was an issue parsing fullscreen parameter. Please refer to the following error: " + e);
-            return null;
-        }
-    }
-
-    /**
-     * Parses 'fullscreen' value from 'parameters.xml'
+     * Getter for 'profile' value
      *
-     * @return boolean -> 'fullscreen' value
+     * @return String -> 'profile' value, empty string if not set
      */
-    private boolean parseFullscreen(){
-        try {
-            mExpression = mXPath.compile("/parameters/browser/fullscreen/text()");
-            return  Boolean.parseBoolean((String) mExpression.evaluate(mDocument, XPathConstants.STRING));
-        } catch (XPathExpressionException e){
-            logger.log(Level.WARNING,
-                    "There was an issue parsing fullscreen parameter. Please refer to the following error: " + e);
-            return false;
-        }
+    public String getProfile(){
+        return mParameters.getProfile();
     }
 
     /**
-     * Parses 'headless' value from 'parameters.xml'
+     * Getter for name of matrix cell the parameters belong to, see 'MatrixCell'
      *
-     * @return boolean -> 'headless' value
+     * @return String -> cell name or 'profile' value if tests don't run in matrix
      */
-    private boolean parseHeadless(){
-        try {
-            mExpression = mXPath.compile("/parameters/browser/headless/text()");
-            return  Boolean.parseBoolean((String) mExpression.evaluate(mDocument, XPathConstants.STRING));
-        } catch (XPathExpressionException e){
-            logger.log(Level.WARNING,
-                    "There was an issue parsing headless parameter. Please refer to the following error: " + e);
-            return false;
-        }
+    public String getCell(){
+        return mParameters.getString(MatrixCell.CELL_KEY, mParameters.getProfile());
     }
 
     /**
-     * Parses 'window_height' value from 'parameters.xml'
+     * Getter for 'thread_count' value
      *
-     * @return int -> 'window_height' value
+     * @return int -> 'thread_count' value, 0 if tests should run sequentially
      */
-    private int parseHeight(){
-        try {
-            mExpression = mXPath.compile("/parameters/browser/window_height/text()");
-            return  Integer.parseInt((String) mExpression.evaluate(mDocument, XPathConstants.STRING));
-        } catch (XPathExpressionException e){
-            logger.log(Level.WARNING,
-                    "There was an issue parsing height parameter. Please refer to the following error: " + e);
-            return -1;
-        }
+    public int getThreadCount(){
+        return mParameters.getThreadCount();
     }
 
     /**
-     * Parses 'profile' value from 'parameters.xml'
-     *
-     * @return String -> 'profile' value
-     */
-    private String parseProfile(){
-        try {
-            mExpression = mXPath.compile("/parameters/browser/profile/text()");
-            return (String) mExpression.evaluate(mDocument, XPathConstants.STRING);
-        } catch (XPathExpressionException e){
-            logger.log(Level.WARNING,
-                    "There was an issue parsing profile parameter. Please refer to the following error: " + e);
-            return null;
-        }
-    }
-
-    /**
-     * Parses 'window_width' value from 'parameters.xml'
+     * Getter for 'window_width' value
      *
      * @return int -> 'window_width' value
      */
-    private int parseWidth(){
-        try {
-            mExpression = mXPath.compile("/parameters/browser/window_width/text()");
-            return  Integer.parseInt((String) mExpression.evaluate(mDocument, XPathConstants.STRING));
-        } catch (XPathExpressionException e){
-            logger.log(Level.WARNING,
-                    "There was an issue parsing width parameter. Please refer to the following error: " + e);
-            return -1;
-        }
+    public int getWidth(){
+        return mParameters.getWidth();
     }
 
     /**
-     * Sets up xml parser
+     * Getter for underlying parameters snapshot
+     *
+     * @return Parameters
      */
-    private void setupXMLParser(){
-        try {
-            File param = new File("src/test/resources/config/parameters/parameters.xml");
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            DocumentBuilder builder = factory.newDocumentBuilder();
-            mDocument = builder.parse(param);
-            XPathFactory xFactory = XPathFactory.newInstance();
-            mXPath = xFactory.newXPath();
-        } catch (ParserConfigurationException | SAXException | IOException e){
-            logger.log(Level.WARNING,
-                    "There was an issue with setting up parser. Please refer to the following error: " + e);
-        }
+    public Parameters getParameters(){
+        return mParameters;
     }
 }
@@ -0,0 +1,406 @@
+package provider;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Immutable snapshot of 'parameters.xml'
+ * File is parsed once per JVM, every '/parameters/section/tag' value is indexed by 'section.tag' key,
+ * values of nested tags are indexed by full path, e.g. '/parameters/custom/group/item' by 'custom.group.item'
+ * Values can be overridden with '-Dtinyuichef.section.tag=value' or 'TINYUICHEF_SECTION_TAG=value'
+ * System property wins over environment variable, both win over the file
+ */
+public final class Parameters {
+
+    public static final String FILE_PROPERTY = "tinyuichef.parameters";
+    public static final String DEFAULT_FILE = "src/test/resources/config/parameters/parameters.xml";
+
+    private static final String PROPERTY_PREFIX = "tinyuichef.";
+    private static final String ENV_PREFIX = "TINYUICHEF_";
+
+    private static final AtomicReference<Parameters> CURRENT = new AtomicReference<>();
+    private static final AtomicBoolean WATCHING = new AtomicBoolean();
+    private static final Logger logger = Logger.getLogger(Parameters.class.getName());
+
+    private final Map<String, String> mValues;
+    private final String mProfile;
+    private final int mWidth, mHeight, mPoolSize, mPrelaunch, mThreadCount;
+    private final boolean mIsFullscreen, mHeadless, mJavascript;
+
+    private Parameters(Map<String, String> values){
+        mValues = Collections.unmodifiableMap(values);
+        mProfile = getString("browser.profile", "");
+        mHeadless = getBoolean("browser.headless", false);
+        mIsFullscreen = getBoolean("browser.fullscreen", false);
+        mJavascript = getBoolean("browser.javascript", true);
+        mWidth = getInt("browser.window_width", -1);
+        mHeight = getInt("browser.window_height", -1);
+        mPoolSize = getInt("browser.pool_size", 0);
+        mPrelaunch = getInt("browser.prelaunch", 0);
+        mThreadCount = getInt("execution.thread_count", 0);
+    }
+
+    /**
+     * Returns current snapshot, parses 'parameters.xml' on first call
+     * Starts file watcher in case if 'execution/watch_parameters' is 'true'
+     *
+     * @return Parameters
+     */
+    public static Parameters current(){
+        Parameters parameters = CURRENT.get();
+        if (parameters == null) {
+            synchronized (CURRENT) {
+                parameters = CURRENT.get();
+                if (parameters == null) {
+                    parameters = load(getFile(), true);
+                    CURRENT.set(parameters);
+                    if (parameters.getBoolean("execution.watch_parameters", false)) {
+                        watch();
+                    }
+                }
+            }
+        }
+        return parameters;
+    }
+
+    /**
+     * Parses 'parameters.xml' again and atomically replaces current snapshot
+     * Readers holding previous snapshot keep using it
+     * Current snapshot is kept in case if file can't be parsed
+     *
+     * @return Parameters -> current snapshot
+     */
+    public static Parameters reload(){
+        Parameters parameters = load(getFile(), false);
+        if (parameters == null) return current();
+        CURRENT.set(parameters);
+        logger.log(Level.INFO, "Parameters reloaded from: " + getFile());
+        return parameters;
+    }
+
+    /**
+     * Starts daemon thread which reloads snapshot every time 'parameters.xml' is modified
+     * Subsequent calls do nothing
+     */
+    public static void watch(){
+        if (!WATCHING.compareAndSet(false, true)) return;
+        Thread watcher = new Thread(Parameters::watchFile, "parameters-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    /**
+     * Getter for all values of the snapshot
+     *
+     * @return Map -> unmodifiable map of 'section.tag' keys and values
+     */
+    public Map<String, String> asMap(){
+        return mValues;
+    }
+
+    /**
+     * Returns snapshot with provided values replacing values of this one, e.g. profile of matrix cell
+     * Current snapshot is not changed
+     *
+     * @param overrides Map -> 'section.tag' keys and values
+     * @return Parameters -> derived snapshot
+     */
+    public Parameters withValues(Map<String, String> overrides){
+        Map<String, String> values = new HashMap<>(mValues);
+        values.putAll(overrides);
+        return new Parameters(values);
+    }
+
+    /**
+     * Returns value of 'section.tag' key
+     *
+     * @param key String -> 'section.tag' key, e.g. 'browser.profile'
+     * @param defaultValue String -> value returned when key is missing
+     * @return String
+     */
+    public String getString(String key, String defaultValue){
+        String value = mValues.get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    /**
+     * Returns boolean value of 'section.tag' key
+     *
+     * @param key String -> 'section.tag' key
+     * @param defaultValue boolean -> value returned when key is missing
+     * @return boolean
+     */
+    public boolean getBoolean(String key, boolean defaultValue){
+        String value = mValues.get(key);
+        return value == null || value.isEmpty() ? defaultValue : Boolean.parseBoolean(value);
+    }
+
+    /**
+     * Returns int value of 'section.tag' key
+     *
+     * @param key String -> 'section.tag' key
+     * @param defaultValue int -> value returned when key is missing or not a number
+     * @return int
+     */
+    public int getInt(String key, int defaultValue){
+        String value = mValues.get(key);
+        if (value == null || value.isEmpty()) return defaultValue;
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e){
+            logger.log(Level.WARNING, "There was an issue parsing " + key + " parameter. Please refer to the following error: " + e);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Getter for 'browser/profile' value
+     *
+     * @return String -> 'browser/profile' value, empty string if not set
+     */
+    public String getProfile(){
+        return mProfile;
+    }
+
+    /**
+     * Getter for 'browser/headless' value
+     *
+     * @return boolean -> 'browser/headless' value
+     */
+    public boolean getHeadless(){
+        return mHeadless;
+    }
+
+    /**
+     * Getter for 'browser/fullscreen' value
+     *
+     * @return boolean -> 'browser/fullscreen' value
+     */
+    public boolean getFullscreen(){
+        return mIsFullscreen;
+    }
+
+    /**
+     * Getter for 'browser/javascript' value, used by 'htmlunit' profile
+     *
+     * @return boolean -> 'browser/javascript' value, 'true' if not set
+     */
+    public boolean getJavascript(){
+        return mJavascript;
+    }
+
+    /**
+     * Getter for 'browser/window_width' value
+     *
+     * @return int -> 'browser/window_width' value
+     */
+    public int getWidth(){
+        return mWidth;
+    }
+
+    /**
+     * Getter for 'browser/window_height' value
+     *
+     * @return int -> 'browser/window_height' value
+     */
+    public int getHeight(){
+        return mHeight;
+    }
+
+    /**
+     * Getter for 'browser/pool_size' value
+     *
+     * @return int -> 'browser/pool_size' value
+     */
+    public int getPoolSize(){
+        return mPoolSize;
+    }
+
+    /**
+     * Getter for 'browser/prelaunch' value
+     *
+     * @return int -> 'browser/prelaunch' value
+     */
+    public int getPrelaunch(){
+        return mPrelaunch;
+    }
+
+    /**
+     * Getter for 'execution/thread_count' value
+     *
+     * @return int -> 'execution/thread_count' value
+     */
+    public int getThreadCount(){
+        return mThreadCount;
+    }
+
+    /**
+     * Parses file into new snapshot and applies overrides
+     *
+     * @param file File -> 'parameters.xml'
+     * @param lenient boolean -> 'true' to return snapshot holding only overrides when file can't be parsed
+     * @return Parameters -> new snapshot or null if file can't be parsed and 'lenient' is 'false'
+     */
+    static Parameters load(File file, boolean lenient){
+        Map<String, String> values = new HashMap<>();
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            DocumentBuilder builder = factory.newDocumentBuilder();
+            Document document = builder.parse(file);
+            indexSections(document.getDocumentElement(), values);
+        } catch (ParserConfigurationException | SAXException | IOException e){
+            logger.log(Level.WARNING,
+                    "There was an issue with parsing parameters. Please refer to the following error: " + e);
+            if (!lenient) return null;
+        }
+        applyOverrides(values);
+        return new Parameters(values);
+    }
+
+    /**
+     * Indexes text of every '/parameters/section/tag' element by 'section.tag' key
+     *
+     * @param root Element -> 'parameters' element
+     * @param values Map -> index to fill
+     */
+    private static void indexSections(Element root, Map<String, String> values){
+        NodeList sections = root.getChildNodes();
+        for (int i = 0; i < sections.getLength(); i++) {
+            Node section = sections.item(i);
+            if (section.getNodeType() != Node.ELEMENT_NODE) continue;
+            indexTags(section, section.getNodeName(), values);
+        }
+    }
+
+    /**
+     * Indexes text of every tag without child elements by its dot separated path
+     *
+     * @param parent Node -> section or tag holding nested tags
+     * @param path String -> dot separated path of the parent, e.g. 'custom.group'
+     * @param values Map -> index to fill
+     */
+    private static void indexTags(Node parent, String path, Map<String, String> values){
+        NodeList tags = parent.getChildNodes();
+        for (int i = 0; i < tags.getLength(); i++) {
+            Node tag = tags.item(i);
+            if (tag.getNodeType() != Node.ELEMENT_NODE) continue;
+            String key = path + "." + tag.getNodeName();
+            if (hasChildElements(tag)) {
+                indexTags(tag, key, values);
+            } else {
+                values.put(key, tag.getTextContent().trim());
+            }
+        }
+    }
+
+    /**
+     * Returns 'true' in case if node has nested elements
+     *
+     * @param node Node
+     * @return boolean
+     */
+    private static boolean hasChildElements(Node node){
+        for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child.getNodeType() == Node.ELEMENT_NODE) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Applies environment variables and then system properties on top of file values
+     *
+     * @param values Map -> index to update
+     */
+    private static void applyOverrides(Map<String, String> values){
+        Map<String, String> fileKeys = new HashMap<>();
+        for (String key : values.keySet()) {
+            fileKeys.put(toEnvName(key), key);
+        }
+        for (Map.Entry<String, String> env : System.getenv().entrySet()) {
+            String name = env.getKey();
+            if (!name.startsWith(ENV_PREFIX) || name.length() == ENV_PREFIX.length()) continue;
+            String key = fileKeys.get(name);
+            if (key == null) {
+                key = name.substring(ENV_PREFIX.length()).toLowerCase(Locale.ROOT).replaceFirst("_", ".");
+            }
+            values.put(key, env.getValue().trim());
+        }
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (!name.startsWith(PROPERTY_PREFIX) || name.equals(FILE_PROPERTY)) continue;
+            values.put(name.substring(PROPERTY_PREFIX.length()), System.getProperty(name).trim());
+        }
+    }
+
+    /**
+     * Converts 'section.tag' key to 'TINYUICHEF_SECTION_TAG' variable name
+     *
+     * @param key String
+     * @return String
+     */
+    private static String toEnvName(String key){
+        return ENV_PREFIX + key.replace('.', '_').toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Returns 'parameters.xml' location, can be changed with '-Dtinyuichef.parameters=path'
+     *
+     * @return File
+     */
+    private static File getFile(){
+        return new File(System.getProperty(FILE_PROPERTY, DEFAULT_FILE)).getAbsoluteFile();
+    }
+
+    /**
+     * Watches parent directory of 'parameters.xml' and reloads snapshot on change
+     */
+    private static void watchFile(){
+        File file = getFile();
+        Path directory = file.getParentFile().toPath();
+        try (WatchService service = FileSystems.getDefault().newWatchService()) {
+            directory.register(service, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_CREATE);
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = service.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    Object context = event.context();
+                    if (context instanceof Path && file.getName().equals(context.toString())) {
+                        changed = true;
+                    }
+                }
+                if (changed) {
+                    reload();
+                }
+                if (!key.reset()) break;
+            }
+        } catch (IOException e){
+            logger.log(Level.WARNING,
+                    "There was an issue watching parameters. Please refer to the following error: " + e);
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+        WATCHING.set(false);
+    }
+}
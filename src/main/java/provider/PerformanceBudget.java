@@ -0,0 +1,249 @@
+package provider;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Client-side performance budgets of page objects
+ * Page timings (see 'page.PageTiming') are checked against limits and against history of previous runs,
+ * samples are aggregated per page object, browser variant and metric and appended to trend file after the run
+ * Variant is the matrix cell or the profile, e.g. 'LoginPage[chrome-headless-1280x800]', so browsers are
+ * never compared with each other, limits apply to every variant of the page
+ * Configured in 'parameters.xml':
+ * 'budget/mode' -> 'off', 'warn' or 'fail', 'warn' by default
+ * 'budget/<metric>' -> limit of the metric for every page, e.g. 'budget/load' = 3000 (milliseconds)
+ * 'budget/<Page>.<metric>' -> limit for one page object class, e.g. 'budget/LoginPage.load' = 1500
+ * 'budget/regression' -> percent over historical median treated as regression, 50 by default, 0 disables
+ * 'budget/regression_min' -> smallest difference from the median treated as regression, 50 by default
+ * 'budget/history' -> number of previous runs the median is taken from, 10 by default, at least 3 are needed
+ * 'budget/trend_file' -> trend CSV file, 'target/performance/trend.csv' by default
+ * Trend file has one row per page object variant and metric of every run:
+ * 'run,page,metric,samples,median,p95,max', so it can be fed to dashboards as is
+ */
+public final class PerformanceBudget {
+
+    public static final String DEFAULT_TREND_FILE = "target/performance/trend.csv";
+
+    private static final String HEADER = "run,page,metric,samples,median,p95,max";
+    private static final int MIN_HISTORY = 3;
+    private static final String[] SETTINGS = {"mode", "regression", "regression_min", "history", "trend_file"};
+    private static final Logger logger = Logger.getLogger(PerformanceBudget.class.getName());
+
+    private static volatile PerformanceBudget sCurrent;
+
+    private final String mMode;
+    private final File mTrendFile;
+    private final Map<String, Double> mLimits;
+    private final double mRegression, mRegressionMin;
+    private final Map<String, Double> mBaseline;
+    private final String mRun = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+    private final Map<String, List<Double>> mSamples = new TreeMap<>();
+
+    PerformanceBudget(Parameters parameters){
+        mMode = parameters.getString("budget.mode", "warn").trim().toLowerCase(Locale.ROOT);
+        mTrendFile = new File(parameters.getString("budget.trend_file", DEFAULT_TREND_FILE));
+        mRegression = parameters.getInt("budget.regression", 50) / 100.0;
+        mRegressionMin = parameters.getInt("budget.regression_min", 50);
+        mLimits = readLimits(parameters);
+        mBaseline = mRegression > 0 ? readBaseline(mTrendFile, Math.max(1, parameters.getInt("budget.history", 10)))
+                : Collections.<String, Double>emptyMap();
+    }
+
+    /**
+     * Returns budgets of the run, reads limits and trend file on first call
+     *
+     * @return PerformanceBudget
+     */
+    public static PerformanceBudget current(){
+        PerformanceBudget budget = sCurrent;
+        if (budget == null) {
+            synchronized (PerformanceBudget.class) {
+                if (sCurrent == null) sCurrent = new PerformanceBudget(Parameters.current());
+                budget = sCurrent;
+            }
+        }
+        return budget;
+    }
+
+    /**
+     * Returns 'true' unless 'budget/mode' is 'off'
+     *
+     * @return boolean
+     */
+    public boolean isEnabled(){
+        return !mMode.equals("off");
+    }
+
+    /**
+     * Returns 'true' in case if 'budget/mode' is 'fail' and violations must fail the test
+     *
+     * @return boolean
+     */
+    public boolean isFailing(){
+        return mMode.equals("fail");
+    }
+
+    /**
+     * Records timings of the page and checks them against limits and historical median of the same variant
+     *
+     * @param page String -> page object name, e.g. 'LoginPage'
+     * @param variant String -> matrix cell or browser profile, empty if unknown
+     * @param metrics Map -> metric values by name
+     * @return List -> human readable violations, empty if page is within budget
+     */
+    public List<String> check(String page, String variant, Map<String, Double> metrics){
+        List<String> violations = new ArrayList<>();
+        if (!isEnabled()) return violations;
+        String key = variant == null || variant.isEmpty() ? page : page + '[' + variant + ']';
+        for (Map.Entry<String, Double> metric : metrics.entrySet()) {
+            String name = metric.getKey();
+            double value = metric.getValue();
+            synchronized (mSamples) {
+                mSamples.computeIfAbsent(key + ',' + name, k -> new ArrayList<>()).add(value);
+            }
+            Double limit = mLimits.get(page + '.' + name);
+            if (limit == null) limit = mLimits.get(name);
+            if (limit != null && value > limit) {
+                violations.add(key + " " + name + " = " + format(value) + " is over budget " + format(limit));
+            }
+            Double baseline = mBaseline.get(key + ',' + name);
+            if (baseline != null && value > baseline * (1 + mRegression) && value - baseline >= mRegressionMin) {
+                violations.add(key + " " + name + " = " + format(value) + " regressed from median " + format(baseline)
+                        + " of previous runs");
+            }
+        }
+        return violations;
+    }
+
+    /**
+     * Appends samples recorded since previous call to trend file, one row per page object and metric
+     */
+    public void save(){
+        Map<String, List<Double>> samples;
+        synchronized (mSamples) {
+            if (mSamples.isEmpty()) return;
+            samples = new TreeMap<>(mSamples);
+            mSamples.clear();
+        }
+        synchronized (this) {
+            try {
+                File parent = mTrendFile.getAbsoluteFile().getParentFile();
+                if (parent != null) Files.createDirectories(parent.toPath());
+                boolean created = !mTrendFile.isFile();
+                try (Writer writer = Files.newBufferedWriter(mTrendFile.toPath(), StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                    if (created) writer.write(HEADER + "\n");
+                    for (Map.Entry<String, List<Double>> entry : samples.entrySet()) {
+                        List<Double> values = entry.getValue();
+                        Collections.sort(values);
+                        writer.write(mRun + "," + entry.getKey() + "," + values.size() + "," + format(percentile(values, 50))
+                                + "," + format(percentile(values, 95)) + "," + format(values.get(values.size() - 1)) + "\n");
+                    }
+                }
+                logger.log(Level.INFO, "Page timings of " + samples.size() + " page metrics written to: " + mTrendFile.getPath());
+            } catch (IOException e){
+                logger.log(Level.WARNING,
+                        "There was an issue writing page timing trend. Please refer to the following error: " + e);
+            }
+        }
+    }
+
+    /**
+     * Reads 'budget/<metric>' and 'budget/<Page>.<metric>' limits
+     *
+     * @param parameters Parameters
+     * @return Map -> limit by metric or 'Page.metric'
+     */
+    private static Map<String, Double> readLimits(Parameters parameters){
+        Map<String, Double> limits = new HashMap<>();
+        List<String> settings = Arrays.asList(SETTINGS);
+        for (Map.Entry<String, String> entry : parameters.asMap().entrySet()) {
+            if (!entry.getKey().startsWith("budget.")) continue;
+            String name = entry.getKey().substring("budget.".length());
+            if (settings.contains(name)) continue;
+            try {
+                limits.put(name, Double.parseDouble(entry.getValue().trim()));
+            } catch (NumberFormatException e){
+                logger.log(Level.WARNING, "Skipping malformed budget " + name + ": " + entry.getValue());
+            }
+        }
+        return limits;
+    }
+
+    /**
+     * Reads median of every page metric over last runs of trend file
+     *
+     * @param file File -> trend file
+     * @param history int -> number of last runs to use
+     * @return Map -> median of run medians by 'page,metric', only metrics with enough history
+     */
+    static Map<String, Double> readBaseline(File file, int history){
+        Map<String, List<Double>> runs = new HashMap<>();
+        if (file.isFile()) {
+            try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] columns = line.split(",");
+                    if (columns.length < 5 || line.startsWith("run,")) continue;
+                    try {
+                        runs.computeIfAbsent(columns[1] + ',' + columns[2], key -> new ArrayList<>())
+                                .add(Double.parseDouble(columns[4]));
+                    } catch (NumberFormatException e){
+                        logger.log(Level.FINE, "Skipping malformed trend line: " + line);
+                    }
+                }
+            } catch (IOException e){
+                logger.log(Level.WARNING,
+                        "There was an issue reading page timing trend. Please refer to the following error: " + e);
+            }
+        }
+        Map<String, Double> baseline = new HashMap<>();
+        for (Map.Entry<String, List<Double>> entry : runs.entrySet()) {
+            List<Double> medians = entry.getValue();
+            if (medians.size() < MIN_HISTORY) continue;
+            List<Double> last = new ArrayList<>(medians.subList(Math.max(0, medians.size() - history), medians.size()));
+            Collections.sort(last);
+            baseline.put(entry.getKey(), percentile(last, 50));
+        }
+        return baseline;
+    }
+
+    /**
+     * Returns nearest-rank percentile of sorted values
+     *
+     * @param sorted List -> sorted values, not empty
+     * @param percentile int -> 1..100
+     * @return double
+     */
+    private static double percentile(List<Double> sorted, int percentile){
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.size());
+        return sorted.get(Math.max(0, rank - 1));
+    }
+
+    /**
+     * Formats value with at most one decimal
+     *
+     * @param value double
+     * @return String
+     */
+    private static String format(double value){
+        return value == Math.rint(value) ? String.valueOf((long) value) : String.format(Locale.ROOT, "%.1f", value);
+    }
+}
@@ -0,0 +1,291 @@
+package provider;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Snapshot of processes of the machine read from '/proc', Linux only
+ * Knows parent, command line, resident memory and age of every process,
+ * used to find browser and driver processes of sessions and to count browsers
+ * NOTE: age assumes kernel clock of 100 ticks per second, which is the case on every common Linux build
+ */
+final class ProcessTable {
+
+    private static final File PROC = new File("/proc");
+    private static final long TICKS_PER_SECOND = 100;
+    private static final long PAGE_KB = 4;
+    private static final Logger logger = Logger.getLogger(ProcessTable.class.getName());
+
+    private final Map<Integer, Entry> mEntries;
+    private final Map<Integer, List<Integer>> mChildren = new HashMap<>();
+    private final double mUptimeSeconds;
+
+    private ProcessTable(Map<Integer, Entry> entries, double uptimeSeconds){
+        mEntries = entries;
+        mUptimeSeconds = uptimeSeconds;
+        for (Map.Entry<Integer, Entry> entry : entries.entrySet()) {
+            mChildren.computeIfAbsent(entry.getValue().mParent, key -> new ArrayList<>()).add(entry.getKey());
+        }
+    }
+
+    /**
+     * Returns 'true' in case if processes can be listed
+     *
+     * @return boolean
+     */
+    static boolean isSupported(){
+        return new File(PROC, "self/stat").isFile();
+    }
+
+    /**
+     * Reads every process of the machine
+     *
+     * @return ProcessTable -> snapshot, empty in case if '/proc' is missing
+     */
+    static ProcessTable read(){
+        Map<Integer, Entry> entries = new HashMap<>();
+        File[] processes = PROC.listFiles((dir, name) -> !name.isEmpty() && name.chars().allMatch(Character::isDigit));
+        if (processes != null) {
+            for (File process : processes) {
+                Entry entry = readEntry(process);
+                if (entry != null) entries.put(Integer.parseInt(process.getName()), entry);
+            }
+        }
+        return new ProcessTable(entries, readUptime());
+    }
+
+    /**
+     * Returns id of this JVM process
+     *
+     * @return int -> pid or -1 if unknown
+     */
+    static int getOwnPid(){
+        try {
+            return Integer.parseInt(Files.readSymbolicLink(Paths.get("/proc/self")).toString());
+        } catch (IOException | UnsupportedOperationException | NumberFormatException e){
+            return -1;
+        }
+    }
+
+    /**
+     * Kills processes at once with SIGKILL
+     *
+     * @param pids Collection -> process ids
+     */
+    static void kill(Collection<Integer> pids){
+        if (pids.isEmpty()) return;
+        List<String> command = new ArrayList<>();
+        command.add("kill");
+        command.add("-9");
+        for (Integer pid : pids) {
+            command.add(String.valueOf(pid));
+        }
+        try {
+            new ProcessBuilder(command).redirectErrorStream(true).start().waitFor();
+        } catch (IOException e){
+            logger.log(Level.WARNING, "There was an issue killing processes " + pids
+                    + ". Please refer to the following error: " + e);
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Getter for ids of every process
+     *
+     * @return Set
+     */
+    Set<Integer> getPids(){
+        return Collections.unmodifiableSet(mEntries.keySet());
+    }
+
+    /**
+     * Returns 'true' in case if process exists
+     *
+     * @param pid int
+     * @return boolean
+     */
+    boolean isAlive(int pid){
+        return mEntries.containsKey(pid);
+    }
+
+    /**
+     * Returns parent of the process
+     *
+     * @param pid int
+     * @return int -> parent pid or -1 if process is gone
+     */
+    int getParent(int pid){
+        Entry entry = mEntries.get(pid);
+        return entry != null ? entry.mParent : -1;
+    }
+
+    /**
+     * Returns every descendant of the process, children first
+     *
+     * @param pid int
+     * @return Set -> descendant pids, process itself is not included
+     */
+    Set<Integer> getDescendants(int pid){
+        Set<Integer> descendants = new LinkedHashSet<>();
+        Deque<Integer> pending = new ArrayDeque<>(mChildren.getOrDefault(pid, Collections.emptyList()));
+        while (!pending.isEmpty()) {
+            Integer child = pending.poll();
+            if (descendants.add(child)) pending.addAll(mChildren.getOrDefault(child, Collections.emptyList()));
+        }
+        return descendants;
+    }
+
+    /**
+     * Returns 'true' in case if the process descends from another one
+     *
+     * @param pid int -> process
+     * @param ancestor int -> possible ancestor
+     * @return boolean
+     */
+    boolean isDescendant(int pid, int ancestor){
+        Set<Integer> visited = new LinkedHashSet<>();
+        int current = getParent(pid);
+        while (current > 0 && visited.add(current)) {
+            if (current == ancestor) return true;
+            current = getParent(current);
+        }
+        return false;
+    }
+
+    /**
+     * Returns resident memory of the process
+     *
+     * @param pid int
+     * @return long -> kilobytes, 0 if process is gone
+     */
+    long getRssKb(int pid){
+        Entry entry = mEntries.get(pid);
+        return entry != null ? entry.mRssPages * PAGE_KB : 0;
+    }
+
+    /**
+     * Returns time since the process was started
+     *
+     * @param pid int
+     * @return long -> milliseconds, 0 if process is gone
+     */
+    long getAgeMillis(int pid){
+        Entry entry = mEntries.get(pid);
+        if (entry == null) return 0;
+        return Math.max(0, Math.round((mUptimeSeconds - entry.mStartTicks / (double) TICKS_PER_SECOND) * 1000));
+    }
+
+    /**
+     * Returns executable name of the process, e.g. 'chrome'
+     *
+     * @param pid int
+     * @return String -> name or empty string if process is gone
+     */
+    String getName(int pid){
+        Entry entry = mEntries.get(pid);
+        if (entry == null) return "";
+        return entry.mArgs.length > 0 && !entry.mArgs[0].isEmpty() ? new File(entry.mArgs[0]).getName() : entry.mName;
+    }
+
+    /**
+     * Returns 'true' in case if process is browser main process (chrome, chromium, msedge, firefox)
+     * Renderer and content processes are not
+     *
+     * @param pid int
+     * @return boolean
+     */
+    boolean isBrowser(int pid){
+        Entry entry = mEntries.get(pid);
+        if (entry == null) return false;
+        String name = getName(pid);
+        boolean chromium = name.equals("chrome") || name.equals("chromium") || name.equals("chromium-browser")
+                || name.equals("msedge");
+        boolean firefox = name.equals("firefox") || name.equals("firefox-bin") || name.equals("firefox-esr");
+        if (!chromium && !firefox) return false;
+        for (String arg : entry.mArgs) {
+            if (chromium && arg.startsWith("--type=")) return false;
+            if (firefox && arg.equals("-contentproc")) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Finds browser main process started with the argument, e.g. '--user-data-dir=/tmp/profile'
+     *
+     * @param argument String -> exact command line argument
+     * @return int -> pid or -1 if not found
+     */
+    int findBrowser(String argument){
+        for (Map.Entry<Integer, Entry> entry : mEntries.entrySet()) {
+            for (String arg : entry.getValue().mArgs) {
+                if (arg.equals(argument) && isBrowser(entry.getKey())) return entry.getKey();
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Reads '/proc/<pid>/stat' and '/proc/<pid>/cmdline'
+     *
+     * @param process File -> process directory
+     * @return Entry -> entry or null if process is gone
+     */
+    private static Entry readEntry(File process){
+        try {
+            String stat = new String(Files.readAllBytes(new File(process, "stat").toPath()), StandardCharsets.UTF_8);
+            int open = stat.indexOf('('), close = stat.lastIndexOf(')');
+            String[] fields = stat.substring(close + 2).split(" ");
+            Entry entry = new Entry();
+            entry.mName = stat.substring(open + 1, close);
+            entry.mParent = Integer.parseInt(fields[1]);
+            entry.mStartTicks = Long.parseLong(fields[19]);
+            entry.mRssPages = Long.parseLong(fields[21]);
+            byte[] cmdline = Files.readAllBytes(new File(process, "cmdline").toPath());
+            entry.mArgs = cmdline.length == 0 ? new String[0] : new String(cmdline, StandardCharsets.UTF_8).split("\u0000");
+            return entry;
+        } catch (IOException | RuntimeException e){
+            return null;
+        }
+    }
+
+    /**
+     * Reads seconds since boot
+     *
+     * @return double
+     */
+    private static double readUptime(){
+        try {
+            String uptime = new String(Files.readAllBytes(Paths.get("/proc/uptime")), StandardCharsets.US_ASCII);
+            return Double.parseDouble(uptime.trim().split("\\s+")[0]);
+        } catch (IOException | RuntimeException e){
+            return 0;
+        }
+    }
+
+    /**
+     * One process of the snapshot
+     */
+    private static final class Entry {
+        private String mName;
+        private int mParent;
+        private long mStartTicks;
+        private long mRssPages;
+        private String[] mArgs;
+    }
+}
@@ -0,0 +1,113 @@
+package provider;
+
+import org.openqa.selenium.Capabilities;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.remote.HttpCommandExecutor;
+import org.openqa.selenium.remote.RemoteWebDriver;
+import org.openqa.selenium.remote.http.ClientConfig;
+
+import java.net.URL;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Session of 'remote' profile, sends commands through shared 'RemoteTransport'
+ * Number of sessions open at once is limited with 'remote/max_sessions', 0 or missing for no limit,
+ * new session waits up to 'remote/session_wait' seconds (300 by default) for a free slot
+ * Slot is freed on 'quit()' or when 'close()' ends the session
+ */
+class RemoteBrowser extends RemoteWebDriver {
+
+    private static Semaphore sSessions;
+
+    private final AtomicBoolean mReleased = new AtomicBoolean();
+
+    private RemoteBrowser(HttpCommandExecutor executor, Capabilities capabilities){
+        super(executor, capabilities);
+    }
+
+    /**
+     * Starts new session on the endpoint
+     *
+     * @param url URL -> Grid or driver server endpoint
+     * @param capabilities Capabilities -> requested browser
+     * @return RemoteBrowser
+     */
+    static RemoteBrowser start(URL url, Capabilities capabilities){
+        Parameters parameters = Parameters.current();
+        Semaphore sessions = getSessions(parameters);
+        if (sessions != null) {
+            int wait = parameters.getInt("remote.session_wait", 300);
+            try {
+                if (!sessions.tryAcquire(wait, TimeUnit.SECONDS)) {
+                    throw new WebDriverException("Timed out waiting for free remote session slot of: " + url);
+                }
+            } catch (InterruptedException e){
+                Thread.currentThread().interrupt();
+                throw new WebDriverException("Interrupted while waiting for free remote session slot of: " + url, e);
+            }
+        }
+        try {
+            ClientConfig config = ClientConfig.defaultConfig()
+                    .baseUrl(url)
+                    .readTimeout(Duration.ofSeconds(parameters.getInt("remote.read_timeout", 180)));
+            HttpCommandExecutor executor = new HttpCommandExecutor(Collections.emptyMap(), config,
+                    RemoteTransport.getInstance());
+            return new RemoteBrowser(executor, capabilities);
+        } catch (RuntimeException e){
+            if (sessions != null) sessions.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public void quit(){
+        try {
+            super.quit();
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * Closes current window, frees session slot in case if it was the last window
+     */
+    @Override
+    public void close(){
+        super.close();
+        try {
+            if (getWindowHandles().isEmpty()) release();
+        } catch (WebDriverException e){
+            release();
+        }
+    }
+
+    /**
+     * Frees session slot once
+     */
+    private void release(){
+        Semaphore sessions = sSessions;
+        if (sessions != null && mReleased.compareAndSet(false, true)) {
+            sessions.release();
+        }
+    }
+
+    /**
+     * Returns session limiter, created on first call
+     *
+     * @param parameters Parameters -> 'parameters.xml'
+     * @return Semaphore -> limiter or null if sessions are not limited
+     */
+    private static synchronized Semaphore getSessions(Parameters parameters){
+        if (sSessions == null) {
+            int maxSessions = parameters.getInt("remote.max_sessions", 0);
+            if (maxSessions > 0) {
+                sSessions = new Semaphore(maxSessions, true);
+            }
+        }
+        return sSessions;
+    }
+}
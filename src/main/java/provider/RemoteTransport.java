@@ -0,0 +1,246 @@
+package provider;
+
+import org.asynchttpclient.AsyncHttpClient;
+import org.asynchttpclient.DefaultAsyncHttpClientConfig;
+import org.asynchttpclient.Dsl;
+import org.asynchttpclient.RequestBuilder;
+import org.asynchttpclient.Response;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.remote.http.ClientConfig;
+import org.openqa.selenium.remote.http.HttpClient;
+import org.openqa.selenium.remote.http.HttpHandler;
+import org.openqa.selenium.remote.http.HttpRequest;
+import org.openqa.selenium.remote.http.HttpResponse;
+import org.openqa.selenium.remote.http.WebSocket;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Command transport of 'remote' profile
+ * Every remote session sends its commands through one process-wide connection pool with HTTP keep-alive,
+ * so a command reuses open connection instead of connecting to the Grid again
+ * Configured in 'parameters.xml':
+ * 'remote/max_connections' -> max open connections in total, 256 by default
+ * 'remote/max_connections_per_host' -> max open connections to one endpoint, 256 by default
+ * 'remote/keep_alive' -> seconds idle connection is kept open, 60 by default
+ * 'remote/connect_timeout' -> seconds, 10 by default
+ * 'remote/read_timeout' -> seconds to wait for command response, 180 by default
+ * WebSocket connections (e.g. DevTools) are opened with Selenium default client
+ */
+public final class RemoteTransport implements HttpClient.Factory {
+
+    private static final Logger logger = Logger.getLogger(RemoteTransport.class.getName());
+
+    private static RemoteTransport sInstance;
+
+    private final AsyncHttpClient mClient;
+    private final int mReadTimeoutSeconds;
+
+    private RemoteTransport(Parameters parameters){
+        mReadTimeoutSeconds = parameters.getInt("remote.read_timeout", 180);
+        DefaultAsyncHttpClientConfig config = new DefaultAsyncHttpClientConfig.Builder()
+                .setThreadPoolName("remote-transport")
+                .setKeepAlive(true)
+                .setMaxConnections(parameters.getInt("remote.max_connections", 256))
+                .setMaxConnectionsPerHost(parameters.getInt("remote.max_connections_per_host", 256))
+                .setPooledConnectionIdleTimeout((int) TimeUnit.SECONDS.toMillis(parameters.getInt("remote.keep_alive", 60)))
+                .setConnectTimeout((int) TimeUnit.SECONDS.toMillis(parameters.getInt("remote.connect_timeout", 10)))
+                .setReadTimeout((int) TimeUnit.SECONDS.toMillis(mReadTimeoutSeconds))
+                .setRequestTimeout((int) TimeUnit.SECONDS.toMillis(mReadTimeoutSeconds))
+                .setFollowRedirect(false)
+                .build();
+        mClient = Dsl.asyncHttpClient(config);
+    }
+
+    /**
+     * Returns process-wide transport, created on first call from 'parameters.xml'
+     * Connection pool is closed on JVM shutdown
+     *
+     * @return RemoteTransport
+     */
+    public static synchronized RemoteTransport getInstance(){
+        if (sInstance == null) {
+            sInstance = new RemoteTransport(Parameters.current());
+            ShutdownSequence.install();
+        }
+        return sInstance;
+    }
+
+    /**
+     * Creates client bound to the endpoint of the config
+     * Clients are lightweight views over the shared connection pool
+     *
+     * @param config ClientConfig -> endpoint, filters and credentials
+     * @return HttpClient
+     */
+    @Override
+    public HttpClient createClient(ClientConfig config){
+        return new PooledClient(config);
+    }
+
+    /**
+     * Closes connection pool of the process-wide transport, in case if it was created
+     * Called automatically on JVM shutdown, after remote sessions are quit
+     */
+    static synchronized void closeInstance(){
+        if (sInstance != null) {
+            sInstance.close();
+            sInstance = null;
+        }
+    }
+
+    /**
+     * Closes connection pool
+     */
+    private void close(){
+        try {
+            mClient.close();
+        } catch (IOException e){
+            logger.log(Level.FINE, "Error while closing remote transport: " + e);
+        }
+    }
+
+    /**
+     * Sends request through the shared connection pool
+     *
+     * @param config ClientConfig -> endpoint
+     * @param request HttpRequest -> Selenium request
+     * @return HttpResponse
+     */
+    private HttpResponse send(ClientConfig config, HttpRequest request){
+        RequestBuilder builder = new RequestBuilder(request.getMethod().name())
+                .setUrl(toUrl(config, request));
+        for (String name : request.getHeaderNames()) {
+            for (String value : request.getHeaders(name)) {
+                builder.addHeader(name, value);
+            }
+        }
+        try (InputStream content = request.getContent().get()) {
+            byte[] body = toBytes(content);
+            if (body.length > 0) {
+                builder.setBody(body);
+            }
+        } catch (IOException e){
+            throw new UncheckedIOException(e);
+        }
+        try {
+            Response response = mClient.executeRequest(builder.build())
+                    .get(mReadTimeoutSeconds + 1L, TimeUnit.SECONDS);
+            HttpResponse result = new HttpResponse().setStatus(response.getStatusCode());
+            for (Map.Entry<String, String> header : response.getHeaders()) {
+                result.addHeader(header.getKey(), header.getValue());
+            }
+            byte[] body = response.getResponseBodyAsBytes();
+            result.setContent(() -> new ByteArrayInputStream(body));
+            return result;
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new WebDriverException("Interrupted while sending remote command: " + request.getUri(), e);
+        } catch (ExecutionException e){
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof IOException) throw new UncheckedIOException((IOException) cause);
+            throw new WebDriverException("Remote command failed: " + request.getUri(), cause);
+        } catch (TimeoutException e){
+            throw new org.openqa.selenium.TimeoutException("Remote command timed out: " + request.getUri(), e);
+        }
+    }
+
+    /**
+     * Builds absolute URL of the request
+     *
+     * @param config ClientConfig -> endpoint
+     * @param request HttpRequest -> request with relative URI
+     * @return String
+     */
+    private static String toUrl(ClientConfig config, HttpRequest request){
+        String base = config.baseUri().toString();
+        if (base.endsWith("/")) base = base.substring(0, base.length() - 1);
+        StringBuilder url = new StringBuilder(base).append(request.getUri());
+        char separator = request.getUri().contains("?") ? '&' : '?';
+        for (String name : request.getQueryParameterNames()) {
+            for (String value : request.getQueryParameters(name)) {
+                url.append(separator).append(encode(name)).append('=').append(encode(value));
+                separator = '&';
+            }
+        }
+        return url.toString();
+    }
+
+    /**
+     * URL encodes query parameter
+     *
+     * @param value String
+     * @return String
+     */
+    private static String encode(String value){
+        try {
+            return URLEncoder.encode(value, StandardCharsets.UTF_8.name());
+        } catch (IOException e){
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads whole stream
+     *
+     * @param stream InputStream
+     * @return byte[]
+     */
+    private static byte[] toBytes(InputStream stream) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = stream.read(buffer)) != -1) {
+            bytes.write(buffer, 0, read);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Client of one endpoint, applies filters of its config (e.g. user agent) before sending
+     */
+    private final class PooledClient implements HttpClient {
+
+        private final ClientConfig mConfig;
+        private final HttpHandler mHandler;
+        private HttpClient mSockets;
+
+        PooledClient(ClientConfig config){
+            mConfig = config;
+            mHandler = config.filter().andFinally(request -> send(config, request));
+        }
+
+        @Override
+        public HttpResponse execute(HttpRequest request){
+            return mHandler.execute(request);
+        }
+
+        @Override
+        public synchronized WebSocket openSocket(HttpRequest request, WebSocket.Listener listener){
+            if (mSockets == null) {
+                mSockets = HttpClient.Factory.createDefault().createClient(mConfig);
+            }
+            return mSockets.openSocket(request, listener);
+        }
+
+        @Override
+        public synchronized void close(){
+            if (mSockets != null) {
+                mSockets.close();
+                mSockets = null;
+            }
+        }
+    }
+}
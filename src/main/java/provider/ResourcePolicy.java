@@ -0,0 +1,223 @@
+package provider;
+
+import com.gargoylesoftware.htmlunit.HttpMethod;
+import com.gargoylesoftware.htmlunit.WebClient;
+import com.gargoylesoftware.htmlunit.WebRequest;
+import com.gargoylesoftware.htmlunit.WebResponse;
+import com.gargoylesoftware.htmlunit.WebResponseData;
+import com.gargoylesoftware.htmlunit.util.WebConnectionWrapper;
+import org.openqa.selenium.PageLoadStrategy;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.chromium.ChromiumDriver;
+import org.openqa.selenium.chromium.ChromiumOptions;
+import org.openqa.selenium.firefox.FirefoxOptions;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Page load and resource settings of 'parameters.xml' mapped to options of every supported browser:
+ * 'browser/page_load_strategy' -> normal, eager or none, browser default if not set
+ * 'browser/blocked_urls' -> comma separated URL patterns, '*' matches any characters, e.g. '*.mp4,*analytics*'
+ * 'browser/disable_images' -> 'true' to skip image downloads
+ * 'browser/disable_extensions' -> 'true' to start browser without extensions
+ * 'browser/cache' -> 'false' to disable browser cache
+ */
+public final class ResourcePolicy {
+
+    private static final AtomicBoolean FIREFOX_BLOCKING_WARNED = new AtomicBoolean();
+    private static final Logger logger = Logger.getLogger(ResourcePolicy.class.getName());
+
+    private final PageLoadStrategy mPageLoadStrategy;
+    private final List<String> mBlockedUrls;
+    private final List<Pattern> mBlockedPatterns;
+    private final boolean mDisableImages, mDisableExtensions, mCache;
+
+    public ResourcePolicy(Parameters parameters){
+        mPageLoadStrategy = toPageLoadStrategy(parameters.getString("browser.page_load_strategy", ""));
+        mBlockedUrls = toList(parameters.getString("browser.blocked_urls", ""));
+        mDisableImages = parameters.getBoolean("browser.disable_images", false);
+        mDisableExtensions = parameters.getBoolean("browser.disable_extensions", false);
+        mCache = parameters.getBoolean("browser.cache", true);
+        List<Pattern> patterns = new ArrayList<>();
+        for (String url : mBlockedUrls) {
+            patterns.add(toPattern(url));
+        }
+        mBlockedPatterns = Collections.unmodifiableList(patterns);
+    }
+
+    /**
+     * Applies policy to 'chrome' and 'edge' options
+     * URL blocking and cache are applied to started session, see 'applyTo(ChromiumDriver)'
+     *
+     * @param options ChromiumOptions -> options of the session to be started
+     */
+    public void applyTo(ChromiumOptions<?> options){
+        if (mPageLoadStrategy != null) {
+            options.setPageLoadStrategy(mPageLoadStrategy);
+        }
+        if (mDisableImages) {
+            Map<String, Object> prefs = new HashMap<>();
+            prefs.put("profile.managed_default_content_settings.images", 2);
+            options.setExperimentalOption("prefs", prefs);
+        }
+        if (mDisableExtensions) {
+            options.addArguments("--disable-extensions");
+        }
+    }
+
+    /**
+     * Applies URL blocking and cache settings to started 'chrome' or 'edge' session through DevTools protocol
+     *
+     * @param driver ChromiumDriver -> started session
+     */
+    public void applyTo(ChromiumDriver driver){
+        if (mBlockedUrls.isEmpty() && mCache) return;
+        try {
+            driver.executeCdpCommand("Network.enable", Collections.emptyMap());
+            if (!mBlockedUrls.isEmpty()) {
+                driver.executeCdpCommand("Network.setBlockedURLs",
+                        Collections.singletonMap("urls", mBlockedUrls));
+            }
+            if (!mCache) {
+                driver.executeCdpCommand("Network.setCacheDisabled",
+                        Collections.singletonMap("cacheDisabled", true));
+            }
+        } catch (WebDriverException e){
+            logger.log(Level.WARNING,
+                    "There was an issue with applying resource policy. Please refer to the following error: " + e);
+        }
+    }
+
+    /**
+     * Applies policy to 'firefox' options
+     * NOTE: Firefox has no URL blocking preference, 'blocked_urls' is ignored with warning
+     * Extensions are not installed in profiles started by geckodriver, so 'disable_extensions' is always met
+     *
+     * @param options FirefoxOptions -> options of the session to be started
+     */
+    public void applyTo(FirefoxOptions options){
+        if (mPageLoadStrategy != null) {
+            options.setPageLoadStrategy(mPageLoadStrategy);
+        }
+        if (mDisableImages) {
+            options.addPreference("permissions.default.image", 2);
+        }
+        if (!mCache) {
+            options.addPreference("browser.cache.disk.enable", false);
+            options.addPreference("browser.cache.memory.enable", false);
+            options.addPreference("browser.cache.offline.enable", false);
+        }
+        if (!mBlockedUrls.isEmpty() && FIREFOX_BLOCKING_WARNED.compareAndSet(false, true)) {
+            logger.log(Level.WARNING, "'blocked_urls' parameter is not supported by firefox profile and is ignored");
+        }
+    }
+
+    /**
+     * Applies URL blocking and cache settings to 'htmlunit' web client
+     * HtmlUnit loads images only on script access and has no extensions, remaining settings don't apply
+     *
+     * @param webClient WebClient -> client of 'htmlunit' session
+     */
+    public void applyTo(WebClient webClient){
+        if (!mCache) {
+            webClient.getCache().setMaxSize(0);
+        }
+        if (mBlockedPatterns.isEmpty()) return;
+        new WebConnectionWrapper(webClient) {
+            @Override
+            public WebResponse getResponse(WebRequest request) throws IOException {
+                if (isBlocked(request.getUrl().toString())) {
+                    WebResponseData data = new WebResponseData(new byte[0], 204, "Blocked", Collections.emptyList());
+                    return new WebResponse(data, request.getUrl(), HttpMethod.GET, 0);
+                }
+                return super.getResponse(request);
+            }
+        };
+    }
+
+    /**
+     * Returns 'true' in case if URL matches one of 'blocked_urls' patterns
+     *
+     * @param url String
+     * @return boolean
+     */
+    public boolean isBlocked(String url){
+        for (Pattern pattern : mBlockedPatterns) {
+            if (pattern.matcher(url).matches()) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Getter for 'page_load_strategy' value
+     *
+     * @return PageLoadStrategy -> strategy or null if browser default is used
+     */
+    public PageLoadStrategy getPageLoadStrategy(){
+        return mPageLoadStrategy;
+    }
+
+    /**
+     * Getter for 'blocked_urls' value
+     *
+     * @return List -> URL patterns
+     */
+    public List<String> getBlockedUrls(){
+        return mBlockedUrls;
+    }
+
+    /**
+     * Parses page load strategy
+     *
+     * @param value String -> normal, eager or none
+     * @return PageLoadStrategy -> strategy or null if value is empty or unknown
+     */
+    private static PageLoadStrategy toPageLoadStrategy(String value){
+        if (value.trim().isEmpty()) return null;
+        PageLoadStrategy strategy = PageLoadStrategy.fromString(value.trim().toLowerCase());
+        if (strategy == null) {
+            logger.log(Level.WARNING, "Unknown page_load_strategy: " + value + ", browser default is used");
+        }
+        return strategy;
+    }
+
+    /**
+     * Splits comma separated value
+     *
+     * @param value String
+     * @return List -> non empty trimmed items
+     */
+    private static List<String> toList(String value){
+        List<String> items = new ArrayList<>();
+        for (String item : value.split(",")) {
+            if (!item.trim().isEmpty()) {
+                items.add(item.trim());
+            }
+        }
+        return Collections.unmodifiableList(items);
+    }
+
+    /**
+     * Compiles URL pattern where '*' matches any characters
+     *
+     * @param url String -> URL pattern
+     * @return Pattern
+     */
+    private static Pattern toPattern(String url){
+        StringBuilder regex = new StringBuilder();
+        for (String part : url.split("\\*", -1)) {
+            if (regex.length() > 0) regex.append(".*");
+            regex.append(Pattern.quote(part));
+        }
+        return Pattern.compile(regex.toString());
+    }
+}
@@ -0,0 +1,369 @@
+package provider;
+
+import org.openqa.selenium.Capabilities;
+import org.openqa.selenium.HasCapabilities;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WrapsDriver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Registry of every browser session started by 'Driver'
+ * Session is quit on teardown with 'quit()', sessions still open are quit on JVM shutdown
+ * On Linux browser main process of every session is found from its capabilities
+ * ('moz:processID' of Firefox, 'userDataDir' of Chrome and Edge), its process tree and memory are tracked
+ * Background reaper kills orphans: browsers and geckodriver processes started by this JVM which don't belong
+ * to any open session and are older than 'reaper/orphan_age', e.g. left by a session which failed to start
+ * or by 'quit()' which didn't stop its browser
+ * Configured in 'parameters.xml':
+ * 'reaper/interval' -> seconds between reaper passes, 30 by default, 0 disables reaper
+ * 'reaper/orphan_age' -> seconds before unowned browser process is treated as orphan, 120 by default
+ */
+public final class SessionRegistry {
+
+    private static final String POOL_OWNER = "pool";
+    private static final Logger logger = Logger.getLogger(SessionRegistry.class.getName());
+
+    private static final Map<WebDriver, Session> SESSIONS = new ConcurrentHashMap<>();
+    private static final Set<WebDriver> QUIT_DRIVERS = Collections.newSetFromMap(
+            Collections.synchronizedMap(new WeakHashMap<>()));
+    private static final Map<String, long[]> MEMORY = new ConcurrentHashMap<>();
+    private static final AtomicLong STARTED = new AtomicLong();
+    private static final AtomicLong QUIT = new AtomicLong();
+    private static final AtomicLong FAILED_QUITS = new AtomicLong();
+    private static final AtomicLong REAPED = new AtomicLong();
+    private static final AtomicLong PEAK_RSS_KB = new AtomicLong();
+    private static final long ORPHAN_AGE_MILLIS;
+    private static final int OWN_PID = ProcessTable.isSupported() ? ProcessTable.getOwnPid() : -1;
+
+    static {
+        Parameters parameters = Parameters.current();
+        ORPHAN_AGE_MILLIS = TimeUnit.SECONDS.toMillis(parameters.getInt("reaper.orphan_age", 120));
+        int interval = parameters.getInt("reaper.interval", 30);
+        if (OWN_PID > 0 && interval > 0) {
+            Thread reaper = new Thread(() -> {
+                while (!Thread.currentThread().isInterrupted()) {
+                    try {
+                        Thread.sleep(TimeUnit.SECONDS.toMillis(interval));
+                        reap();
+                    } catch (InterruptedException e){
+                        return;
+                    } catch (RuntimeException e){
+                        logger.log(Level.WARNING, "There was an issue reaping browser processes. "
+                                + "Please refer to the following error: " + e);
+                    }
+                }
+            }, "session-reaper");
+            reaper.setDaemon(true);
+            reaper.start();
+        }
+        ShutdownSequence.install();
+    }
+
+    private SessionRegistry(){
+    }
+
+    /**
+     * Registers new session, owned by the test method of the current thread
+     *
+     * @param driver WebDriver -> started session, as handed out to tests
+     * @param profile String -> browser profile
+     * @param cell String -> matrix cell name, empty if tests don't run in matrix
+     */
+    public static void register(WebDriver driver, String profile, String cell){
+        if (driver == null) return;
+        Session session = new Session(profile, cell);
+        session.mOwner = ActionLog.getTest();
+        if (OWN_PID > 0) {
+            ProcessTable processes = ProcessTable.read();
+            session.mBrowserPid = findBrowser(driver, processes);
+            if (session.mBrowserPid > 0) {
+                int parent = processes.getParent(session.mBrowserPid);
+                if (processes.getName(parent).equals("geckodriver")) session.mDriverPid = parent;
+                sample(session, processes);
+            }
+        }
+        SESSIONS.put(driver, session);
+        STARTED.incrementAndGet();
+    }
+
+    /**
+     * Marks session as idle in a pool, such session is not reported as leaked
+     *
+     * @param driver WebDriver -> registered session
+     */
+    public static void park(WebDriver driver){
+        Session session = SESSIONS.get(driver);
+        if (session != null) session.mOwner = POOL_OWNER;
+    }
+
+    /**
+     * Hands session over to the test method of the current thread
+     *
+     * @param driver WebDriver -> registered session
+     */
+    public static void claim(WebDriver driver){
+        Session session = SESSIONS.get(driver);
+        if (session != null) session.mOwner = ActionLog.getTest();
+    }
+
+    /**
+     * Quits session and forgets it, never throws
+     * Session which was already quit through the registry is not quit again
+     * Browser processes which outlive 'quit()' are killed by the reaper
+     *
+     * @param driver WebDriver -> session to quit
+     */
+    public static void quit(WebDriver driver){
+        if (driver == null) return;
+        boolean first = QUIT_DRIVERS.add(driver);
+        Session session = SESSIONS.remove(driver);
+        if (session == null && !first) return;
+        if (session != null && session.mBrowserPid > 0) {
+            sample(session, ProcessTable.read());
+        }
+        try {
+            driver.quit();
+            if (session != null) QUIT.incrementAndGet();
+        } catch (WebDriverException e){
+            FAILED_QUITS.incrementAndGet();
+            logger.log(Level.WARNING, "There was an issue quitting " + (session != null ? session.mProfile : "")
+                    + " session. Please refer to the following error: " + e);
+        }
+        if (session != null) record(session);
+    }
+
+    /**
+     * Quits every open session
+     * Called automatically on JVM shutdown before pools and driver services are stopped, see 'ShutdownSequence'
+     */
+    public static void quitAll(){
+        for (WebDriver driver : new ArrayList<>(SESSIONS.keySet())) {
+            quit(driver);
+        }
+    }
+
+    /**
+     * Kills orphaned browser and driver processes and samples memory of open sessions
+     * Called periodically by the reaper thread
+     *
+     * @return int -> number of killed processes
+     */
+    public static int reap(){
+        if (OWN_PID <= 0) return 0;
+        ProcessTable processes = ProcessTable.read();
+        Set<Integer> owned = new HashSet<>();
+        long total = 0;
+        for (Session session : SESSIONS.values()) {
+            if (session.mBrowserPid > 0) {
+                owned.add(session.mBrowserPid);
+                total += sample(session, processes);
+            }
+            if (session.mDriverPid > 0) owned.add(session.mDriverPid);
+        }
+        updateMax(PEAK_RSS_KB, total);
+        Set<Integer> orphans = new LinkedHashSet<>();
+        for (int pid : processes.getPids()) {
+            boolean candidate = processes.isBrowser(pid) || processes.getName(pid).equals("geckodriver");
+            if (!candidate || owned.contains(pid) || !processes.isDescendant(pid, OWN_PID)) continue;
+            if (processes.getAgeMillis(pid) < ORPHAN_AGE_MILLIS || isOwned(pid, owned, processes)) continue;
+            orphans.add(pid);
+            orphans.addAll(processes.getDescendants(pid));
+        }
+        if (orphans.isEmpty()) return 0;
+        logger.log(Level.WARNING, "Killing " + orphans.size() + " orphaned browser processes: " + orphans);
+        ProcessTable.kill(orphans);
+        REAPED.addAndGet(orphans.size());
+        return orphans.size();
+    }
+
+    /**
+     * Returns browser profile of the session
+     *
+     * @param driver WebDriver -> registered session
+     * @return String -> profile or empty string if session is not registered
+     */
+    public static String getProfile(WebDriver driver){
+        Session session = driver != null ? SESSIONS.get(driver) : null;
+        return session != null ? session.mProfile : "";
+    }
+
+    /**
+     * Returns matrix cell of the session, used to keep per-cell data apart, e.g. visual baselines
+     *
+     * @param driver WebDriver -> registered session
+     * @return String -> cell name or empty string if session doesn't run in matrix or is not registered
+     */
+    public static String getCell(WebDriver driver){
+        Session session = driver != null ? SESSIONS.get(driver) : null;
+        return session != null ? session.mCell : "";
+    }
+
+    /**
+     * Getter for number of open sessions
+     *
+     * @return int
+     */
+    public static int getOpenCount(){
+        return SESSIONS.size();
+    }
+
+    /**
+     * Returns open sessions not idle in a pool, e.g. sessions of finished tests which were never quit
+     *
+     * @return List -> description of every leaked session
+     */
+    public static List<String> getLeaks(){
+        List<String> leaks = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (Session session : SESSIONS.values()) {
+            if (POOL_OWNER.equals(session.mOwner)) continue;
+            leaks.add(session.mProfile + " session of " + (session.mOwner != null ? session.mOwner : "unknown test")
+                    + ", open for " + TimeUnit.MILLISECONDS.toSeconds(now - session.mStarted) + " s"
+                    + (session.mBrowserPid > 0 ? ", browser pid " + session.mBrowserPid : ""));
+        }
+        Collections.sort(leaks);
+        return leaks;
+    }
+
+    /**
+     * Returns one line summary of sessions and browser memory of the run, empty string if no session was started
+     *
+     * @return String
+     */
+    public static String getSummary(){
+        if (STARTED.get() == 0) return "";
+        StringBuilder summary = new StringBuilder()
+                .append("started=").append(STARTED.get())
+                .append(", quit=").append(QUIT.get())
+                .append(", failedQuits=").append(FAILED_QUITS.get())
+                .append(", open=").append(getOpenCount())
+                .append(", orphansKilled=").append(REAPED.get());
+        if (PEAK_RSS_KB.get() > 0) summary.append(", peakTotalMb=").append(PEAK_RSS_KB.get() / 1024);
+        for (Map.Entry<String, long[]> entry : new TreeMap<>(MEMORY).entrySet()) {
+            long[] memory = entry.getValue();
+            synchronized (memory) {
+                summary.append("; ").append(entry.getKey()).append(": avgPeakMb=").append(memory[1] / memory[0] / 1024)
+                        .append(", maxPeakMb=").append(memory[2] / 1024);
+            }
+        }
+        return summary.toString();
+    }
+
+    /**
+     * Finds browser main process of the session from its capabilities
+     *
+     * @param driver WebDriver -> session, possibly wrapped
+     * @param processes ProcessTable -> current processes
+     * @return int -> pid or -1 if not found
+     */
+    private static int findBrowser(WebDriver driver, ProcessTable processes){
+        while (!(driver instanceof HasCapabilities) && driver instanceof WrapsDriver) {
+            driver = ((WrapsDriver) driver).getWrappedDriver();
+        }
+        if (!(driver instanceof HasCapabilities)) return -1;
+        Capabilities capabilities = ((HasCapabilities) driver).getCapabilities();
+        Object firefox = capabilities.getCapability("moz:processID");
+        if (firefox instanceof Number) return ((Number) firefox).intValue();
+        for (String vendor : new String[]{"chrome", "msedge"}) {
+            Object options = capabilities.getCapability(vendor);
+            if (options instanceof Map && ((Map<?, ?>) options).get("userDataDir") != null) {
+                return processes.findBrowser("--user-data-dir=" + ((Map<?, ?>) options).get("userDataDir"));
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns 'true' in case if the process belongs to process tree of an open session
+     *
+     * @param pid int -> process
+     * @param owned Set -> browser and driver processes of open sessions
+     * @param processes ProcessTable -> current processes
+     * @return boolean
+     */
+    private static boolean isOwned(int pid, Set<Integer> owned, ProcessTable processes){
+        for (int root : owned) {
+            if (processes.isDescendant(pid, root)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Samples resident memory of the session process tree and keeps its peak
+     *
+     * @param session Session
+     * @param processes ProcessTable -> current processes
+     * @return long -> current memory in kilobytes
+     */
+    private static long sample(Session session, ProcessTable processes){
+        long rss = processes.getRssKb(session.mBrowserPid);
+        for (int pid : processes.getDescendants(session.mBrowserPid)) {
+            rss += processes.getRssKb(pid);
+        }
+        if (session.mDriverPid > 0) rss += processes.getRssKb(session.mDriverPid);
+        updateMax(session.mPeakRssKb, rss);
+        return rss;
+    }
+
+    /**
+     * Adds peak memory of quit session to the profile statistics
+     *
+     * @param session Session
+     */
+    private static void record(Session session){
+        long peak = session.mPeakRssKb.get();
+        if (peak == 0) return;
+        long[] memory = MEMORY.computeIfAbsent(session.mProfile, key -> new long[3]);
+        synchronized (memory) {
+            memory[0]++;
+            memory[1] += peak;
+            memory[2] = Math.max(memory[2], peak);
+        }
+    }
+
+    /**
+     * Raises value to the candidate in case if candidate is greater
+     *
+     * @param value AtomicLong
+     * @param candidate long
+     */
+    private static void updateMax(AtomicLong value, long candidate){
+        long max;
+        do {
+            max = value.get();
+        } while (candidate > max && !value.compareAndSet(max, candidate));
+    }
+
+    /**
+     * Registered session
+     */
+    private static final class Session {
+        private final String mProfile;
+        private final String mCell;
+        private final long mStarted = System.currentTimeMillis();
+        private final AtomicLong mPeakRssKb = new AtomicLong();
+        private volatile String mOwner;
+        private int mBrowserPid = -1;
+        private int mDriverPid = -1;
+
+        Session(String profile, String cell){
+            mProfile = profile;
+            mCell = cell != null ? cell : "";
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package provider;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Single JVM shutdown hook which stops browser infrastructure in dependency order:
+ * open sessions are quit first, then pools, then remote transport, then local driver services
+ * JVM runs separate hooks at the same time, so e.g. chromedriver could stop before its sessions are quit
+ * or Grid sessions could be left behind because connection pool was already closed
+ */
+final class ShutdownSequence {
+
+    private static final Logger logger = Logger.getLogger(ShutdownSequence.class.getName());
+
+    private static boolean sInstalled;
+
+    private ShutdownSequence(){
+    }
+
+    /**
+     * Registers shutdown hook once per JVM, later calls do nothing
+     */
+    static synchronized void install(){
+        if (sInstalled) return;
+        sInstalled = true;
+        Runtime.getRuntime().addShutdownHook(new Thread(ShutdownSequence::run, "browser-shutdown"));
+    }
+
+    /**
+     * Runs every step, failure of one step doesn't stop the next ones
+     */
+    private static void run(){
+        step("sessions", SessionRegistry::quitAll);
+        step("driver pools", DriverPool::shutdownAll);
+        step("remote transport", RemoteTransport::closeInstance);
+        step("driver services", DriverServices::stopAll);
+    }
+
+    /**
+     * Runs one step of the sequence
+     *
+     * @param name String -> step name for the log
+     * @param step Runnable -> step
+     */
+    private static void step(String name, Runnable step){
+        try {
+            step.run();
+        } catch (RuntimeException e){
+            logger.log(Level.WARNING, "There was an issue shutting down " + name
+                    + ". Please refer to the following error: " + e);
+        }
+    }
+}
@@ -0,0 +1,386 @@
+package provider;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+
+/**
+ * Screenshot in the form compared by 'VisualDiff': RGB pixels as int array and 64-bit hash of every tile
+ * Stored on disk as '.tvb' file:
+ * header (magic, version, width, height, tile size), tile hashes, then deflated pixels
+ * Pixels are kept as 3 bytes per pixel, rows are filtered like PNG rows before deflate,
+ * alpha channel and PNG chunk overhead are dropped
+ * Pixels are inflated only when needed, tile hashes alone decide that unchanged screenshot matches
+ */
+public final class VisualBaseline {
+
+    public static final String EXTENSION = ".tvb";
+
+    private static final int MAGIC = 0x54555642;
+    private static final int VERSION = 1;
+    private static final int HASH_BAND_ROWS = 4;
+    private static final int FILTERS = 4;
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final int mWidth, mHeight, mTileSize;
+    private final long[] mTileHashes;
+    private int[] mPixels;
+    private byte[] mCompressed;
+
+    private VisualBaseline(int width, int height, int tileSize, long[] tileHashes, int[] pixels, byte[] compressed){
+        mWidth = width;
+        mHeight = height;
+        mTileSize = tileSize;
+        mTileHashes = tileHashes;
+        mPixels = pixels;
+        mCompressed = compressed;
+    }
+
+    /**
+     * Creates baseline of decoded image, tile hashes are computed in parallel
+     *
+     * @param width int -> image width
+     * @param height int -> image height
+     * @param pixels int[] -> RGB pixels row by row, alpha is ignored
+     * @param tileSize int -> tile edge in pixels
+     * @return VisualBaseline
+     */
+    public static VisualBaseline of(int width, int height, int[] pixels, int tileSize){
+        long[] hashes = new long[tilesX(width, tileSize) * tilesY(height, tileSize)];
+        ForkJoinPool.commonPool().invoke(new HashTask(width, height, pixels, tileSize, hashes, 0, tilesY(height, tileSize)));
+        return new VisualBaseline(width, height, tileSize, hashes, pixels, null);
+    }
+
+    /**
+     * Reads header and tile hashes of the file, pixels stay compressed until 'getPixels()'
+     *
+     * @param file File -> '.tvb' file
+     * @return VisualBaseline
+     * @throws IOException in case if file can't be read or has unknown format
+     */
+    public static VisualBaseline read(File file) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                throw new IOException("Unknown visual baseline format: " + file.getPath());
+            }
+            int width = input.readInt(), height = input.readInt(), tileSize = input.readInt();
+            long[] hashes = new long[input.readInt()];
+            for (int i = 0; i < hashes.length; i++) {
+                hashes[i] = input.readLong();
+            }
+            byte[] compressed = new byte[input.readInt()];
+            input.readFully(compressed);
+            return new VisualBaseline(width, height, tileSize, hashes, null, compressed);
+        }
+    }
+
+    /**
+     * Writes baseline into the file, replacing it at once
+     * Every write goes through its own temporary file, so parallel recordings of one baseline don't clobber each other
+     *
+     * @param file File -> '.tvb' file, parent directories are created
+     * @throws IOException in case if file can't be written
+     */
+    public void write(File file) throws IOException {
+        Path parent = file.getAbsoluteFile().getParentFile().toPath();
+        Files.createDirectories(parent);
+        Path temporary = Files.createTempFile(parent, file.getName(), ".tmp");
+        try {
+            writeTo(temporary);
+            try {
+                Files.move(temporary, file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e){
+                Files.move(temporary, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Writes baseline into the file
+     *
+     * @param path Path -> target file
+     * @throws IOException in case if file can't be written
+     */
+    private void writeTo(Path path) throws IOException {
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(mWidth);
+            output.writeInt(mHeight);
+            output.writeInt(mTileSize);
+            output.writeInt(mTileHashes.length);
+            for (long hash : mTileHashes) {
+                output.writeLong(hash);
+            }
+            byte[] compressed = getCompressed();
+            output.writeInt(compressed.length);
+            output.write(compressed);
+        }
+    }
+
+    /**
+     * Returns pixels, inflating them on first call
+     *
+     * @return int[] -> RGB pixels row by row
+     */
+    public synchronized int[] getPixels(){
+        if (mPixels == null) mPixels = inflate(mCompressed, mWidth, mHeight);
+        return mPixels;
+    }
+
+    /**
+     * Getter for image width
+     *
+     * @return int
+     */
+    public int getWidth(){
+        return mWidth;
+    }
+
+    /**
+     * Getter for image height
+     *
+     * @return int
+     */
+    public int getHeight(){
+        return mHeight;
+    }
+
+    /**
+     * Getter for tile edge in pixels
+     *
+     * @return int
+     */
+    public int getTileSize(){
+        return mTileSize;
+    }
+
+    /**
+     * Getter for tile hashes, row by row
+     *
+     * @return long[]
+     */
+    public long[] getTileHashes(){
+        return mTileHashes;
+    }
+
+    /**
+     * Returns number of tile columns
+     *
+     * @param width int -> image width
+     * @param tileSize int -> tile edge
+     * @return int
+     */
+    static int tilesX(int width, int tileSize){
+        return (width + tileSize - 1) / tileSize;
+    }
+
+    /**
+     * Returns number of tile rows
+     *
+     * @param height int -> image height
+     * @param tileSize int -> tile edge
+     * @return int
+     */
+    static int tilesY(int height, int tileSize){
+        return (height + tileSize - 1) / tileSize;
+    }
+
+    /**
+     * Returns compressed pixels, deflating them on first call
+     *
+     * @return byte[]
+     */
+    private synchronized byte[] getCompressed(){
+        if (mCompressed == null) mCompressed = deflate(mPixels, mWidth, mHeight);
+        return mCompressed;
+    }
+
+    /**
+     * Compresses pixels as RGB rows, every row filtered the way PNG does it:
+     * filter giving the smallest sum of absolute bytes is picked out of None, Sub, Up and Paeth
+     *
+     * @param pixels int[] -> RGB pixels
+     * @param width int -> image width
+     * @param height int -> image height
+     * @return byte[]
+     */
+    private static byte[] deflate(int[] pixels, int width, int height){
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(width * height / 4 + 64);
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        byte[] previous = new byte[width * 3], current = new byte[width * 3];
+        byte[][] filtered = new byte[FILTERS][width * 3];
+        try (OutputStream output = new DeflaterOutputStream(bytes, deflater, 1 << 16)) {
+            for (int y = 0; y < height; y++) {
+                int offset = y * width;
+                for (int x = 0; x < width; x++) {
+                    int pixel = pixels[offset + x];
+                    current[x * 3] = (byte) (pixel >> 16);
+                    current[x * 3 + 1] = (byte) (pixel >> 8);
+                    current[x * 3 + 2] = (byte) pixel;
+                }
+                int best = 0;
+                long bestSum = Long.MAX_VALUE;
+                for (int filter = 0; filter < FILTERS; filter++) {
+                    long sum = 0;
+                    byte[] row = filtered[filter];
+                    for (int i = 0; i < row.length; i++) {
+                        int left = i < 3 ? 0 : current[i - 3] & 0xFF;
+                        row[i] = (byte) (current[i] - predict(filter, left, previous[i] & 0xFF,
+                                i < 3 ? 0 : previous[i - 3] & 0xFF));
+                        sum += Math.abs(row[i]);
+                    }
+                    if (sum < bestSum) {
+                        bestSum = sum;
+                        best = filter;
+                    }
+                }
+                output.write(best);
+                output.write(filtered[best]);
+                byte[] swap = previous;
+                previous = current;
+                current = swap;
+            }
+        } catch (IOException e){
+            throw new IllegalStateException("Could not compress visual baseline", e);
+        } finally {
+            deflater.end();
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decompresses pixels written by 'deflate'
+     *
+     * @param compressed byte[] -> deflated rows
+     * @param width int -> image width
+     * @param height int -> image height
+     * @return int[] -> RGB pixels
+     */
+    private static int[] inflate(byte[] compressed, int width, int height){
+        int[] pixels = new int[width * height];
+        byte[] input = new byte[width * 3 + 1];
+        byte[] previous = new byte[width * 3], current = new byte[width * 3];
+        Inflater inflater = new Inflater();
+        inflater.setInput(compressed);
+        try {
+            for (int y = 0; y < height; y++) {
+                int read = 0;
+                while (read < input.length) {
+                    int count = inflater.inflate(input, read, input.length - read);
+                    if (count == 0 && (inflater.finished() || inflater.needsInput())) {
+                        throw new IllegalStateException("Visual baseline is truncated at row " + y);
+                    }
+                    read += count;
+                }
+                int filter = input[0];
+                for (int i = 0; i < current.length; i++) {
+                    int left = i < 3 ? 0 : current[i - 3] & 0xFF;
+                    current[i] = (byte) (input[i + 1] + predict(filter, left, previous[i] & 0xFF,
+                            i < 3 ? 0 : previous[i - 3] & 0xFF));
+                }
+                int offset = y * width;
+                for (int x = 0; x < width; x++) {
+                    pixels[offset + x] = (current[x * 3] & 0xFF) << 16 | (current[x * 3 + 1] & 0xFF) << 8
+                            | (current[x * 3 + 2] & 0xFF);
+                }
+                byte[] swap = previous;
+                previous = current;
+                current = swap;
+            }
+        } catch (DataFormatException e){
+            throw new IllegalStateException("Visual baseline is corrupted", e);
+        } finally {
+            inflater.end();
+        }
+        return pixels;
+    }
+
+    /**
+     * Returns prediction of the byte by the filter
+     *
+     * @param filter int -> 0 None, 1 Sub, 2 Up, 3 Paeth
+     * @param left int -> same channel of the pixel on the left
+     * @param up int -> same channel of the pixel above
+     * @param upLeft int -> same channel of the pixel above on the left
+     * @return int
+     */
+    private static int predict(int filter, int left, int up, int upLeft){
+        switch (filter) {
+            case 1: return left;
+            case 2: return up;
+            case 3:
+                int estimate = left + up - upLeft;
+                int toLeft = Math.abs(estimate - left), toUp = Math.abs(estimate - up), toUpLeft = Math.abs(estimate - upLeft);
+                if (toLeft <= toUp && toLeft <= toUpLeft) return left;
+                return toUp <= toUpLeft ? up : upLeft;
+            default: return 0;
+        }
+    }
+
+    /**
+     * Hashes tiles of a band of tile rows, splits band in halves until it is small enough
+     */
+    private static final class HashTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int mWidth, mHeight, mTileSize;
+        private final int[] mPixels;
+        private final long[] mHashes;
+        private final int mFromRow, mToRow;
+
+        HashTask(int width, int height, int[] pixels, int tileSize, long[] hashes, int fromRow, int toRow){
+            mWidth = width;
+            mHeight = height;
+            mPixels = pixels;
+            mTileSize = tileSize;
+            mHashes = hashes;
+            mFromRow = fromRow;
+            mToRow = toRow;
+        }
+
+        @Override
+        protected void compute(){
+            if (mToRow - mFromRow > HASH_BAND_ROWS) {
+                int middle = (mFromRow + mToRow) >>> 1;
+                invokeAll(new HashTask(mWidth, mHeight, mPixels, mTileSize, mHashes, mFromRow, middle),
+                        new HashTask(mWidth, mHeight, mPixels, mTileSize, mHashes, middle, mToRow));
+                return;
+            }
+            int columns = tilesX(mWidth, mTileSize);
+            for (int tileY = mFromRow; tileY < mToRow; tileY++) {
+                int bottom = Math.min(mHeight, (tileY + 1) * mTileSize);
+                for (int tileX = 0; tileX < columns; tileX++) {
+                    int right = Math.min(mWidth, (tileX + 1) * mTileSize);
+                    long hash = FNV_OFFSET;
+                    for (int y = tileY * mTileSize; y < bottom; y++) {
+                        int offset = y * mWidth;
+                        for (int x = tileX * mTileSize; x < right; x++) {
+                            hash = (hash ^ (mPixels[offset + x] & 0xFFFFFF)) * FNV_PRIME;
+                        }
+                    }
+                    mHashes[tileY * columns + tileX] = hash;
+                }
+            }
+        }
+    }
+}
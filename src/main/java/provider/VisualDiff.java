@@ -0,0 +1,491 @@
+package provider;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Compares screenshots with baselines kept in 'VisualBaseline' format
+ * Screenshot is decoded into int array and hashed per tile, only tiles whose hash differs from the baseline
+ * are compared pixel by pixel, tiles are spread over cores with fork-join
+ * Pixel counts as different when any channel differs by more than 'tolerance' and it is not anti-aliasing,
+ * i.e. unless both pixels have a close match among 8 neighbours in the other image
+ * Configured in 'parameters.xml':
+ * 'visual/baseline_dir' -> baseline directory, 'src/test/resources/visual' by default, meant to be committed
+ * 'visual/output_dir' -> actual and diff images of mismatches, 'target/visual' by default
+ * 'visual/tile_size' -> tile edge in pixels, 32 by default
+ * 'visual/tolerance' -> max difference of a channel (0..255) treated as equal, 16 by default
+ * 'visual/max_diff' -> percent of different pixels still treated as match, e.g. '0.05', 0 by default
+ * 'visual/mode' -> 'fail' or 'warn' on mismatch, 'fail' by default
+ * 'visual/update' -> 'true' replaces baselines with new screenshots instead of comparing, reported as 'RECORDED'
+ * Missing baseline is reported as 'MISSING' and is not recorded into 'visual/baseline_dir' unless 'visual/update' is set,
+ * candidate baseline and screenshot are written into 'visual/output_dir' for review instead
+ */
+public final class VisualDiff {
+
+    public static final String DEFAULT_BASELINE_DIR = "src/test/resources/visual";
+    public static final String DEFAULT_OUTPUT_DIR = "target/visual";
+
+    private static final int TILES_PER_TASK = 8;
+    private static final int DIFF_COLOR = 0xFF0000;
+    private static final Logger logger = Logger.getLogger(VisualDiff.class.getName());
+
+    /**
+     * Outcome of comparison
+     */
+    public enum Status {
+        MATCH, DIFFERENT, MISSING, RECORDED, SKIPPED
+    }
+
+    private static volatile VisualDiff sCurrent;
+
+    private final File mBaselineDir, mOutputDir;
+    private final int mTileSize, mTolerance;
+    private final double mMaxDiff;
+    private final boolean mFailing, mUpdate;
+
+    public VisualDiff(Parameters parameters){
+        mBaselineDir = new File(parameters.getString("visual.baseline_dir", DEFAULT_BASELINE_DIR));
+        mOutputDir = new File(parameters.getString("visual.output_dir", DEFAULT_OUTPUT_DIR));
+        mTileSize = Math.max(4, parameters.getInt("visual.tile_size", 32));
+        mTolerance = Math.max(0, parameters.getInt("visual.tolerance", 16));
+        mMaxDiff = parseDouble(parameters.getString("visual.max_diff", "0"));
+        mFailing = !"warn".equalsIgnoreCase(parameters.getString("visual.mode", "fail").trim());
+        mUpdate = parameters.getBoolean("visual.update", false);
+    }
+
+    /**
+     * Returns diff engine of the run configured from 'parameters.xml'
+     *
+     * @return VisualDiff
+     */
+    public static VisualDiff current(){
+        VisualDiff diff = sCurrent;
+        if (diff == null) {
+            synchronized (VisualDiff.class) {
+                if (sCurrent == null) sCurrent = new VisualDiff(Parameters.current());
+                diff = sCurrent;
+            }
+        }
+        return diff;
+    }
+
+    /**
+     * Compares PNG screenshot with baseline of the name
+     * Mismatch writes '<name>.actual.png' and '<name>.diff.png' (different pixels in red) into 'visual/output_dir'
+     *
+     * @param name String -> baseline name, may contain '/' for sub-directories, e.g. 'chrome/LoginPage.form'
+     * @param png byte[] -> screenshot
+     * @return Result
+     */
+    public Result compare(String name, byte[] png){
+        long start = System.nanoTime();
+        int[] size = new int[2];
+        int[] pixels = decode(png, size);
+        VisualBaseline actual = VisualBaseline.of(size[0], size[1], pixels, mTileSize);
+        File file = new File(mBaselineDir, name + VisualBaseline.EXTENSION);
+        if (mUpdate) {
+            write(actual, file);
+            return new Result(name, Status.RECORDED, file, size[0] * size[1], 0, 0, 0, System.nanoTime() - start);
+        }
+        if (!file.isFile()) {
+            write(actual, new File(mOutputDir, name + VisualBaseline.EXTENSION));
+            writeImages(name, actual, null);
+            return new Result(name, Status.MISSING, file, size[0] * size[1], 0, 0, 0, System.nanoTime() - start);
+        }
+        VisualBaseline expected;
+        try {
+            expected = VisualBaseline.read(file);
+        } catch (IOException e){
+            logger.log(Level.WARNING, "There was an issue reading visual baseline " + file.getPath()
+                    + ". Please refer to the following error: " + e);
+            return new Result(name, Status.SKIPPED, file, size[0] * size[1], 0, 0, 0, System.nanoTime() - start);
+        }
+        Result result = diff(name, file, expected, actual, start);
+        if (result.getStatus() == Status.DIFFERENT) {
+            writeImages(name, actual, result.mMask);
+        }
+        result.mMask = null;
+        return result;
+    }
+
+    /**
+     * Returns 'true' unless 'visual/mode' is 'warn'
+     *
+     * @return boolean
+     */
+    public boolean isFailing(){
+        return mFailing;
+    }
+
+    /**
+     * Compares tiles of two images, then pixels of changed tiles
+     *
+     * @param name String -> baseline name
+     * @param file File -> baseline file
+     * @param expected VisualBaseline -> baseline
+     * @param actual VisualBaseline -> screenshot
+     * @param start long -> start of the comparison, nanoseconds
+     * @return Result
+     */
+    private Result diff(String name, File file, VisualBaseline expected, VisualBaseline actual, long start){
+        int width = actual.getWidth(), height = actual.getHeight();
+        int total = width * height;
+        if (expected.getWidth() == width && expected.getHeight() == height && expected.getTileSize() != mTileSize) {
+            expected = VisualBaseline.of(width, height, expected.getPixels(), mTileSize);
+        }
+        long[] expectedHashes = expected.getTileHashes(), actualHashes = actual.getTileHashes();
+        if (expected.getWidth() != width || expected.getHeight() != height) {
+            boolean[] mask = new boolean[total];
+            Arrays.fill(mask, true);
+            Result result = new Result(name, Status.DIFFERENT, file, total, total,
+                    actualHashes.length, actualHashes.length, System.nanoTime() - start);
+            result.mMask = mask;
+            result.mSizeMismatch = expected.getWidth() + "x" + expected.getHeight() + " -> " + width + "x" + height;
+            return result;
+        }
+        int[] changed = new int[actualHashes.length];
+        int count = 0;
+        for (int i = 0; i < actualHashes.length; i++) {
+            if (actualHashes[i] != expectedHashes[i]) changed[count++] = i;
+        }
+        if (count == 0) {
+            return new Result(name, Status.MATCH, file, total, 0, 0, actualHashes.length, System.nanoTime() - start);
+        }
+        boolean[] mask = new boolean[total];
+        int[] tiles = Arrays.copyOf(changed, count);
+        int different = ForkJoinPool.commonPool().invoke(
+                new DiffTask(expected.getPixels(), actual.getPixels(), width, height, tiles, 0, tiles.length, mask));
+        boolean match = different * 100.0 / total <= mMaxDiff;
+        Result result = new Result(name, match ? Status.MATCH : Status.DIFFERENT, file, total, different,
+                tiles.length, actualHashes.length, System.nanoTime() - start);
+        result.mMask = mask;
+        return result;
+    }
+
+    /**
+     * Decodes PNG into RGB int array, reading raster buffers directly for common image types
+     *
+     * @param png byte[] -> PNG image
+     * @param size int[] -> receives width and height
+     * @return int[] -> pixels row by row
+     */
+    static int[] decode(byte[] png, int[] size){
+        BufferedImage image;
+        try {
+            image = ImageIO.read(new ByteArrayInputStream(png));
+        } catch (IOException e){
+            throw new IllegalArgumentException("Screenshot can't be decoded", e);
+        }
+        if (image == null) throw new IllegalArgumentException("Screenshot is not a supported image");
+        int width = image.getWidth(), height = image.getHeight();
+        size[0] = width;
+        size[1] = height;
+        int[] pixels = new int[width * height];
+        switch (image.getType()) {
+            case BufferedImage.TYPE_INT_RGB:
+            case BufferedImage.TYPE_INT_ARGB:
+                System.arraycopy(((DataBufferInt) image.getRaster().getDataBuffer()).getData(), 0, pixels, 0, pixels.length);
+                return pixels;
+            case BufferedImage.TYPE_3BYTE_BGR:
+            case BufferedImage.TYPE_4BYTE_ABGR:
+                byte[] bytes = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+                int step = image.getType() == BufferedImage.TYPE_3BYTE_BGR ? 3 : 4;
+                int first = step - 3;
+                for (int i = 0, b = first; i < pixels.length; i++, b += step) {
+                    pixels[i] = (bytes[b + 2] & 0xFF) << 16 | (bytes[b + 1] & 0xFF) << 8 | (bytes[b] & 0xFF);
+                }
+                return pixels;
+            default:
+                image.getRGB(0, 0, width, height, pixels, 0, width);
+                return pixels;
+        }
+    }
+
+    /**
+     * Writes baseline, failure is logged
+     *
+     * @param baseline VisualBaseline
+     * @param file File
+     */
+    private void write(VisualBaseline baseline, File file){
+        try {
+            baseline.write(file);
+            logger.log(Level.INFO, "Visual baseline recorded: " + file.getPath());
+        } catch (IOException e){
+            logger.log(Level.WARNING, "There was an issue writing visual baseline " + file.getPath()
+                    + ". Please refer to the following error: " + e);
+        }
+    }
+
+    /**
+     * Writes actual screenshot and diff image of the mismatch
+     *
+     * @param name String -> baseline name
+     * @param actual VisualBaseline -> screenshot
+     * @param mask boolean[] -> different pixels, null to write screenshot only
+     */
+    private void writeImages(String name, VisualBaseline actual, boolean[] mask){
+        int width = actual.getWidth(), height = actual.getHeight();
+        int[] pixels = actual.getPixels();
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        BufferedImage diff = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int[] imageData = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        int[] diffData = ((DataBufferInt) diff.getRaster().getDataBuffer()).getData();
+        for (int i = 0; i < pixels.length; i++) {
+            int pixel = pixels[i] & 0xFFFFFF;
+            imageData[i] = pixel;
+            if (mask == null) continue;
+            if (mask[i]) {
+                diffData[i] = DIFF_COLOR;
+            } else {
+                int gray = (((pixel >> 16) & 0xFF) + ((pixel >> 8) & 0xFF) + (pixel & 0xFF)) / 3;
+                gray = 192 + gray / 4;
+                diffData[i] = gray << 16 | gray << 8 | gray;
+            }
+        }
+        File actualFile = new File(mOutputDir, name + ".actual.png");
+        File diffFile = new File(mOutputDir, name + ".diff.png");
+        try {
+            Files.createDirectories(diffFile.getAbsoluteFile().getParentFile().toPath());
+            ImageIO.write(image, "png", actualFile);
+            if (mask != null) ImageIO.write(diff, "png", diffFile);
+        } catch (IOException e){
+            logger.log(Level.WARNING, "There was an issue writing visual diff of " + name
+                    + ". Please refer to the following error: " + e);
+        }
+    }
+
+    /**
+     * Parses decimal parameter, 0 if malformed
+     *
+     * @param value String
+     * @return double
+     */
+    private static double parseDouble(String value){
+        try {
+            return Math.max(0, Double.parseDouble(value.trim()));
+        } catch (NumberFormatException e){
+            logger.log(Level.WARNING, "Skipping malformed 'visual/max_diff': " + value);
+            return 0;
+        }
+    }
+
+    /**
+     * Compares pixels of a range of changed tiles, splits range in halves until it is small enough
+     */
+    private final class DiffTask extends RecursiveTask<Integer> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int[] mExpected, mActual;
+        private final int mWidth, mHeight;
+        private final int[] mTiles;
+        private final int mFrom, mTo;
+        private final boolean[] mMask;
+
+        DiffTask(int[] expected, int[] actual, int width, int height, int[] tiles, int from, int to, boolean[] mask){
+            mExpected = expected;
+            mActual = actual;
+            mWidth = width;
+            mHeight = height;
+            mTiles = tiles;
+            mFrom = from;
+            mTo = to;
+            mMask = mask;
+        }
+
+        @Override
+        protected Integer compute(){
+            if (mTo - mFrom > TILES_PER_TASK) {
+                int middle = (mFrom + mTo) >>> 1;
+                DiffTask left = new DiffTask(mExpected, mActual, mWidth, mHeight, mTiles, mFrom, middle, mMask);
+                left.fork();
+                int right = new DiffTask(mExpected, mActual, mWidth, mHeight, mTiles, middle, mTo, mMask).compute();
+                return left.join() + right;
+            }
+            int columns = VisualBaseline.tilesX(mWidth, mTileSize);
+            int different = 0;
+            for (int t = mFrom; t < mTo; t++) {
+                int tileX = mTiles[t] % columns, tileY = mTiles[t] / columns;
+                int right = Math.min(mWidth, (tileX + 1) * mTileSize);
+                int bottom = Math.min(mHeight, (tileY + 1) * mTileSize);
+                for (int y = tileY * mTileSize; y < bottom; y++) {
+                    for (int x = tileX * mTileSize; x < right; x++) {
+                        int index = y * mWidth + x;
+                        int expected = mExpected[index], actual = mActual[index];
+                        if (isClose(expected, actual)) continue;
+                        if (hasCloseNeighbour(actual, mExpected, x, y) && hasCloseNeighbour(expected, mActual, x, y)) continue;
+                        mMask[index] = true;
+                        different++;
+                    }
+                }
+            }
+            return different;
+        }
+
+        /**
+         * Returns 'true' in case if one of 8 neighbours of the position in the image is close to the pixel
+         *
+         * @param pixel int -> RGB pixel
+         * @param image int[] -> other image
+         * @param x int -> column
+         * @param y int -> row
+         * @return boolean
+         */
+        private boolean hasCloseNeighbour(int pixel, int[] image, int x, int y){
+            for (int dy = -1; dy <= 1; dy++) {
+                int row = y + dy;
+                if (row < 0 || row >= mHeight) continue;
+                for (int dx = -1; dx <= 1; dx++) {
+                    int column = x + dx;
+                    if ((dx == 0 && dy == 0) || column < 0 || column >= mWidth) continue;
+                    if (isClose(pixel, image[row * mWidth + column])) return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Returns 'true' in case if no channel of the pixels differs by more than tolerance
+     *
+     * @param first int -> RGB pixel
+     * @param second int -> RGB pixel
+     * @return boolean
+     */
+    private boolean isClose(int first, int second){
+        if (((first ^ second) & 0xFFFFFF) == 0) return true;
+        return Math.abs(((first >> 16) & 0xFF) - ((second >> 16) & 0xFF)) <= mTolerance
+                && Math.abs(((first >> 8) & 0xFF) - ((second >> 8) & 0xFF)) <= mTolerance
+                && Math.abs((first & 0xFF) - (second & 0xFF)) <= mTolerance;
+    }
+
+    /**
+     * Result of one comparison
+     */
+    public static final class Result {
+
+        private final String mName;
+        private final Status mStatus;
+        private final File mBaseline;
+        private final int mTotalPixels, mDifferentPixels, mChangedTiles, mTotalTiles;
+        private final long mNanos;
+        private boolean[] mMask;
+        private String mSizeMismatch;
+
+        Result(String name, Status status, File baseline, int totalPixels, int differentPixels,
+               int changedTiles, int totalTiles, long nanos){
+            mName = name;
+            mStatus = status;
+            mBaseline = baseline;
+            mTotalPixels = totalPixels;
+            mDifferentPixels = differentPixels;
+            mChangedTiles = changedTiles;
+            mTotalTiles = totalTiles;
+            mNanos = nanos;
+        }
+
+        /**
+         * Creates result of screenshot which couldn't be taken
+         *
+         * @param name String -> baseline name
+         * @return Result
+         */
+        public static Result skipped(String name){
+            return new Result(name, Status.SKIPPED, null, 0, 0, 0, 0, 0);
+        }
+
+        /**
+         * Getter for outcome
+         *
+         * @return Status
+         */
+        public Status getStatus(){
+            return mStatus;
+        }
+
+        /**
+         * Getter for baseline name
+         *
+         * @return String
+         */
+        public String getName(){
+            return mName;
+        }
+
+        /**
+         * Getter for baseline file
+         *
+         * @return File -> file or null if comparison was skipped
+         */
+        public File getBaseline(){
+            return mBaseline;
+        }
+
+        /**
+         * Getter for number of different pixels
+         *
+         * @return int
+         */
+        public int getDifferentPixels(){
+            return mDifferentPixels;
+        }
+
+        /**
+         * Getter for share of different pixels
+         *
+         * @return double -> percent
+         */
+        public double getDifferentPercent(){
+            return mTotalPixels == 0 ? 0 : mDifferentPixels * 100.0 / mTotalPixels;
+        }
+
+        /**
+         * Getter for number of tiles compared pixel by pixel
+         *
+         * @return int
+         */
+        public int getChangedTiles(){
+            return mChangedTiles;
+        }
+
+        /**
+         * Getter for number of tiles of the image
+         *
+         * @return int
+         */
+        public int getTotalTiles(){
+            return mTotalTiles;
+        }
+
+        /**
+         * Getter for time spent on comparison, decoding included
+         *
+         * @return long -> milliseconds
+         */
+        public long getMillis(){
+            return TimeUnit.NANOSECONDS.toMillis(mNanos);
+        }
+
+        @Override
+        public String toString(){
+            return "VisualDiff{" + mName + ": " + mStatus
+                    + (mSizeMismatch != null ? ", size " + mSizeMismatch : "")
+                    + ", different=" + mDifferentPixels + " (" + String.format(Locale.ROOT, "%.3f", getDifferentPercent())
+                    + "%), changedTiles=" + mChangedTiles + "/" + mTotalTiles + ", ms=" + getMillis() + "}";
+        }
+    }
+}
@@ -1,28 +1,127 @@
 package test;
 
 import org.openqa.selenium.WebDriver;
+import org.testng.ITestContext;
+import org.testng.ITestResult;
+import org.testng.Reporter;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Listeners;
+import page.LoginFlow;
+import page.SessionStore;
 import provider.Driver;
+import provider.DriverPool;
+import provider.FailureArtifacts;
+import provider.MatrixCell;
 import provider.ParameterReader;
+import provider.Parameters;
+import provider.SessionRegistry;
 
+@Listeners({SuiteListener.class, ShardInterceptor.class})
 public class BaseWebTest {
 
+    private static final ThreadLocal<WebDriver> DRIVER = new ThreadLocal<>();
+    private static final ThreadLocal<DriverPool> POOL = new ThreadLocal<>();
+    private static final ThreadLocal<String> PROFILE = new ThreadLocal<>();
+
+    /**
+     * Driver of the last started test method
+     * @deprecated not safe with parallel execution, use 'getDriver()' instead
+     */
+    @Deprecated
     protected WebDriver mDriver;
 
     public BaseWebTest(){
     }
 
+    /**
+     * Takes warm browser from the pool in case if 'pool_size' is set in 'parameters.xml'
+     * Otherwise starts new browser for every test method
+     * Browser is bound to the thread running the test method
+     * Under 'MatrixRunner' browser of the test's matrix cell is used and waits for a slot of 'matrix/limits'
+     */
     @BeforeMethod
     protected void beforeMethod(){
-        ParameterReader reader = new ParameterReader();
-        Driver driver = new Driver(reader);
-        mDriver = driver.getDriver();
+        ParameterReader reader = getParameterReader(Reporter.getCurrentTestResult().getTestContext());
+        MatrixCell.acquire(reader.getProfile());
+        WebDriver webDriver;
+        try {
+            if (reader.getPoolSize() > 0) {
+                DriverPool pool = DriverPool.getPool(reader);
+                webDriver = pool.acquire();
+                POOL.set(pool);
+            } else {
+                Driver driver = new Driver(reader);
+                webDriver = driver.getDriver();
+            }
+        } catch (RuntimeException e){
+            MatrixCell.release(reader.getProfile());
+            throw e;
+        }
+        PROFILE.set(reader.getProfile());
+        DRIVER.set(webDriver);
+        mDriver = webDriver;
         System.out.println("Web exec");
     }
 
+    /**
+     * Captures failure artifacts of the test method, see 'FailureArtifacts'
+     * Returns browser to the pool or quits it, so browser and driver processes are not left behind
+     */
     @AfterMethod
     protected void afterMethod(){
-        mDriver.close();
+        ITestResult result = SuiteListener.removeCurrentResult();
+        WebDriver webDriver = DRIVER.get();
+        DriverPool pool = POOL.get();
+        String profile = PROFILE.get();
+        DRIVER.remove();
+        POOL.remove();
+        PROFILE.remove();
+        try {
+            if (webDriver == null) return;
+            if (result != null && result.getStatus() == ITestResult.FAILURE) {
+                FailureArtifacts.capture(webDriver, SuiteListener.getName(result), result.getThrowable());
+            }
+            if (pool != null) {
+                pool.release(webDriver);
+            } else {
+                SessionRegistry.quit(webDriver);
+            }
+        } finally {
+            MatrixCell.release(profile);
+        }
+    }
+
+    /**
+     * Brings browser of the current test method into logged in state of the session
+     * Login through the UI only happens once, later tests restore captured cookies and storages, see 'SessionStore'
+     *
+     * @param name String -> session name, e.g. 'admin'
+     * @param flow LoginFlow -> login used when there is no valid state
+     */
+    protected void restoreSession(String name, LoginFlow flow){
+        SessionStore.restore(getDriver(), name, flow);
+    }
+
+    /**
+     * Returns parameters of the test, with profile, mode and window size of its cell in case if it runs in matrix
+     *
+     * @param context ITestContext -> context of the test
+     * @return ParameterReader
+     */
+    private static ParameterReader getParameterReader(ITestContext context){
+        String cell = context.getCurrentXmlTest().getParameter(MatrixCell.PARAMETER);
+        if (cell == null) return new ParameterReader();
+        return MatrixCell.of(cell).getParameterReader(Parameters.current());
+    }
+
+    /**
+     * Getter for WebDriver object of the current test method
+     * Safe to use with parallel="methods"
+     *
+     * @return WebDriver -> WebDriver bound to the current thread
+     */
+    protected WebDriver getDriver(){
+        return DRIVER.get();
     }
 }
@@ -0,0 +1,172 @@
+package test;
+
+import provider.Parameters;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Historical durations of test methods used to balance shards
+ * Kept in 'execution/duration_file' as sorted 'package.Class.method=millis' lines,
+ * 'src/test/resources/config/durations.properties' by default, so the file can be committed and shared by CI nodes
+ * Every measured run is blended into history with weight 'SMOOTHING'
+ * Durations are only recorded and saved with 'execution/record_durations' = 'true', history is read regardless
+ */
+public final class DurationHistory {
+
+    public static final String DEFAULT_FILE = "src/test/resources/config/durations.properties";
+
+    private static final double SMOOTHING = 0.3;
+    private static final long DEFAULT_ESTIMATE_MILLIS = 1000;
+    private static final Logger logger = Logger.getLogger(DurationHistory.class.getName());
+
+    private static volatile DurationHistory sCurrent;
+
+    private final File mFile;
+    private final Map<String, Long> mHistory;
+    private final Map<String, Long> mMeasured = new ConcurrentHashMap<>();
+
+    DurationHistory(File file, Map<String, Long> history){
+        mFile = file;
+        mHistory = Collections.unmodifiableMap(new TreeMap<>(history));
+    }
+
+    /**
+     * Returns history of the run, loads 'execution/duration_file' on first call
+     *
+     * @return DurationHistory
+     */
+    public static DurationHistory current(){
+        DurationHistory history = sCurrent;
+        if (history == null) {
+            synchronized (DurationHistory.class) {
+                if (sCurrent == null) {
+                    File file = new File(Parameters.current().getString("execution.duration_file", DEFAULT_FILE));
+                    sCurrent = new DurationHistory(file, read(file));
+                }
+                history = sCurrent;
+            }
+        }
+        return history;
+    }
+
+    /**
+     * Returns historical duration of the test method
+     *
+     * @param key String -> 'package.Class.method'
+     * @return Long -> milliseconds or null if method has no history
+     */
+    public Long get(String key){
+        return mHistory.get(key);
+    }
+
+    /**
+     * Returns historical duration of the test method or estimate in case if method has no history
+     * Estimate is mean duration of known methods of the same class, otherwise median of all known methods
+     *
+     * @param key String -> 'package.Class.method'
+     * @return long -> milliseconds
+     */
+    public long estimate(String key){
+        Long known = mHistory.get(key);
+        if (known != null) return known;
+        String prefix = key.substring(0, key.lastIndexOf('.') + 1);
+        long total = 0;
+        int count = 0;
+        for (Map.Entry<String, Long> entry : mHistory.entrySet()) {
+            if (entry.getKey().startsWith(prefix) && entry.getKey().indexOf('.', prefix.length()) < 0) {
+                total += entry.getValue();
+                count++;
+            }
+        }
+        if (count > 0) return total / count;
+        if (mHistory.isEmpty()) return DEFAULT_ESTIMATE_MILLIS;
+        List<Long> durations = new ArrayList<>(mHistory.values());
+        Collections.sort(durations);
+        return durations.get(durations.size() / 2);
+    }
+
+    /**
+     * Records measured duration of the test method
+     * Repeated invocations (data providers, invocation count) are summed
+     *
+     * @param key String -> 'package.Class.method'
+     * @param millis long -> duration
+     */
+    public void record(String key, long millis){
+        mMeasured.merge(key, Math.max(0, millis), Long::sum);
+    }
+
+    /**
+     * Blends durations measured since previous call into history file
+     * File is read again before writing, so durations recorded by other shards in the meantime are kept
+     */
+    public synchronized void save(){
+        Map<String, Long> measurements = new TreeMap<>();
+        for (String key : mMeasured.keySet()) {
+            Long measured = mMeasured.remove(key);
+            if (measured != null) measurements.put(key, measured);
+        }
+        if (measurements.isEmpty()) return;
+        Map<String, Long> merged = new TreeMap<>(read(mFile));
+        for (Map.Entry<String, Long> entry : measurements.entrySet()) {
+            Long previous = merged.get(entry.getKey());
+            long measured = entry.getValue();
+            merged.put(entry.getKey(), previous == null ? measured
+                    : Math.round(previous * (1 - SMOOTHING) + measured * SMOOTHING));
+        }
+        try {
+            File parent = mFile.getAbsoluteFile().getParentFile();
+            if (parent != null) Files.createDirectories(parent.toPath());
+            try (Writer writer = Files.newBufferedWriter(mFile.toPath(), StandardCharsets.UTF_8)) {
+                writer.write("# Test method durations in milliseconds, updated by TinyUIChef after every run\n");
+                for (Map.Entry<String, Long> entry : merged.entrySet()) {
+                    writer.write(entry.getKey() + "=" + entry.getValue() + "\n");
+                }
+            }
+            logger.log(Level.INFO, "Durations of " + measurements.size() + " test methods written to: " + mFile.getPath());
+        } catch (IOException e){
+            logger.log(Level.WARNING,
+                    "There was an issue writing test durations. Please refer to the following error: " + e);
+        }
+    }
+
+    /**
+     * Reads history file
+     *
+     * @param file File -> history file
+     * @return Map -> durations by method, empty if file is missing
+     */
+    static Map<String, Long> read(File file){
+        Map<String, Long> history = new TreeMap<>();
+        if (!file.isFile()) return history;
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int separator = line.lastIndexOf('=');
+                if (line.startsWith("#") || separator <= 0) continue;
+                try {
+                    history.put(line.substring(0, separator).trim(), Long.parseLong(line.substring(separator + 1).trim()));
+                } catch (NumberFormatException e){
+                    logger.log(Level.FINE, "Skipping malformed duration line: " + line);
+                }
+            }
+        } catch (IOException e){
+            logger.log(Level.WARNING,
+                    "There was an issue reading test durations. Please refer to the following error: " + e);
+        }
+        return history;
+    }
+}
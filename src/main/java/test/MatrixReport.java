@@ -0,0 +1,135 @@
+package test;
+
+import org.testng.IReporter;
+import org.testng.IResultMap;
+import org.testng.ISuite;
+import org.testng.ISuiteResult;
+import org.testng.ITestContext;
+import org.testng.ITestResult;
+import org.testng.xml.XmlSuite;
+import provider.MatrixCell;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Merges results of every matrix cell into 'matrix.csv' in TestNG output directory
+ * One row per test method, one column per cell holding PASS, FAIL or SKIP
+ * Logs passed, failed and skipped count and duration of every cell
+ */
+public class MatrixReport implements IReporter {
+
+    private static final Logger logger = Logger.getLogger(MatrixReport.class.getName());
+
+    /**
+     * Writes merged report
+     *
+     * @param xmlSuites List -> suites of the run
+     * @param suites List -> finished suites
+     * @param outputDirectory String -> TestNG output directory
+     */
+    @Override
+    public void generateReport(List<XmlSuite> xmlSuites, List<ISuite> suites, String outputDirectory){
+        Map<String, Map<String, String>> statuses = new TreeMap<>();
+        Map<String, long[]> cells = new LinkedHashMap<>();
+        long start = Long.MAX_VALUE, end = 0;
+        for (ISuite suite : suites) {
+            for (ISuiteResult result : suite.getResults().values()) {
+                ITestContext context = result.getTestContext();
+                String cell = getCell(context);
+                long[] totals = cells.computeIfAbsent(cell, key -> new long[]{0, 0, 0, Long.MAX_VALUE, 0});
+                totals[0] += collect(context.getPassedTests(), cell, "PASS", statuses);
+                totals[1] += collect(context.getFailedTests(), cell, "FAIL", statuses);
+                totals[2] += collect(context.getSkippedTests(), cell, "SKIP", statuses);
+                totals[3] = Math.min(totals[3], context.getStartDate().getTime());
+                totals[4] = Math.max(totals[4], context.getEndDate().getTime());
+                start = Math.min(start, totals[3]);
+                end = Math.max(end, totals[4]);
+            }
+        }
+        if (cells.isEmpty()) return;
+        File file = new File(outputDirectory, "matrix.csv");
+        try {
+            Files.createDirectories(file.getAbsoluteFile().getParentFile().toPath());
+            try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+                writer.write("test");
+                for (String cell : cells.keySet()) {
+                    writer.write("," + cell);
+                }
+                writer.write('\n');
+                for (Map.Entry<String, Map<String, String>> row : statuses.entrySet()) {
+                    writer.write(row.getKey());
+                    for (String cell : cells.keySet()) {
+                        String status = row.getValue().get(cell);
+                        writer.write("," + (status != null ? status : "-"));
+                    }
+                    writer.write('\n');
+                }
+            }
+        } catch (IOException e){
+            logger.log(Level.WARNING,
+                    "There was an issue writing matrix report. Please refer to the following error: " + e);
+        }
+        StringBuilder summary = new StringBuilder("Matrix of ").append(cells.size()).append(" cells finished in ")
+                .append(end - start).append(" ms, report: ").append(file.getPath());
+        long total = 0;
+        for (Map.Entry<String, long[]> cell : cells.entrySet()) {
+            long[] totals = cell.getValue();
+            total += totals[4] - totals[3];
+            summary.append("\n  ").append(cell.getKey()).append(": ").append(totals[0]).append(" passed, ")
+                    .append(totals[1]).append(" failed, ").append(totals[2]).append(" skipped in ")
+                    .append(totals[4] - totals[3]).append(" ms");
+        }
+        summary.append("\n  cells took ").append(total).append(" ms in total");
+        logger.log(Level.INFO, summary.toString());
+    }
+
+    /**
+     * Records status of every result into report rows
+     * Worst status wins when method ran several times in the cell: FAIL, then SKIP, then PASS
+     *
+     * @param results IResultMap -> results of one status
+     * @param cell String -> cell of the results
+     * @param status String -> PASS, FAIL or SKIP
+     * @param statuses Map -> rows to fill, status by cell by test method
+     * @return int -> number of results
+     */
+    private static int collect(IResultMap results, String cell, String status, Map<String, Map<String, String>> statuses){
+        for (ITestResult result : results.getAllResults()) {
+            Map<String, String> row = statuses.computeIfAbsent(ShardInterceptor.getKey(result.getMethod()),
+                    key -> new TreeMap<>());
+            row.merge(cell, status, (previous, current) -> rank(previous) >= rank(current) ? previous : current);
+        }
+        return results.size();
+    }
+
+    /**
+     * Returns severity of status
+     *
+     * @param status String -> PASS, FAIL or SKIP
+     * @return int
+     */
+    private static int rank(String status){
+        return "FAIL".equals(status) ? 2 : "SKIP".equals(status) ? 1 : 0;
+    }
+
+    /**
+     * Returns matrix cell of the test, test name in case if it doesn't run in matrix
+     *
+     * @param context ITestContext -> finished test
+     * @return String
+     */
+    private static String getCell(ITestContext context){
+        String cell = context.getCurrentXmlTest().getParameter(MatrixCell.PARAMETER);
+        return cell != null ? cell : context.getName();
+    }
+}
@@ -0,0 +1,125 @@
+package test;
+
+import org.testng.TestNG;
+import org.testng.xml.Parser;
+import org.testng.xml.XmlClass;
+import org.testng.xml.XmlSuite;
+import org.testng.xml.XmlTest;
+import org.xml.sax.SAXException;
+import provider.MatrixCell;
+import provider.Parameters;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs TestNG suites over every cell of 'matrix/cells' from one JVM
+ * Every '<test>' of the suite is copied per cell as '<test> [cell]' and copies run at the same time
+ * ('parallel="tests"'), test methods inside a copy follow 'execution/thread_count',
+ * so wall-clock time of the run is close to the slowest cell instead of the sum of all cells
+ * Browsers of a profile are limited with 'matrix/limits', see 'MatrixCell'
+ * Results of every cell are merged into one TestNG report and 'matrix.csv', see 'MatrixReport'
+ * Suites run unchanged in case if 'matrix/cells' is not set
+ * Usage: 'java -cp <test classpath> test.MatrixRunner testng.xml [more suite files]'
+ */
+public final class MatrixRunner {
+
+    private static final Logger logger = Logger.getLogger(MatrixRunner.class.getName());
+
+    private MatrixRunner(){
+    }
+
+    /**
+     * Runs suite files over the matrix and exits with TestNG status
+     *
+     * @param args String[] -> suite files
+     */
+    public static void main(String[] args){
+        if (args.length == 0) {
+            System.err.println("Usage: java -cp <test classpath> test.MatrixRunner testng.xml [more suite files]");
+            System.exit(2);
+        }
+        List<XmlSuite> suites = new ArrayList<>();
+        for (String file : args) {
+            try {
+                suites.addAll(new Parser(file).parseToList());
+            } catch (ParserConfigurationException | SAXException | IOException e){
+                logger.log(Level.SEVERE, "There was an issue parsing suite " + file
+                        + ". Please refer to the following error: " + e);
+                System.exit(2);
+            }
+        }
+        List<MatrixCell> cells = MatrixCell.getCells(Parameters.current());
+        expand(suites, cells);
+        logger.log(Level.INFO, cells.isEmpty() ? "No 'matrix/cells' declared, running suites unchanged"
+                : "Running " + suites.size() + " suites over matrix cells: " + cells);
+        TestNG testng = new TestNG();
+        testng.setXmlSuites(suites);
+        testng.addListener(new MatrixReport());
+        testng.run();
+        System.exit(testng.getStatus());
+    }
+
+    /**
+     * Replaces every test of the suites with one copy per cell and makes copies run in parallel
+     * Copy carries its cell as 'tinyuichef.cell' parameter, read by 'BaseWebTest'
+     *
+     * @param suites List -> parsed suites, changed in place
+     * @param cells List -> matrix cells, suites are kept as is in case if empty
+     */
+    static void expand(List<XmlSuite> suites, List<MatrixCell> cells){
+        if (cells.isEmpty()) return;
+        for (XmlSuite suite : suites) {
+            List<XmlTest> tests = new ArrayList<>(suite.getTests());
+            suite.getTests().clear();
+            for (XmlTest test : tests) {
+                for (MatrixCell cell : cells) {
+                    XmlTest copy = copy(test, suite);
+                    copy.setName(test.getName() + " [" + cell.getName() + "]");
+                    copy.addParameter(MatrixCell.PARAMETER, cell.getName());
+                }
+            }
+            suite.setParallel(XmlSuite.PARALLEL_TESTS);
+            suite.setThreadCount(suite.getTests().size());
+        }
+    }
+
+    /**
+     * Creates independent copy of the test in the suite
+     * 'XmlTest.clone()' of TestNG 6.8 drops classes and shares parameters, so the copy is built here
+     *
+     * @param test XmlTest -> test to copy
+     * @param suite XmlSuite -> suite the copy is added to
+     * @return XmlTest
+     */
+    private static XmlTest copy(XmlTest test, XmlSuite suite){
+        XmlTest copy = new XmlTest(suite);
+        List<XmlClass> classes = new ArrayList<>();
+        for (XmlClass xmlClass : test.getXmlClasses()) {
+            XmlClass classCopy = (XmlClass) xmlClass.clone();
+            classCopy.setXmlTest(copy);
+            classes.add(classCopy);
+        }
+        copy.setXmlClasses(classes);
+        copy.setXmlPackages(new ArrayList<>(test.getXmlPackages()));
+        copy.setMethodSelectors(new ArrayList<>(test.getMethodSelectors()));
+        copy.setIncludedGroups(new ArrayList<>(test.getIncludedGroups()));
+        copy.setExcludedGroups(new ArrayList<>(test.getExcludedGroups()));
+        copy.setMetaGroups(new HashMap<>(test.getMetaGroups()));
+        copy.setParameters(new HashMap<>(test.getLocalParameters()));
+        copy.setParallel(test.getParallel());
+        copy.setThreadCount(test.getThreadCount());
+        copy.setPreserveOrder(test.getPreserveOrder());
+        copy.setVerbose(test.getVerbose());
+        copy.setJUnit(test.isJUnit());
+        copy.setGroupByInstances(test.getGroupByInstances());
+        copy.setSkipFailedInvocationCounts(test.skipFailedInvocationCounts());
+        if (test.getTimeOut() != null) copy.setTimeOut(test.getTimeOut(0));
+        return copy;
+    }
+}
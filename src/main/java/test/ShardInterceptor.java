@@ -0,0 +1,163 @@
+package test;
+
+import org.testng.IMethodInstance;
+import org.testng.IMethodInterceptor;
+import org.testng.ITestContext;
+import org.testng.ITestNGMethod;
+import provider.Parameters;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs only the share of test methods assigned to this JVM
+ * Enabled with 'execution/shard_count' greater than 1, shard is chosen with 'execution/shard_index' (0 based),
+ * both can be passed on the command line, e.g. '-Dtinyuichef.execution.shard_index=2'
+ * Methods are split with longest-processing-time bin packing over 'DurationHistory', so shards finish together
+ * Plan only depends on the suite and the duration file, so every JVM computes the same plan,
+ * shards sharing one file should start before any of them saves new durations into it
+ * Classes with 'dependsOnMethods' or 'dependsOnGroups' are kept in one shard
+ */
+public class ShardInterceptor implements IMethodInterceptor {
+
+    private static final String SHARD_ATTRIBUTE = ShardInterceptor.class.getName() + ".shard";
+    private static final Logger logger = Logger.getLogger(ShardInterceptor.class.getName());
+
+    /**
+     * Keeps methods of this JVM's shard
+     * TestNG may call interceptor again with already filtered methods, so shard is planned once per test
+     * and kept in its context
+     *
+     * @param methods List -> methods of the test
+     * @param context ITestContext -> test context
+     * @return List -> methods of the shard
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<IMethodInstance> intercept(List<IMethodInstance> methods, ITestContext context){
+        Parameters parameters = Parameters.current();
+        int count = parameters.getInt("execution.shard_count", 1);
+        if (count <= 1 || methods.isEmpty()) return methods;
+        int index = parameters.getInt("execution.shard_index", 0);
+        if (index < 0 || index >= count) {
+            throw new IllegalArgumentException("'shard_index' must be within 0.." + (count - 1) + ", got: " + index);
+        }
+        Set<Class<?>> dependent = new HashSet<>();
+        for (IMethodInstance method : methods) {
+            ITestNGMethod testMethod = method.getMethod();
+            if (testMethod.getMethodsDependedUpon().length > 0 || testMethod.getGroupsDependedUpon().length > 0) {
+                dependent.add(testMethod.getRealClass());
+            }
+        }
+        Set<String> shard = (Set<String>) context.getAttribute(SHARD_ATTRIBUTE);
+        boolean planned = shard == null;
+        long[] loads = new long[count];
+        if (planned) {
+            Map<String, Long> units = getUnits(methods, dependent, DurationHistory.current());
+            List<Set<String>> shards = plan(units, count);
+            for (int i = 0; i < count; i++) {
+                for (String unit : shards.get(i)) {
+                    loads[i] += units.get(unit);
+                }
+            }
+            shard = shards.get(index);
+            context.setAttribute(SHARD_ATTRIBUTE, shard);
+        }
+        List<IMethodInstance> selected = new ArrayList<>();
+        for (IMethodInstance method : methods) {
+            if (shard.contains(getUnit(method.getMethod(), dependent))) {
+                selected.add(method);
+            }
+        }
+        if (planned) {
+            logger.log(Level.INFO, "Shard " + index + " of " + count + " in '" + context.getName() + "': "
+                    + selected.size() + " of " + methods.size() + " test methods, estimated " + loads[index]
+                    + " ms. Estimated shard durations, ms: " + Arrays.toString(loads));
+        }
+        return selected;
+    }
+
+    /**
+     * Assigns units to shards: longest unit first, each to the least loaded shard
+     * Ties are broken by unit name and shard index, so plan is the same on every JVM
+     *
+     * @param units Map -> estimated duration by unit
+     * @param count int -> number of shards
+     * @return List -> units of every shard
+     */
+    static List<Set<String>> plan(Map<String, Long> units, int count){
+        List<Map.Entry<String, Long>> ordered = new ArrayList<>(units.entrySet());
+        ordered.sort((a, b) -> {
+            int byDuration = Long.compare(b.getValue(), a.getValue());
+            return byDuration != 0 ? byDuration : a.getKey().compareTo(b.getKey());
+        });
+        List<Set<String>> shards = new ArrayList<>();
+        long[] loads = new long[count];
+        for (int i = 0; i < count; i++) {
+            shards.add(new HashSet<>());
+        }
+        for (Map.Entry<String, Long> unit : ordered) {
+            int lightest = 0;
+            for (int i = 1; i < count; i++) {
+                if (loads[i] < loads[lightest]) lightest = i;
+            }
+            shards.get(lightest).add(unit.getKey());
+            loads[lightest] += unit.getValue();
+        }
+        return shards;
+    }
+
+    /**
+     * Returns 'package.Class.method' key of the test method
+     *
+     * @param method ITestNGMethod -> test method
+     * @return String
+     */
+    static String getKey(ITestNGMethod method){
+        return method.getRealClass().getName() + "." + method.getMethodName();
+    }
+
+    /**
+     * Sums estimated durations of methods by unit
+     * Method run for several instances shares its recorded duration between them
+     *
+     * @param methods List -> methods of the test
+     * @param dependent Set -> classes having dependent methods
+     * @param history DurationHistory -> recorded durations
+     * @return Map -> estimated duration by unit
+     */
+    private Map<String, Long> getUnits(List<IMethodInstance> methods, Set<Class<?>> dependent,
+                                       DurationHistory history){
+        Map<String, Integer> instances = new HashMap<>();
+        for (IMethodInstance method : methods) {
+            instances.merge(getKey(method.getMethod()), 1, Integer::sum);
+        }
+        Map<String, Long> units = new LinkedHashMap<>();
+        for (IMethodInstance method : methods) {
+            String key = getKey(method.getMethod());
+            long duration = Math.max(1, history.estimate(key) / instances.get(key));
+            units.merge(getUnit(method.getMethod(), dependent), duration, Long::sum);
+        }
+        return units;
+    }
+
+    /**
+     * Returns unit the method is scheduled with: its class in case if class has dependent methods,
+     * the method itself otherwise
+     *
+     * @param method ITestNGMethod -> test method
+     * @param dependent Set -> classes having dependent methods
+     * @return String
+     */
+    private String getUnit(ITestNGMethod method, Set<Class<?>> dependent){
+        return dependent.contains(method.getRealClass()) ? method.getRealClass().getName() : getKey(method);
+    }
+}
@@ -0,0 +1,230 @@
+package test;
+
+import org.testng.IAttributes;
+import org.testng.IInvokedMethod;
+import org.testng.IInvokedMethodListener;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+import org.testng.ITestNGMethod;
+import org.testng.ITestResult;
+import org.testng.Reporter;
+import org.testng.xml.XmlSuite;
+import org.testng.xml.XmlTest;
+import provider.ActionLog;
+import provider.BrowserScheduler;
+import provider.CommandMetrics;
+import provider.DriverServices;
+import provider.FailureArtifacts;
+import provider.MatrixCell;
+import provider.ParameterReader;
+import provider.Parameters;
+import provider.PerformanceBudget;
+import provider.SessionRegistry;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class SuiteListener implements ISuiteListener, IInvokedMethodListener {
+
+    private static final String STARTED_ATTRIBUTE = SuiteListener.class.getName() + ".started";
+    private static final String FINISHED_ATTRIBUTE = SuiteListener.class.getName() + ".finished";
+    private static final ThreadLocal<ITestResult> RESULTS = new ThreadLocal<>();
+    private static final Logger logger = Logger.getLogger(SuiteListener.class.getName());
+
+    /**
+     * Applies 'execution/thread_count' from 'parameters.xml' to the suite
+     * Value greater than 1 switches suite and its tests to parallel="methods"
+     * Suite running its tests in parallel (e.g. matrix cells of 'MatrixRunner') keeps doing so,
+     * only methods inside every test are switched
+     *
+     * @param suite ISuite -> starting suite
+     */
+    @Override
+    public void onStart(ISuite suite){
+        if (isHandled(suite, STARTED_ATTRIBUTE)) return;
+        int threadCount = new ParameterReader().getThreadCount();
+        if (threadCount <= 1) return;
+        XmlSuite xmlSuite = suite.getXmlSuite();
+        if (!XmlSuite.PARALLEL_TESTS.equals(xmlSuite.getParallel())) {
+            xmlSuite.setParallel(XmlSuite.PARALLEL_METHODS);
+            xmlSuite.setThreadCount(threadCount);
+        }
+        for (XmlTest xmlTest : xmlSuite.getTests()) {
+            xmlTest.setParallel(XmlSuite.PARALLEL_METHODS);
+            xmlTest.setThreadCount(threadCount);
+        }
+        logger.log(Level.INFO, "Running suite '" + xmlSuite.getName() + "' in parallel with "
+                + threadCount + " threads");
+    }
+
+    /**
+     * Writes command latency report into 'execution/metrics_dir', 'target/metrics' by default
+     * Logs browser startup timings and admissions of the suite
+     * Waits for failure artifacts to be written
+     * Saves test method durations for sharding in case if 'execution/record_durations' is 'true'
+     * Appends page timings of the suite to performance trend file
+     *
+     * @param suite ISuite -> finished suite
+     */
+    @Override
+    public void onFinish(ISuite suite){
+        if (isHandled(suite, FINISHED_ATTRIBUTE)) return;
+        if (isRecordingDurations()) {
+            DurationHistory.current().save();
+        }
+        PerformanceBudget.current().save();
+        String startup = DriverServices.getStartupSummary();
+        if (!startup.isEmpty()) {
+            logger.log(Level.INFO, "Browser startup timings: " + startup);
+        }
+        String admissions = BrowserScheduler.getSummary();
+        if (!admissions.isEmpty()) {
+            logger.log(Level.INFO, "Browser admissions: " + admissions);
+        }
+        String sessions = SessionRegistry.getSummary();
+        if (!sessions.isEmpty()) {
+            logger.log(Level.INFO, "Browser sessions: " + sessions);
+        }
+        List<String> leaks = SessionRegistry.getLeaks();
+        if (!leaks.isEmpty()) {
+            logger.log(Level.WARNING, leaks.size() + " browser sessions were never quit, they are quit on JVM exit: "
+                    + String.join("; ", leaks));
+        }
+        if (FailureArtifacts.isEnabled()) {
+            if (!FailureArtifacts.flush(60, TimeUnit.SECONDS)) {
+                logger.log(Level.WARNING, "Failure artifacts are still being written into "
+                        + FailureArtifacts.getDirectory().getPath());
+            }
+            String artifacts = FailureArtifacts.getSummary();
+            if (!artifacts.isEmpty()) {
+                logger.log(Level.INFO, "Failure artifacts: " + artifacts);
+            }
+        }
+        if (CommandMetrics.isEnabled()) {
+            String directory = Parameters.current().getString("execution.metrics_dir", CommandMetrics.DEFAULT_REPORT_DIR);
+            CommandMetrics.writeReport(new File(directory));
+        }
+    }
+
+    /**
+     * Tags WebDriver commands of the current thread with the starting test method
+     * Remembers result of the test method for '@AfterMethod' methods of the thread, see 'removeCurrentResult'
+     *
+     * @param method IInvokedMethod -> method to be invoked
+     * @param testResult ITestResult -> result of the method
+     */
+    @Override
+    public void beforeInvocation(IInvokedMethod method, ITestResult testResult){
+        if (method.isTestMethod()) RESULTS.set(testResult);
+        if (method.isTestMethod() && testResult.getAttribute(STARTED_ATTRIBUTE) == null) {
+            String name = getName(testResult);
+            CommandMetrics.setTest(name);
+            ActionLog.startTest(name);
+            testResult.setAttribute(STARTED_ATTRIBUTE, System.nanoTime());
+        }
+    }
+
+    /**
+     * Clears test tags of the current thread
+     * Shows last page actions of the test method in case if it failed
+     *
+     * @param method IInvokedMethod -> invoked method
+     * @param testResult ITestResult -> result of the method
+     */
+    @Override
+    public void afterInvocation(IInvokedMethod method, ITestResult testResult){
+        if (method.isTestMethod() && !isHandled(testResult, FINISHED_ATTRIBUTE)) {
+            Long started = (Long) testResult.getAttribute(STARTED_ATTRIBUTE);
+            if (started != null && isRecordingDurations()) {
+                DurationHistory.current().record(ShardInterceptor.getKey(method.getTestMethod()),
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+            }
+            CommandMetrics.setTest(null);
+            if (testResult.getStatus() == ITestResult.FAILURE) {
+                reportRecentActions(getName(testResult));
+            }
+            ActionLog.endTest();
+        }
+    }
+
+    /**
+     * Logs last page actions of the current thread and adds them to TestNG report
+     *
+     * @param test String -> failed test method name
+     */
+    private void reportRecentActions(String test){
+        List<String> actions = ActionLog.getRecent();
+        if (actions.isEmpty()) return;
+        StringBuilder message = new StringBuilder("Last ").append(actions.size())
+                .append(" actions of failed test ").append(test).append(':');
+        for (String action : actions) {
+            message.append("\n  ").append(action);
+            Reporter.log(action);
+        }
+        logger.log(Level.WARNING, message.toString());
+    }
+
+    /**
+     * Marks suite or test result as handled
+     * TestNG registers annotated listeners once per '<test>' and may notify every instance,
+     * so work is done by the first notified one only
+     *
+     * @param attributes IAttributes -> suite or test result
+     * @param attribute String -> attribute name of the notification
+     * @return boolean -> 'true' in case if notification was already handled
+     */
+    private static boolean isHandled(IAttributes attributes, String attribute){
+        synchronized (attributes) {
+            if (attributes.getAttribute(attribute) != null) return true;
+            attributes.setAttribute(attribute, Boolean.TRUE);
+            return false;
+        }
+    }
+
+    /**
+     * Returns 'true' in case if 'execution/record_durations' is 'true', off by default,
+     * so local runs don't rewrite committed duration file, CI node refreshing history turns it on
+     *
+     * @return boolean
+     */
+    private static boolean isRecordingDurations(){
+        return Parameters.current().getBoolean("execution.record_durations", false);
+    }
+
+    /**
+     * Returns result of the test method last invoked on the current thread and forgets it
+     * TestNG reports result of the configuration method itself to '@AfterMethod' without parameters
+     *
+     * @return ITestResult -> result of the test method or null if no test method ran on the thread
+     */
+    static ITestResult removeCurrentResult(){
+        ITestResult result = RESULTS.get();
+        RESULTS.remove();
+        return result;
+    }
+
+    /**
+     * Returns 'ClassName.methodName' of the test method, followed by '[cell]' in case if it runs in matrix
+     *
+     * @param result ITestResult -> result of the test method
+     * @return String
+     */
+    static String getName(ITestResult result){
+        String name = getName(result.getMethod());
+        String cell = result.getTestContext().getCurrentXmlTest().getParameter(MatrixCell.PARAMETER);
+        return cell != null ? name + "[" + cell + "]" : name;
+    }
+
+    /**
+     * Returns 'ClassName.methodName' of the test method
+     *
+     * @param method ITestNGMethod -> test method
+     * @return String
+     */
+    static String getName(ITestNGMethod method){
+        return method.getRealClass().getSimpleName() + "." + method.getMethodName();
+    }
+}
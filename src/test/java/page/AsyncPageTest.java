@@ -0,0 +1,93 @@
+package page;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.htmlunit.HtmlUnitDriver;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Checks that async operations are serialized per browser session, not per 'AsyncPage'
+ */
+public class AsyncPageTest {
+
+    private WebDriver mFirst;
+    private WebDriver mSecond;
+
+    @BeforeClass
+    public void startDrivers(){
+        mFirst = new HtmlUnitDriver();
+        mSecond = new HtmlUnitDriver();
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void quitDrivers(){
+        mFirst.quit();
+        mSecond.quit();
+    }
+
+    @Test
+    public void serializesPagesOfOneSession(){
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+        AsyncPage<BaseWebPage> one = AsyncPage.of(new BaseWebPage(mFirst));
+        AsyncPage<BaseWebPage> other = AsyncPage.of(new BaseWebPage(mFirst));
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[10];
+        for (int i = 0; i < futures.length; i++) {
+            AsyncPage<BaseWebPage> async = (i % 2 == 0) ? one : other;
+            futures[i] = async.run(page -> {
+                if (running.incrementAndGet() > 1) overlaps.incrementAndGet();
+                sleep(20);
+                running.decrementAndGet();
+            });
+        }
+        AsyncPage.awaitAll(futures);
+
+        Assert.assertEquals(overlaps.get(), 0, "Operations of one session overlapped");
+    }
+
+    @Test
+    public void runsDifferentSessionsAtTheSameTime(){
+        CountDownLatch both = new CountDownLatch(2);
+        CompletableFuture<Boolean> first = AsyncPage.of(new BaseWebPage(mFirst)).call(page -> meet(both));
+        CompletableFuture<Boolean> second = AsyncPage.of(new BaseWebPage(mSecond)).call(page -> meet(both));
+
+        Assert.assertTrue(AsyncPage.await(first));
+        Assert.assertTrue(AsyncPage.await(second));
+    }
+
+    /**
+     * Counts down and waits for the other session to do the same
+     *
+     * @param latch CountDownLatch
+     * @return boolean -> 'true' in case if both sessions met in time
+     */
+    private static boolean meet(CountDownLatch latch){
+        latch.countDown();
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Sleeps inside operation
+     *
+     * @param millis long
+     */
+    private static void sleep(long millis){
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package page;
+
+import org.openqa.selenium.InvalidSelectorException;
+import org.openqa.selenium.WebDriver;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Checks CSS translation and local queries of 'DomSnapshot' against fixed XHTML document
+ */
+public class DomSnapshotTest {
+
+    private static final String URL = "http://localhost/fixture";
+    private static final String PAGE = "<html><head><style>.box { color: red }</style><script>var hidden = 1;</script></head>"
+            + "<body><div id='main' class='box wide'>"
+            + "<ul id='list'>"
+            + "<li class='item' data-role='first-item'>One</li>"
+            + "<li class='item selected' lang='en-US'>Two</li>"
+            + "<li class='item' data-tags='red green'>Three</li>"
+            + "<li class='item last' data-path='/img/logo.png'>Four</li>"
+            + "</ul>"
+            + "<p id='dup'>First dup</p><p id='dup'>Second dup</p>"
+            + "<section><p class='note'>  Spaced\n    text <script>ignored()</script><style>p { }</style> here&#160;now </p></section>"
+            + "</div><a href='/x'>Link</a></body></html>";
+
+    private DomSnapshot mSnapshot;
+
+    @BeforeClass
+    public void takeSnapshot(){
+        WebDriver driver = (WebDriver) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{WebDriver.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getCurrentUrl":
+                            return URL;
+                        case "getPageSource":
+                            return PAGE;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+        mSnapshot = DomSnapshot.capture(driver, false);
+    }
+
+    @DataProvider
+    public Object[][] selectors(){
+        return new Object[][]{
+                {"div li", Arrays.asList("One", "Two", "Three", "Four")},
+                {"ul > li", Arrays.asList("One", "Two", "Three", "Four")},
+                {"div > li", Collections.emptyList()},
+                {"li.selected + li", Collections.singletonList("Three")},
+                {"li.selected ~ li", Arrays.asList("Three", "Four")},
+                {"#list .item.last", Collections.singletonList("Four")},
+                {"li[data-role]", Collections.singletonList("One")},
+                {"li[data-role='first-item']", Collections.singletonList("One")},
+                {"li[data-role^='first']", Collections.singletonList("One")},
+                {"li[data-path$=\".png\"]", Collections.singletonList("Four")},
+                {"li[data-role*=st-it]", Collections.singletonList("One")},
+                {"li[data-tags~=green]", Collections.singletonList("Three")},
+                {"li[data-tags~=gre]", Collections.emptyList()},
+                {"li[lang|=en]", Collections.singletonList("Two")},
+                {"li[lang|=US]", Collections.emptyList()},
+                {"li:first-child", Collections.singletonList("One")},
+                {"li:last-child", Collections.singletonList("Four")},
+                {"li:nth-child(2)", Collections.singletonList("Two")},
+                {"*:nth-child(3)", Arrays.asList("Three", "Second dup")},
+                {"li:first-child, a", Arrays.asList("One", "Link")},
+                {"a , li:last-child", Arrays.asList("Four", "Link")},
+        };
+    }
+
+    @Test(dataProvider = "selectors")
+    public void matchesCssSelector(String css, List<String> texts){
+        Assert.assertEquals(mSnapshot.getTexts(Locator.css(css)), texts, css + " -> " + CssXPath.translate(css));
+    }
+
+    @Test
+    public void findsFirstElementOfDuplicateId(){
+        Assert.assertEquals(mSnapshot.getText(Locator.id("dup")), "First dup");
+        Assert.assertEquals(mSnapshot.count(Locator.id("dup")), 1);
+        Assert.assertEquals(mSnapshot.count(Locator.css("#dup")), 2);
+        Assert.assertNull(mSnapshot.find(Locator.id("missing")));
+    }
+
+    @Test
+    public void normalizesTextWithoutScriptAndStyle(){
+        Assert.assertEquals(mSnapshot.getText(Locator.className("note")), "Spaced text here now");
+        String page = mSnapshot.getText(Locator.tagName("html"));
+        Assert.assertFalse(page.contains("hidden") || page.contains("color") || page.contains("ignored"), page);
+    }
+
+    @Test
+    public void answersOtherLocatorStrategies(){
+        Assert.assertEquals(mSnapshot.getText(Locator.linkText("Link")), "Link");
+        Assert.assertEquals(mSnapshot.getAttribute(Locator.xpath("//li[4]"), "data-path"), "/img/logo.png");
+        Assert.assertNull(mSnapshot.getAttribute(Locator.xpath("//li[1]"), "lang"));
+    }
+
+    @DataProvider
+    public Object[][] unsupportedSelectors(){
+        return new Object[][]{
+                {"li:not(.item)"}, {"input:checked"}, {"li:nth-child(odd)"}, {"li::before"}, {"li["}, {"ul >"}
+        };
+    }
+
+    @Test(dataProvider = "unsupportedSelectors", expectedExceptions = InvalidSelectorException.class)
+    public void rejectsUnsupportedSelector(String css){
+        mSnapshot.findAll(Locator.css(css));
+    }
+}
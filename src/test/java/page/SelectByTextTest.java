@@ -0,0 +1,63 @@
+package page;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.htmlunit.HtmlUnitDriver;
+import org.openqa.selenium.support.ui.Select;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Checks that single and batch selection pick option by visible text
+ */
+public class SelectByTextTest {
+
+    private static final String PAGE = "data:text/html,<select id='size'>"
+            + "<option value='s'>Small</option><option value='m'>Medium</option><option value='l'>Large</option>"
+            + "</select>";
+
+    private WebDriver mDriver;
+    private BaseWebPage mPage;
+
+    @BeforeClass
+    public void startDriver(){
+        mDriver = new HtmlUnitDriver(true);
+        mPage = new BaseWebPage(mDriver);
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void quitDriver(){
+        mDriver.quit();
+    }
+
+    @BeforeMethod
+    public void openPage(){
+        mDriver.get(PAGE);
+    }
+
+    @Test
+    public void selectsByVisibleText(){
+        mPage.selectByText(Locator.id("size"), "Medium");
+
+        Assert.assertEquals(getSelectedValue(), "m");
+    }
+
+    @Test
+    public void batchSelectsSameOption(){
+        mPage.fill(new FormFill().select(Locator.id("size"), "Large"));
+
+        Assert.assertEquals(getSelectedValue(), "l");
+    }
+
+    /**
+     * Returns value of the selected option
+     *
+     * @return String
+     */
+    private String getSelectedValue(){
+        return new Select(mDriver.findElement(By.id("size"))).getFirstSelectedOption().getAttribute("value");
+    }
+}
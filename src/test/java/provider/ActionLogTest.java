@@ -0,0 +1,61 @@
+package provider;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.logging.Level;
+
+/**
+ * Checks that actions of threads acting for the test method show up in history of the test thread
+ */
+public class ActionLogTest {
+
+    @AfterMethod(alwaysRun = true)
+    public void unbind(){
+        ActionLog.endTest();
+    }
+
+    @Test
+    public void keepsActionsOfActingThreadInTestHistory() throws InterruptedException {
+        ActionLog.startTest("ActionLogTest.acting");
+        ActionLog.log(Level.INFO, "click", ActionLogTest.class, "test-thread");
+        String test = ActionLog.getTest();
+        Thread worker = new Thread(() -> {
+            ActionLog.setTest(test);
+            try {
+                ActionLog.log(Level.INFO, "click", ActionLogTest.class, "worker-thread");
+            } finally {
+                ActionLog.setTest(null);
+            }
+        });
+        worker.start();
+        worker.join();
+
+        List<String> recent = ActionLog.getRecent();
+
+        Assert.assertEquals(recent.size(), 2, "Recent: " + recent);
+        Assert.assertTrue(recent.get(1).contains("worker-thread"), "Recent: " + recent);
+    }
+
+    @Test
+    public void keepsHistoryAfterEndOfTest(){
+        ActionLog.startTest("ActionLogTest.ended");
+        ActionLog.log(Level.INFO, "click", ActionLogTest.class, "before-end");
+        ActionLog.endTest();
+
+        Assert.assertNull(ActionLog.getTest());
+        Assert.assertEquals(ActionLog.getRecent().size(), 1);
+    }
+
+    @Test
+    public void startsNewHistoryForNextTest(){
+        ActionLog.startTest("ActionLogTest.first");
+        ActionLog.log(Level.INFO, "click", ActionLogTest.class, "first");
+        ActionLog.endTest();
+        ActionLog.startTest("ActionLogTest.second");
+
+        Assert.assertTrue(ActionLog.getRecent().isEmpty());
+    }
+}
@@ -0,0 +1,114 @@
+package provider;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Checks bucketing and percentiles of 'LatencyHistogram' against known distributions
+ * Values below 64 us are kept exactly, larger ones within 1/64 (half of a bucket) of the exact value
+ */
+public class LatencyHistogramTest {
+
+    private static final double RELATIVE_ERROR = 1.0 / 64;
+
+    @Test
+    public void reportsNothingWhenEmpty(){
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        Assert.assertEquals(histogram.getCount(), 0);
+        Assert.assertEquals(histogram.getPercentile(50), 0);
+        Assert.assertEquals(histogram.getMean(), 0.0);
+    }
+
+    @Test
+    public void reportsSingleValueExactly(){
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(12345);
+
+        Assert.assertEquals(histogram.getCount(), 1);
+        Assert.assertEquals(histogram.getMax(), 12345);
+        Assert.assertEquals(histogram.getMean(), 12345.0);
+        for (double percentile : new double[]{0, 50, 95, 99, 100}) {
+            assertClose(histogram.getPercentile(percentile), 12345, "p" + percentile);
+            Assert.assertTrue(histogram.getPercentile(percentile) <= histogram.getMax());
+        }
+    }
+
+    @Test
+    public void reportsPercentilesOfUniformDistribution(){
+        int count = 100000;
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int value = 1; value <= count; value++) {
+            histogram.record(value);
+        }
+
+        Assert.assertEquals(histogram.getCount(), count);
+        Assert.assertEquals(histogram.getTotal(), (long) count * (count + 1) / 2);
+        Assert.assertEquals(histogram.getMax(), count);
+        for (double percentile : new double[]{1, 50, 90, 95, 99, 99.9}) {
+            assertClose(histogram.getPercentile(percentile), (long) Math.ceil(percentile / 100 * count), "p" + percentile);
+        }
+        assertClose(histogram.getPercentile(100), count, "p100");
+        Assert.assertTrue(histogram.getPercentile(99) <= histogram.getMax());
+    }
+
+    @Test
+    public void keepsSmallValuesExactly(){
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int value = 0; value < 64; value++) {
+            histogram.record(value);
+        }
+
+        Assert.assertEquals(histogram.getPercentile(50), 31);
+        Assert.assertEquals(histogram.getPercentile(100), 63);
+    }
+
+    @Test
+    public void placesBucketBoundariesWithinError(){
+        long[] boundaries = {63, 64, 65, 127, 128, 129, 1023, 1024, 1025, (1L << 20) - 1, 1L << 20, (1L << 39) + 1};
+        for (long value : boundaries) {
+            LatencyHistogram histogram = new LatencyHistogram();
+            histogram.record(value);
+            histogram.record(value);
+            histogram.record(Long.MAX_VALUE / 2);
+
+            assertClose(histogram.getPercentile(50), value, "value " + value);
+        }
+    }
+
+    @Test
+    public void ordersNeighbouringBuckets(){
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 50; i++) {
+            histogram.record(1023);
+            histogram.record(1025);
+        }
+
+        Assert.assertTrue(histogram.getPercentile(50) < histogram.getPercentile(51),
+                histogram.getPercentile(50) + " >= " + histogram.getPercentile(51));
+    }
+
+    @Test
+    public void clampsNegativeAndHugeValues(){
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(1L << 50);
+
+        Assert.assertEquals(histogram.getPercentile(50), 0);
+        Assert.assertEquals(histogram.getMax(), 1L << 50);
+        Assert.assertTrue(histogram.getPercentile(100) <= histogram.getMax());
+    }
+
+    /**
+     * Checks that reported value is within histogram precision of the exact one
+     *
+     * @param actual long -> reported value
+     * @param expected long -> exact value
+     * @param message String -> assertion message
+     */
+    private static void assertClose(long actual, long expected, String message){
+        double allowed = Math.max(0, expected * RELATIVE_ERROR);
+        Assert.assertTrue(Math.abs(actual - expected) <= allowed,
+                message + ": expected " + expected + " +/- " + allowed + " but was " + actual);
+    }
+}
@@ -0,0 +1,51 @@
+package provider;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Checks indexing of 'parameters.xml'
+ */
+public class ParametersTest {
+
+    @Test
+    public void indexesNestedCustomTags() throws IOException {
+        Parameters parameters = load("<parameters><browser><profile>htmlunit</profile></browser>"
+                + "<custom><name>demo</name><group><item>nested</item><count>3</count></group></custom></parameters>");
+        ParameterReader reader = new ParameterReader(parameters);
+
+        Assert.assertEquals(reader.getCustomString("name"), "demo");
+        Assert.assertEquals(reader.getCustomString("group/item"), "nested");
+        Assert.assertEquals(reader.getCustomInt("group/count"), 3);
+        Assert.assertEquals(reader.getCustomString("group/missing"), "");
+    }
+
+    @Test
+    public void defaultsMissingProfileToEmptyString() throws IOException {
+        Parameters parameters = load("<parameters><browser><headless>true</headless></browser></parameters>");
+
+        Assert.assertEquals(parameters.getProfile(), "");
+        Assert.assertEquals(new ParameterReader(parameters).getCell(), "");
+    }
+
+    /**
+     * Parses parameters from temporary file
+     *
+     * @param xml String -> file content
+     * @return Parameters
+     */
+    private static Parameters load(String xml) throws IOException {
+        File file = File.createTempFile("parameters", ".xml");
+        try {
+            Files.write(file.toPath(), xml.getBytes(StandardCharsets.UTF_8));
+            return Parameters.load(file, false);
+        } finally {
+            Files.deleteIfExists(file.toPath());
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package provider;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.openqa.selenium.MutableCapabilities;
+import org.openqa.selenium.remote.http.ClientConfig;
+import org.openqa.selenium.remote.http.HttpClient;
+import org.openqa.selenium.remote.http.HttpMethod;
+import org.openqa.selenium.remote.http.HttpRequest;
+import org.openqa.selenium.remote.http.HttpResponse;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Checks 'RemoteTransport' against local stand-in of a driver server
+ * Stub answers WebDriver new session and delete session commands and echoes every other request
+ */
+public class RemoteTransportTest {
+
+    private HttpServer mServer;
+    private URL mUrl;
+    private final List<String> mRequests = new CopyOnWriteArrayList<>();
+    private final Set<Integer> mClientPorts = ConcurrentHashMap.newKeySet();
+
+    @BeforeClass
+    public void startServer() throws IOException {
+        mServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        mServer.createContext("/", this::handle);
+        mServer.start();
+        mUrl = new URL("http://127.0.0.1:" + mServer.getAddress().getPort() + "/");
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void stopServer(){
+        RemoteTransport.closeInstance();
+        mServer.stop(0);
+    }
+
+    @BeforeMethod
+    public void clear(){
+        mRequests.clear();
+        mClientPorts.clear();
+    }
+
+    @Test
+    public void sendsRequestAndReadsResponse(){
+        HttpClient client = RemoteTransport.getInstance().createClient(ClientConfig.defaultConfig().baseUrl(mUrl));
+        HttpRequest request = new HttpRequest(HttpMethod.POST, "/echo");
+        request.addQueryParameter("q", "a b");
+        request.addHeader("X-Test", "value");
+        request.setContent(() -> new ByteArrayInputStream("payload".getBytes(StandardCharsets.UTF_8)));
+
+        HttpResponse response = client.execute(request);
+
+        Assert.assertEquals(response.getStatus(), 200);
+        Assert.assertEquals(response.getHeader("X-Echo-Header"), "value");
+        Assert.assertEquals(string(response), "POST /echo?q=a+b payload");
+    }
+
+    @Test
+    public void reusesConnectionForSequentialCommands(){
+        HttpClient client = RemoteTransport.getInstance().createClient(ClientConfig.defaultConfig().baseUrl(mUrl));
+        for (int i = 0; i < 5; i++) {
+            Assert.assertEquals(client.execute(new HttpRequest(HttpMethod.GET, "/echo")).getStatus(), 200);
+        }
+        Assert.assertEquals(mClientPorts.size(), 1, "Commands were sent over new connections: " + mClientPorts);
+    }
+
+    @Test
+    public void startsAndQuitsRemoteSession(){
+        MutableCapabilities capabilities = new MutableCapabilities();
+        capabilities.setCapability("browserName", "chrome");
+
+        RemoteBrowser browser = RemoteBrowser.start(mUrl, capabilities);
+        browser.quit();
+
+        Assert.assertNull(browser.getSessionId());
+        Assert.assertTrue(mRequests.contains("POST /session"), "Requests: " + mRequests);
+        Assert.assertTrue(mRequests.contains("DELETE /session/stub-session"), "Requests: " + mRequests);
+    }
+
+    /**
+     * Answers stub request
+     *
+     * @param exchange HttpExchange
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getPath();
+        String body = read(exchange.getRequestBody());
+        mRequests.add(method + " " + path);
+        mClientPorts.add(exchange.getRemoteAddress().getPort());
+        String response;
+        if (path.equals("/session") && method.equals("POST")) {
+            response = "{\"value\":{\"sessionId\":\"stub-session\",\"capabilities\":{\"browserName\":\"chrome\"}}}";
+        } else if (path.startsWith("/session/")) {
+            response = "{\"value\":null}";
+        } else {
+            String query = exchange.getRequestURI().getRawQuery();
+            response = method + " " + path + (query != null ? "?" + query : "") + " " + body;
+            String header = exchange.getRequestHeaders().getFirst("X-Test");
+            if (header != null) exchange.getResponseHeaders().add("X-Echo-Header", header);
+        }
+        byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(bytes);
+        }
+    }
+
+    /**
+     * Reads response content as UTF-8 string
+     *
+     * @param response HttpResponse
+     * @return String
+     */
+    private static String string(HttpResponse response){
+        try (InputStream content = response.getContent().get()) {
+            return read(content);
+        } catch (IOException e){
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Reads whole stream as UTF-8 string
+     *
+     * @param stream InputStream
+     * @return String
+     */
+    private static String read(InputStream stream) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = stream.read(buffer)) != -1) {
+            bytes.write(buffer, 0, read);
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,243 @@
+package provider;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Checks '.tvb' baseline format and tile based comparison of 'VisualDiff'
+ */
+public class VisualDiffTest {
+
+    private static final int WIDTH = 70;
+    private static final int HEIGHT = 45;
+    private static final int TILE_SIZE = 16;
+    private static final int BLACK = 0x000000;
+    private static final int WHITE = 0xFFFFFF;
+
+    private Path mDirectory;
+    private VisualDiff mDiff;
+
+    @BeforeMethod
+    public void createDiff() throws IOException {
+        mDirectory = Files.createTempDirectory("visual");
+        Map<String, String> values = new HashMap<>();
+        values.put("visual.baseline_dir", mDirectory.resolve("baseline").toString());
+        values.put("visual.output_dir", mDirectory.resolve("output").toString());
+        values.put("visual.tile_size", String.valueOf(TILE_SIZE));
+        values.put("visual.tolerance", "16");
+        values.put("visual.max_diff", "0");
+        values.put("visual.update", "false");
+        mDiff = new VisualDiff(Parameters.current().withValues(values));
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void deleteDirectory() throws IOException {
+        try (Stream<Path> paths = Files.walk(mDirectory)) {
+            paths.sorted((first, second) -> second.compareTo(first)).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    public void roundTripsBaselineLosslessly() throws IOException {
+        int[] pixels = createImage();
+        VisualBaseline baseline = VisualBaseline.of(WIDTH, HEIGHT, pixels.clone(), TILE_SIZE);
+        File file = mDirectory.resolve("round" + VisualBaseline.EXTENSION).toFile();
+        baseline.write(file);
+
+        VisualBaseline read = VisualBaseline.read(file);
+
+        Assert.assertEquals(read.getWidth(), WIDTH);
+        Assert.assertEquals(read.getHeight(), HEIGHT);
+        Assert.assertEquals(read.getTileSize(), TILE_SIZE);
+        Assert.assertEquals(read.getTileHashes(), baseline.getTileHashes());
+        Assert.assertTrue(Arrays.equals(read.getPixels(), pixels), "Pixels changed after round trip");
+        Assert.assertEquals(VisualBaseline.of(WIDTH, HEIGHT, read.getPixels(), TILE_SIZE).getTileHashes(),
+                baseline.getTileHashes());
+    }
+
+    @Test
+    public void matchesIdenticalImageWithoutInflatingBaseline() throws IOException {
+        int[] pixels = createImage();
+        File file = record("same", pixels);
+        corruptPixels(file);
+
+        VisualDiff.Result result = mDiff.compare("same", toPng(pixels));
+
+        Assert.assertEquals(result.getStatus(), VisualDiff.Status.MATCH);
+        Assert.assertEquals(result.getChangedTiles(), 0);
+        Assert.assertEquals(result.getDifferentPixels(), 0);
+        try {
+            VisualBaseline.read(file).getPixels();
+            Assert.fail("Corrupted baseline was inflated");
+        } catch (IllegalStateException e){
+            // expected, compare() never inflated the baseline
+        }
+    }
+
+    @Test
+    public void findsSingleChangedPixel() throws IOException {
+        int[] pixels = createFlat(BLACK);
+        record("pixel", pixels);
+        pixels[20 * WIDTH + 40] = WHITE;
+
+        VisualDiff.Result result = mDiff.compare("pixel", toPng(pixels));
+
+        Assert.assertEquals(result.getStatus(), VisualDiff.Status.DIFFERENT);
+        Assert.assertEquals(result.getChangedTiles(), 1);
+        Assert.assertEquals(result.getDifferentPixels(), 1);
+    }
+
+    @Test
+    public void matchesChangeWithinTolerance() throws IOException {
+        int[] pixels = createFlat(0x808080);
+        record("tolerance", pixels);
+        pixels[20 * WIDTH + 40] = 0x8A8A8A;
+
+        VisualDiff.Result result = mDiff.compare("tolerance", toPng(pixels));
+
+        Assert.assertEquals(result.getStatus(), VisualDiff.Status.MATCH);
+        Assert.assertEquals(result.getChangedTiles(), 1);
+        Assert.assertEquals(result.getDifferentPixels(), 0);
+    }
+
+    @Test
+    public void ignoresAntiAliasedEdgePixel() throws IOException {
+        int[] pixels = createFlat(BLACK);
+        for (int y = 0; y < HEIGHT; y++) {
+            Arrays.fill(pixels, y * WIDTH + WIDTH / 2, (y + 1) * WIDTH, WHITE);
+        }
+        record("edge", pixels);
+        pixels[20 * WIDTH + WIDTH / 2] = BLACK;
+
+        VisualDiff.Result result = mDiff.compare("edge", toPng(pixels));
+
+        Assert.assertEquals(result.getStatus(), VisualDiff.Status.MATCH);
+        Assert.assertEquals(result.getDifferentPixels(), 0);
+    }
+
+    @Test
+    public void reportsSizeMismatch() throws IOException {
+        record("size", createFlat(BLACK));
+        BufferedImage image = new BufferedImage(WIDTH + 1, HEIGHT, BufferedImage.TYPE_INT_RGB);
+
+        VisualDiff.Result result = mDiff.compare("size", toPng(image));
+
+        Assert.assertEquals(result.getStatus(), VisualDiff.Status.DIFFERENT);
+        Assert.assertEquals(result.getDifferentPixels(), (WIDTH + 1) * HEIGHT);
+    }
+
+    @Test
+    public void reportsMissingBaselineWithoutRecordingIt() throws IOException {
+        VisualDiff.Result result = mDiff.compare("missing", toPng(createFlat(BLACK)));
+
+        Assert.assertEquals(result.getStatus(), VisualDiff.Status.MISSING);
+        Assert.assertFalse(result.getBaseline().exists());
+        Assert.assertTrue(mDirectory.resolve("output").resolve("missing" + VisualBaseline.EXTENSION).toFile().isFile());
+    }
+
+    /**
+     * Records baseline of the name
+     *
+     * @param name String -> baseline name
+     * @param pixels int[] -> RGB pixels
+     * @return File -> baseline file
+     */
+    private File record(String name, int[] pixels) throws IOException {
+        File file = mDirectory.resolve("baseline").resolve(name + VisualBaseline.EXTENSION).toFile();
+        VisualBaseline.of(WIDTH, HEIGHT, pixels.clone(), TILE_SIZE).write(file);
+        return file;
+    }
+
+    /**
+     * Overwrites compressed pixels of the baseline file keeping header and tile hashes,
+     * so any attempt to inflate them fails
+     *
+     * @param file File -> baseline file
+     */
+    private static void corruptPixels(File file) throws IOException {
+        int pixelsOffset = 6 * Integer.BYTES + VisualBaseline.tilesX(WIDTH, TILE_SIZE)
+                * VisualBaseline.tilesY(HEIGHT, TILE_SIZE) * Long.BYTES + Integer.BYTES;
+        try (RandomAccessFile baseline = new RandomAccessFile(file, "rw")) {
+            byte[] garbage = new byte[(int) baseline.length() - pixelsOffset];
+            Arrays.fill(garbage, (byte) 0xFF);
+            baseline.seek(pixelsOffset);
+            baseline.write(garbage);
+        }
+    }
+
+    /**
+     * Returns image mixing flat areas, gradients and noise, so every row filter is used
+     *
+     * @return int[] -> RGB pixels
+     */
+    private static int[] createImage(){
+        Random random = new Random(42);
+        int[] pixels = new int[WIDTH * HEIGHT];
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int pixel;
+                if (y < HEIGHT / 3) {
+                    pixel = 0x336699;
+                } else if (y < 2 * HEIGHT / 3) {
+                    pixel = (x * 3) << 16 | (y * 5) << 8 | ((x + y) & 0xFF);
+                } else {
+                    pixel = random.nextInt() & 0xFFFFFF;
+                }
+                pixels[y * WIDTH + x] = pixel;
+            }
+        }
+        return pixels;
+    }
+
+    /**
+     * Returns image of one color
+     *
+     * @param color int -> RGB color
+     * @return int[] -> RGB pixels
+     */
+    private static int[] createFlat(int color){
+        int[] pixels = new int[WIDTH * HEIGHT];
+        Arrays.fill(pixels, color);
+        return pixels;
+    }
+
+    /**
+     * Encodes pixels as PNG screenshot
+     *
+     * @param pixels int[] -> RGB pixels
+     * @return byte[]
+     */
+    private static byte[] toPng(int[] pixels) throws IOException {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(0, 0, WIDTH, HEIGHT, pixels, 0, WIDTH);
+        return toPng(image);
+    }
+
+    /**
+     * Encodes image as PNG screenshot
+     *
+     * @param image BufferedImage
+     * @return byte[]
+     */
+    private static byte[] toPng(BufferedImage image) throws IOException {
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", png);
+        return png.toByteArray();
+    }
+}